@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Recuperação direta do deslocamento de César por análise de frequências
+ * Constrói um único histograma de 26 posições do texto cifrado e correlaciona-o
+ * com o perfil de cada idioma para todos os deslocamentos: O(n + 26²), com uma
+ * única passagem pelos dados.
+ */
+public final class AnaliseFrequencias {
+
+    private static final PerfilIdioma[] PERFIS = PerfilIdioma.values();
+
+    /**
+     * Deslocamento estimado
+     * @param shift Deslocamento
+     * @param correlacao Correlação média por letra com o idioma mais próximo (maior é melhor)
+     */
+    public record Estimativa(int shift, double correlacao) {}
+
+    private AnaliseFrequencias() {
+    }
+
+    /**
+     * @param texto Texto cifrado
+     * @return Histograma das letras (A = 0 ... Z = 25)
+     */
+    public static long[] histograma(CharSequence texto) {
+        long[] contagens = new long[26];
+        for (int i = 0; i < texto.length(); i++) {
+            int codigo = KernelDeslocamento.codigoLetra(texto.charAt(i));
+            if (codigo >= 0) {
+                contagens[codigo]++;
+            }
+        }
+        return contagens;
+    }
+
+    /**
+     * Acumula num histograma as letras ASCII de um intervalo de bytes
+     * Pode ser chamado bloco a bloco sobre ficheiros grandes. Os bytes fora do ASCII (como os
+     * das sequências UTF-8) são ignorados.
+     * @param dados Buffer com o texto cifrado
+     * @param inicio Posição inicial
+     * @param comprimento Número de bytes
+     * @param contagens Histograma de 26 posições a atualizar
+     */
+    public static void acumular(byte[] dados, int inicio, int comprimento, long[] contagens) {
+        for (int i = inicio; i < inicio + comprimento; i++) {
+            int codigo = KernelDeslocamento.codigoLetra(dados[i]);
+            if (codigo >= 0 && dados[i] >= 0) {
+                contagens[codigo]++;
+            }
+        }
+    }
+
+    /**
+     * Ordena os 26 deslocamentos pela correlação do histograma com os idiomas conhecidos
+     * @param contagens Histograma do texto cifrado
+     * @return Estimativas da mais provável para a menos provável
+     */
+    public static List<Estimativa> ordenarDeslocamentos(long[] contagens) {
+        long total = 0;
+        for (long c : contagens) {
+            total += c;
+        }
+
+        List<Estimativa> estimativas = new ArrayList<>(26);
+        for (int shift = 0; shift < 26; shift++) {
+            double melhor = Double.NEGATIVE_INFINITY;
+            for (PerfilIdioma perfil : PERFIS) {
+                // A letra i do texto original aparece cifrada como (i + shift) mod 26
+                double soma = 0;
+                for (int i = 0; i < 26; i++) {
+                    soma += perfil.frequencia(i) * contagens[(i + shift) % 26];
+                }
+                melhor = Math.max(melhor, total == 0 ? 0 : soma / total);
+            }
+            estimativas.add(new Estimativa(shift, melhor));
+        }
+
+        estimativas.sort(Comparator.comparingDouble(Estimativa::correlacao).reversed()
+                .thenComparingInt(Estimativa::shift));
+        return estimativas;
+    }
+
+    /**
+     * @param texto Texto cifrado
+     * @return Deslocamentos ordenados do mais provável para o menos provável
+     */
+    public static List<Estimativa> estimarDeslocamentos(CharSequence texto) {
+        return ordenarDeslocamentos(histograma(texto));
+    }
+}
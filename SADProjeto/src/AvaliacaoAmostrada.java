@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Avaliação em duas fases da Alínea 1 para textos longos
+ *
+ * Antes de desencriptar um deslocamento inteiro, desencripta algumas janelas curtas
+ * espalhadas pelo texto e procura nelas um padrão impossível (kk, a mesma letra três
+ * vezes, quatro consoantes seguidas...). Essas regras são locais: um padrão encontrado
+ * numa janela também existe no texto completo, que seria rejeitado pelos filtros. A
+ * rejeição antecipada nunca muda o resultado; só os deslocamentos que passam nas
+ * amostras são desencriptados por inteiro e filtrados como antes.
+ *
+ * Num texto real, os deslocamentos errados quase sempre falham logo na primeira janela,
+ * pelo que o custo deixa de crescer com o comprimento para 25 dos 26 deslocamentos.
+ * Textos mais curtos do que o tamanho mínimo são avaliados por inteiro.
+ */
+public final class AvaliacaoAmostrada {
+
+    public static final int JANELA_PADRAO = 64;
+    public static final int AMOSTRAS_PADRAO = 3;
+    public static final int TAMANHO_MINIMO_PADRAO = 1024;
+
+    /**
+     * Janelas de 64 caracteres, 3 amostras, textos a partir de 1024 caracteres
+     */
+    public static final AvaliacaoAmostrada PADRAO =
+            new AvaliacaoAmostrada(JANELA_PADRAO, AMOSTRAS_PADRAO, TAMANHO_MINIMO_PADRAO);
+
+    private final int janela;
+    private final int amostras;
+    private final int tamanhoMinimo;
+
+    /**
+     * @param janela Caracteres de cada amostra
+     * @param amostras Número de janelas, espalhadas do início ao fim do texto
+     * @param tamanhoMinimo Comprimento a partir do qual se usam amostras
+     */
+    public AvaliacaoAmostrada(int janela, int amostras, int tamanhoMinimo) {
+        if (janela <= 0 || amostras <= 0) {
+            throw new IllegalArgumentException("A janela e o número de amostras devem ser positivos");
+        }
+        if (tamanhoMinimo < 0) {
+            throw new IllegalArgumentException("O tamanho mínimo não pode ser negativo");
+        }
+        this.janela = janela;
+        this.amostras = amostras;
+        this.tamanhoMinimo = tamanhoMinimo;
+    }
+
+    /**
+     * Lê a configuração no formato da linha de comandos
+     * @param especificacao "JANELA,AMOSTRAS,MINIMO" (ex.: "64,3,1024")
+     * @return Configuração correspondente
+     */
+    public static AvaliacaoAmostrada ler(String especificacao) {
+        String[] partes = especificacao.split(",");
+        if (partes.length != 3) {
+            throw new IllegalArgumentException("Amostragem inválida (use JANELA,AMOSTRAS,MINIMO): " + especificacao);
+        }
+        try {
+            return new AvaliacaoAmostrada(Integer.parseInt(partes[0].trim()), Integer.parseInt(partes[1].trim()),
+                    Integer.parseInt(partes[2].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Amostragem inválida (use JANELA,AMOSTRAS,MINIMO): " + especificacao, e);
+        }
+    }
+
+    public int janela() {
+        return janela;
+    }
+
+    public int amostras() {
+        return amostras;
+    }
+
+    public int tamanhoMinimo() {
+        return tamanhoMinimo;
+    }
+
+    /**
+     * @param comprimento Comprimento do texto cifrado
+     * @return Se compensa avaliar primeiro as amostras
+     */
+    public boolean aplica(int comprimento) {
+        return comprimento >= tamanhoMinimo && comprimento > janela;
+    }
+
+    /**
+     * Alínea 1 com filtros: amostras primeiro, texto completo só para quem passa
+     * Devolve exatamente as mesmas hipóteses que desencriptar e filtrar os 26 deslocamentos.
+     * @param text Texto cifrado
+     * @return Hipóteses aceites, por ordem de deslocamento
+     */
+    public List<ContextoCifra.Hipotese> avaliar(String text) {
+        char[] origem = text.toCharArray();
+        int n = origem.length;
+        char[] amostra = new char[Math.min(janela, n)];
+        char[] buffer = null;
+        List<ContextoCifra.Hipotese> hipoteses = new ArrayList<>();
+
+        for (int shift = 0; shift < 26; shift++) {
+            if (rejeita(origem, n, shift, amostra)) {
+                continue;
+            }
+            if (buffer == null) {
+                buffer = new char[n];
+            }
+            KernelDeslocamento.desencriptar(origem, 0, n, buffer, 0, shift);
+            if (CaesarCipher.textoValido(buffer, 0, n)) {
+                hipoteses.add(new ContextoCifra.Hipotese(shift, new String(buffer, 0, n)));
+            }
+        }
+        return hipoteses;
+    }
+
+    /**
+     * Primeira fase: desencripta as janelas de um deslocamento e procura padrões impossíveis
+     * Uma rejeição conta como candidato testado nas métricas, como se fosse filtrado por inteiro.
+     * @param origem Texto cifrado
+     * @param n Comprimento do texto
+     * @param shift Deslocamento
+     * @param amostra Buffer com pelo menos min(janela, n) posições
+     * @return Verdadeiro se o deslocamento pode ser rejeitado sem desencriptar o resto
+     */
+    boolean rejeita(char[] origem, int n, int shift, char[] amostra) {
+        int tamanho = Math.min(janela, n);
+        long instante = Metricas.inicio(Metricas.Etapa.FILTRO);
+        try {
+            for (int k = 0; k < amostras; k++) {
+                // Janelas igualmente espaçadas; a primeira no início e a última no fim do texto
+                int inicio = amostras == 1 ? 0 : (int) ((long) (n - tamanho) * k / (amostras - 1));
+                KernelDeslocamento.desencriptar(origem, inicio, tamanho, amostra, 0, shift);
+                if (FiltroPlausibilidade.temPadraoImpossivel(amostra, 0, tamanho)) {
+                    Metricas.candidato(false);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            Metricas.fim(Metricas.Etapa.FILTRO, instante);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return janela + "," + amostras + "," + tamanhoMinimo;
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmarks dos caminhos críticos de {@link CaesarCipher}
+ * Cada caso é parametrizado pelo tamanho da mensagem e pelo estado dos filtros e
+ * reporta o tempo médio por operação e os bytes alocados por operação (medidos com
+ * com.sun.management.ThreadMXBean, equivalente ao profiler de GC do JMH).
+ *
+ * Utilização:
+ *   java Benchmarks [--tamanhos 16,256,4096] [--aquecimento 3] [--iteracoes 5]
+ *                   [--duracao-ms 500] [--filtro NOME] [--saida FICHEIRO]
+ *
+ * Os casos traduzirBytes* medem o núcleo sobre bytes (César + substituição numa tabela)
+ * com o loop escalar e, se {@link KernelDeslocamento#vetorial()}, com o vetorial; use
+ * por exemplo --filtro traduzirBytes --tamanhos 1048576,8388608 para entradas grandes.
+ * Os casos alinea1* comparam a Alínea 1 com e sem {@link AvaliacaoAmostrada}, que só
+ * atua a partir de 1024 caracteres (--filtro alinea1 --tamanhos 4096,1048576).
+ *
+ * A linha de base está em benchmarks/baseline.txt.
+ */
+public class Benchmarks {
+
+    private static final String[] PALAVRAS = {
+            "ESTE", "TEXTO", "SERVE", "PARA", "MEDIR", "DESEMPENHO", "DA", "CIFRA", "DE", "CESAR",
+            "COM", "PALAVRAS", "EM", "PORTUGUES", "QUE", "O", "FILTRO", "DEVE", "ACEITAR", "MENSAGEM"};
+    private static final String ALFABETO = "QWERTYUIOPASDFGHJKLZXCVBNM";
+    private static final int DESLOCAMENTO = 3;
+
+    // Consumidor de resultados para o JIT não eliminar o trabalho medido
+    private static volatile int sumidouro;
+
+    @FunctionalInterface
+    interface Operacao {
+        Object executar();
+    }
+
+    /**
+     * Resultado de um caso
+     * @param nome Nome do benchmark
+     * @param tamanho Tamanho da mensagem
+     * @param filtros Estado dos filtros
+     * @param nsPorOperacao Tempo médio por operação
+     * @param desvio Desvio padrão entre iterações
+     * @param bytesPorOperacao Bytes alocados por operação
+     */
+    record Resultado(String nome, int tamanho, boolean filtros,
+                     double nsPorOperacao, double desvio, double bytesPorOperacao) {}
+
+    public static void main(String[] args) throws IOException {
+        int[] tamanhos = {16, 256, 4096};
+        int aquecimento = 3;
+        int iteracoes = 5;
+        long duracaoMs = 500;
+        String filtroNome = null;
+        Path saida = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tamanhos" -> {
+                    String[] partes = args[++i].split(",");
+                    tamanhos = new int[partes.length];
+                    for (int j = 0; j < partes.length; j++) {
+                        tamanhos[j] = Integer.parseInt(partes[j].trim());
+                    }
+                }
+                case "--aquecimento" -> aquecimento = Integer.parseInt(args[++i]);
+                case "--iteracoes" -> iteracoes = Integer.parseInt(args[++i]);
+                case "--duracao-ms" -> duracaoMs = Long.parseLong(args[++i]);
+                case "--filtro" -> filtroNome = args[++i];
+                case "--saida" -> saida = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+            }
+        }
+
+        boolean filtrosOriginais = CaesarCipher.filtrosAtivos();
+        List<Resultado> resultados = new ArrayList<>();
+
+        try {
+            for (int tamanho : tamanhos) {
+                String mensagem = gerarMensagem(tamanho, new Random(tamanho));
+                String cifrada = CaesarCipher.desencriptarComDeslocamento(mensagem, 26 - DESLOCAMENTO);
+                String comSalts = "#@!" + cifrada + "&%$";
+                String hash = gerarHash(mensagem);
+                byte[] bytes = cifrada.getBytes(StandardCharsets.ISO_8859_1);
+                byte[] destino = new byte[bytes.length];
+                byte[] tabela = DesencriptacaoFicheiros.construirTabela(DESLOCAMENTO, ALFABETO);
+                ValidadorDicionario validador = new ValidadorDicionario();
+                ModeloPontuacao modelo = ModeloPontuacao.padrao();
+                IndiceImpressoes indice = criarIndice(mensagem, tamanho);
+
+                for (boolean filtros : new boolean[]{true, false}) {
+                    CaesarCipher.definirFiltrosAtivos(filtros);
+                    List<String> nomes = new ArrayList<>();
+                    List<Operacao> operacoes = new ArrayList<>();
+
+                    nomes.add("desencriptarComDeslocamento");
+                    operacoes.add(() -> CaesarCipher.desencriptarComDeslocamento(cifrada, DESLOCAMENTO));
+                    nomes.add("desencriptarTodosDeslocamentos");
+                    operacoes.add(() -> filtrar(CaesarCipher.desencriptarTodosDeslocamentos(cifrada)));
+                    ContextoCifra contextoIndice = CaesarCipher.contexto().comIndice(indice);
+                    nomes.add("indiceImpressoes");
+                    operacoes.add(() -> contextoIndice.desencriptarTodosDeslocamentos(cifrada));
+                    nomes.add("primeiroCandidato");
+                    operacoes.add(() -> CaesarCipher.contexto().candidatos(cifrada).findFirst());
+                    nomes.add("primeiroCandidatoPontuado");
+                    operacoes.add(() -> CaesarCipher.contexto().candidatos(cifrada, modelo).findFirst());
+                    nomes.add("desencriptarTodasCombinacoes");
+                    operacoes.add(() -> {
+                        CaesarCipher.desencriptarTodasCombinacoes(comSalts, SaidaResultados.nula());
+                        return null;
+                    });
+                    if (filtros) {
+                        // Sem filtros o textoValido não é chamado por nenhum caminho
+                        nomes.add("textoValido");
+                        operacoes.add(() -> CaesarCipher.textoValido(mensagem));
+                        nomes.add("validadorDicionario");
+                        operacoes.add(() -> validador.aceita(mensagem));
+                        // Alínea 1 com o texto completo e com a rejeição por amostras (textos longos)
+                        ContextoCifra completo = CaesarCipher.contexto().comAmostragem(null);
+                        ContextoCifra amostrado = CaesarCipher.contexto().comAmostragem(AvaliacaoAmostrada.PADRAO);
+                        nomes.add("alinea1Completa");
+                        operacoes.add(() -> completo.desencriptarTodosDeslocamentos(cifrada));
+                        nomes.add("alinea1Amostrada");
+                        operacoes.add(() -> amostrado.desencriptarTodosDeslocamentos(cifrada));
+                    }
+                    if (filtros) {
+                        // Os filtros não afetam a tradução de bytes
+                        nomes.add("traduzirBytesEscalar");
+                        operacoes.add(() -> {
+                            KernelDeslocamento.traduzirEscalar(bytes, 0, bytes.length, destino, 0, tabela);
+                            return destino;
+                        });
+                        if (KernelDeslocamento.vetorial()) {
+                            nomes.add("traduzirBytesVetorial");
+                            operacoes.add(() -> {
+                                KernelDeslocamento.traduzir(bytes, 0, bytes.length, destino, 0, tabela);
+                                return destino;
+                            });
+                        }
+                    }
+                    nomes.add("desencriptarHashComParametros");
+                    operacoes.add(() -> CaesarCipher.desencriptarHashComParametros(
+                            hash, ALFABETO, DESLOCAMENTO, "", "", null));
+
+                    for (int i = 0; i < nomes.size(); i++) {
+                        if (filtroNome != null && !nomes.get(i).contains(filtroNome)) {
+                            continue;
+                        }
+                        Resultado r = medir(nomes.get(i), tamanho, filtros, operacoes.get(i),
+                                aquecimento, iteracoes, duracaoMs);
+                        System.out.println(formatar(r));
+                        resultados.add(r);
+                    }
+                }
+            }
+        } finally {
+            CaesarCipher.definirFiltrosAtivos(filtrosOriginais);
+        }
+
+        if (saida != null) {
+            List<String> linhas = new ArrayList<>();
+            linhas.add("# java " + System.getProperty("java.version") + ", "
+                    + Runtime.getRuntime().availableProcessors() + " processador(es), vetorial: "
+                    + (KernelDeslocamento.vetorial() ? "sim" : "não"));
+            linhas.add(cabecalho());
+            for (Resultado r : resultados) {
+                linhas.add(formatar(r));
+            }
+            Files.write(saida, linhas, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Object filtrar(String[] resultados) {
+        int aceites = 0;
+        for (String r : resultados) {
+            if (!CaesarCipher.filtrosAtivos() || CaesarCipher.textoValido(r)) {
+                aceites++;
+            }
+        }
+        return aceites;
+    }
+
+    static Resultado medir(String nome, int tamanho, boolean filtros, Operacao operacao,
+                           int aquecimento, int iteracoes, long duracaoMs) {
+        for (int i = 0; i < aquecimento; i++) {
+            executarDurante(operacao, duracaoMs);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        double[] nsPorOperacao = new double[iteracoes];
+        long operacoesTotais = 0;
+        long bytesTotais = 0;
+
+        for (int i = 0; i < iteracoes; i++) {
+            long bytesAntes = threads.getThreadAllocatedBytes(thread);
+            long inicio = System.nanoTime();
+            long n = executarDurante(operacao, duracaoMs);
+            long tempo = System.nanoTime() - inicio;
+            bytesTotais += threads.getThreadAllocatedBytes(thread) - bytesAntes;
+            operacoesTotais += n;
+            nsPorOperacao[i] = (double) tempo / n;
+        }
+
+        double media = 0;
+        for (double v : nsPorOperacao) {
+            media += v;
+        }
+        media /= iteracoes;
+        double variancia = 0;
+        for (double v : nsPorOperacao) {
+            variancia += (v - media) * (v - media);
+        }
+        double desvio = iteracoes > 1 ? Math.sqrt(variancia / (iteracoes - 1)) : 0;
+
+        return new Resultado(nome, tamanho, filtros, media, desvio, (double) bytesTotais / operacoesTotais);
+    }
+
+    private static long executarDurante(Operacao operacao, long duracaoMs) {
+        long limite = System.nanoTime() + duracaoMs * 1_000_000L;
+        long n = 0;
+        int acumulado = 0;
+        do {
+            Object r = operacao.executar();
+            acumulado += r == null ? 0 : r.hashCode();
+            n++;
+        } while (System.nanoTime() < limite);
+        sumidouro += acumulado;
+        return n;
+    }
+
+    static String cabecalho() {
+        return String.format("%-32s %8s %8s %16s %12s %14s",
+                "benchmark", "tamanho", "filtros", "ns/op", "desvio", "bytes/op");
+    }
+
+    static String formatar(Resultado r) {
+        return String.format(Locale.ROOT, "%-32s %8d %8s %16.1f %12.1f %14.1f",
+                r.nome(), r.tamanho(), r.filtros() ? "on" : "off",
+                r.nsPorOperacao(), r.desvio(), r.bytesPorOperacao());
+    }
+
+    private static String gerarMensagem(int tamanho, Random random) {
+        StringBuilder sb = new StringBuilder(tamanho + 16);
+        while (sb.length() < tamanho) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(PALAVRAS[random.nextInt(PALAVRAS.length)]);
+        }
+        sb.setLength(tamanho);
+        return sb.toString();
+    }
+
+    // Índice com a mensagem de teste entre 1000 mensagens aleatórias do mesmo tamanho
+    // (menos nas entradas grandes, para o corpus não passar de 16 M caracteres)
+    private static IndiceImpressoes criarIndice(String mensagem, int tamanho) throws IOException {
+        Path corpus = Files.createTempFile("sad-corpus", ".txt");
+        Path ficheiro = Files.createTempFile("sad-indice", ".idx");
+        ficheiro.toFile().deleteOnExit();
+        try {
+            Random random = new Random(-tamanho);
+            List<String> linhas = new ArrayList<>();
+            int mensagens = Math.max(1, Math.min(1000, (16 << 20) / Math.max(1, tamanho)));
+            for (int i = 0; i < mensagens; i++) {
+                linhas.add(gerarMensagem(tamanho, random));
+            }
+            linhas.add(mensagem);
+            Files.write(corpus, linhas, StandardCharsets.UTF_8);
+            IndiceImpressoes.construir(corpus, ficheiro);
+            return IndiceImpressoes.abrir(ficheiro);
+        } finally {
+            Files.deleteIfExists(corpus);
+        }
+    }
+
+    // Cifra "12" + mensagem + "!#" com o alfabeto e o deslocamento de teste
+    private static String gerarHash(String mensagem) {
+        return QuebraHashes.cifrar("12" + mensagem + "!#", ALFABETO, DESLOCAMENTO);
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache concorrente de resultados, limitada em memória, com remoção LRU
+ * As entradas são distribuídas por segmentos (cada um com o seu lock e a sua fatia do
+ * orçamento de bytes), pelo que pedidos em threads diferentes raramente competem.
+ * Opcionalmente, o conteúdo pode ser gravado num ficheiro e recarregado no arranque.
+ * Ao carregar, só são desserializadas as classes da chave, as listas e as classes de
+ * valor indicadas; um ficheiro com outras classes é ignorado.
+ *
+ * @param <V> Tipo dos resultados guardados
+ */
+public final class CacheResultados<V> {
+
+    private static final int SEGMENTOS = 16;
+    private static final long PESO_ENTRADA = 64;
+    // Classes sempre aceites ao carregar: a chave e as listas (List.copyOf é gravada como
+    // CollSer, com um Object[], e reconstruída como ImmutableCollections)
+    private static final String CLASSES_BASE = "CacheResultados$Chave;java.lang.String;java.lang.Boolean;"
+            + "java.util.CollSer;java.util.ImmutableCollections$ListN;java.util.ImmutableCollections$List12;"
+            + "java.util.ArrayList;java.lang.Object";
+    private static final String LIMITES_CARREGAMENTO = "maxdepth=8;maxarray=1000000";
+
+    /**
+     * Chave de um resultado: operação e todos os parâmetros que o influenciam
+     */
+    public record Chave(String operacao, String entrada, String alfabeto, int deslocacao,
+                        String pepper, String salt, Boolean saltNoInicio, boolean filtros) implements Serializable {
+
+        long peso() {
+            return PESO_ENTRADA + 2L * (tamanho(operacao) + tamanho(entrada) + tamanho(alfabeto)
+                    + tamanho(pepper) + tamanho(salt));
+        }
+
+        private static int tamanho(String s) {
+            return s == null ? 0 : s.length();
+        }
+    }
+
+    /**
+     * Contadores da cache
+     * @param acertos Pedidos servidos pela cache
+     * @param falhas Pedidos que tiveram de ser calculados
+     * @param remocoes Entradas removidas por falta de espaço
+     * @param rejeicoes Resultados não guardados por serem maiores do que um segmento
+     * @param entradas Número de entradas atuais
+     * @param bytes Estimativa da memória ocupada
+     */
+    public record Estatisticas(long acertos, long falhas, long remocoes, long rejeicoes, long entradas, long bytes) {}
+
+    private record Entrada<V>(V valor, long peso) {}
+
+    private final Segmento<V>[] segmentos;
+    private final ToLongFunction<V> pesoValor;
+    private final Path ficheiro;
+    private final ObjectInputFilter filtro;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+    private final LongAdder rejeicoes = new LongAdder();
+
+    /**
+     * @param bytesMaximos Memória máxima estimada para o conteúdo da cache
+     * @param pesoValor Estimativa em bytes de cada valor
+     */
+    public CacheResultados(long bytesMaximos, ToLongFunction<V> pesoValor) {
+        this(bytesMaximos, pesoValor, null, List.of());
+    }
+
+    /**
+     * @param bytesMaximos Memória máxima estimada para o conteúdo da cache
+     * @param pesoValor Estimativa em bytes de cada valor
+     * @param ficheiro Ficheiro onde a cache é gravada por {@link #persistir()} (carregado se existir), ou null
+     * @param classesValor Classes que podem ser desserializadas nos valores, além de String e das listas
+     */
+    @SuppressWarnings("unchecked")
+    public CacheResultados(long bytesMaximos, ToLongFunction<V> pesoValor, Path ficheiro, List<Class<?>> classesValor) {
+        if (bytesMaximos <= 0) {
+            throw new IllegalArgumentException("O tamanho máximo da cache deve ser positivo");
+        }
+        this.pesoValor = pesoValor;
+        this.ficheiro = ficheiro;
+        StringBuilder padrao = new StringBuilder(LIMITES_CARREGAMENTO).append(';').append(CLASSES_BASE);
+        for (Class<?> classe : classesValor) {
+            padrao.append(';').append(classe.getName());
+        }
+        this.filtro = ObjectInputFilter.Config.createFilter(padrao.append(";!*").toString());
+        this.segmentos = (Segmento<V>[]) new Segmento<?>[SEGMENTOS];
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento<>(Math.max(1, bytesMaximos / SEGMENTOS));
+        }
+        if (ficheiro != null && Files.exists(ficheiro)) {
+            carregar();
+        }
+    }
+
+    /**
+     * Devolve o resultado em cache ou calcula-o e guarda-o
+     * O cálculo corre fora do lock; dois pedidos simultâneos da mesma chave podem calcular ambos.
+     * @param chave Chave do resultado
+     * @param calcular Cálculo do resultado em caso de falha
+     * @return Resultado
+     */
+    public V obter(Chave chave, Supplier<V> calcular) {
+        V valor = procurar(chave);
+        if (valor != null) {
+            return valor;
+        }
+        valor = calcular.get();
+        colocar(chave, valor);
+        return valor;
+    }
+
+    /**
+     * @param chave Chave do resultado
+     * @return Resultado em cache, ou null (conta como falha)
+     */
+    public V procurar(Chave chave) {
+        Entrada<V> entrada = segmento(chave).obter(chave);
+        if (entrada == null) {
+            falhas.increment();
+            return null;
+        }
+        acertos.increment();
+        return entrada.valor();
+    }
+
+    public void colocar(Chave chave, V valor) {
+        if (valor == null) {
+            return;
+        }
+        long peso = chave.peso() + pesoValor.applyAsLong(valor);
+        Segmento<V> segmento = segmento(chave);
+        // Uma entrada maior do que o segmento esvaziava-o e acabava por ser ela própria removida
+        if (peso > segmento.bytesMaximos) {
+            rejeicoes.increment();
+            return;
+        }
+        remocoes.add(segmento.colocar(chave, new Entrada<>(valor, peso)));
+    }
+
+    public Estatisticas estatisticas() {
+        long entradas = 0;
+        long bytes = 0;
+        for (Segmento<V> segmento : segmentos) {
+            synchronized (segmento) {
+                entradas += segmento.mapa.size();
+                bytes += segmento.bytes;
+            }
+        }
+        return new Estatisticas(acertos.sum(), falhas.sum(), remocoes.sum(), rejeicoes.sum(), entradas, bytes);
+    }
+
+    /**
+     * Grava as entradas serializáveis no ficheiro configurado (da menos para a mais recente)
+     */
+    public void persistir() throws IOException {
+        if (ficheiro == null) {
+            return;
+        }
+        Path temporario = ficheiro.resolveSibling(ficheiro.getFileName() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporario)))) {
+            for (Segmento<V> segmento : segmentos) {
+                List<Map.Entry<Chave, Entrada<V>>> copia;
+                synchronized (segmento) {
+                    copia = new ArrayList<>(segmento.mapa.entrySet());
+                }
+                for (Map.Entry<Chave, Entrada<V>> e : copia) {
+                    if (e.getValue().valor() instanceof Serializable) {
+                        out.writeObject(e.getKey());
+                        out.writeObject(e.getValue().valor());
+                    }
+                }
+            }
+        }
+        Files.move(temporario, ficheiro, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void carregar() {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(ficheiro)))) {
+            in.setObjectInputFilter(filtro);
+            while (true) {
+                Chave chave = (Chave) in.readObject();
+                colocar(chave, (V) in.readObject());
+            }
+        } catch (EOFException e) {
+            // Fim do ficheiro
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // Um ficheiro corrompido, de outra versão ou com classes recusadas pelo filtro
+            // não impede o arranque: começa vazia
+            for (Segmento<V> segmento : segmentos) {
+                segmento.limpar();
+            }
+        }
+    }
+
+    private Segmento<V> segmento(Chave chave) {
+        int h = chave.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (SEGMENTOS - 1)];
+    }
+
+    private static final class Segmento<V> {
+        private final long bytesMaximos;
+        private final LinkedHashMap<Chave, Entrada<V>> mapa = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        Segmento(long bytesMaximos) {
+            this.bytesMaximos = bytesMaximos;
+        }
+
+        synchronized Entrada<V> obter(Chave chave) {
+            return mapa.get(chave);
+        }
+
+        /**
+         * @return Número de entradas removidas para abrir espaço
+         */
+        synchronized int colocar(Chave chave, Entrada<V> entrada) {
+            Entrada<V> anterior = mapa.put(chave, entrada);
+            if (anterior != null) {
+                bytes -= anterior.peso();
+            }
+            bytes += entrada.peso();
+
+            int removidas = 0;
+            Iterator<Entrada<V>> it = mapa.values().iterator();
+            while (bytes > bytesMaximos && it.hasNext()) {
+                Entrada<V> maisAntiga = it.next();
+                it.remove();
+                bytes -= maisAntiga.peso();
+                removidas++;
+            }
+            return removidas;
+        }
+
+        synchronized void limpar() {
+            mapa.clear();
+            bytes = 0;
+        }
+    }
+}
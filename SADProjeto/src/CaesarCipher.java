@@ -1,10 +1,6 @@
-import java.nio.charset.StandardCharsets;
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Classe para desencriptação de mensagens cifradas com a Cifra de César
@@ -12,15 +8,16 @@ import java.util.regex.Pattern;
  */
 public class CaesarCipher {
 
-    private static final Pattern WORD_PATTERN = Pattern.compile("\\b(?=.*[AEIOUÁÉÍÓÚaeiouáéíóú])[\\p{L}]{2,}\\b");
-    private static final Pattern VOWEL_PATTERN = Pattern.compile("[AEIOUaeiouÁÉÍÓÚáéíóú]");
-    private static final Pattern IMPOSSIBLE_PATTERN = Pattern.compile(
-            "(?iu)(?:k{2}|w{2}|y{2}|q{2}|j{2}|([\\p{L}])\\1{2,}|[bcdfghjklmnpqrstvwxyz]{4,})");
-    private static final String SALT_CHARS = "!#$%&+-<=>@";
-    private static final Pattern SALT_PATTERN = Pattern.compile("[" + Pattern.quote(SALT_CHARS) + "]{1,4}");
-    private static boolean filtrosAtivos = true;
+    // Configuração usada pelos métodos estáticos (menu); substituída por inteiro a cada alteração
+    private static volatile ContextoCifra contexto = ContextoCifra.PADRAO;
+
+    // Último contexto com alfabeto usado nas hashes, para não refazer as tabelas a cada chamada
+    private record ContextoHash(ContextoCifra base, ContextoCifra comAlfabeto) {}
+    private static volatile ContextoHash contextoHash;
+
+    public static class ResultadoDesencriptacao implements Serializable {
+        private static final long serialVersionUID = 1L;
 
-    public static class ResultadoDesencriptacao {
         private final String mensagem;
         private final String pepper;
         private final String salt;
@@ -51,11 +48,18 @@ public class CaesarCipher {
     }
 
     public static boolean filtrosAtivos() {
-        return filtrosAtivos;
+        return contexto.filtrosAtivos();
     }
 
     public static void definirFiltrosAtivos(boolean ativos) {
-        filtrosAtivos = ativos;
+        contexto = contexto.comFiltros(ativos);
+    }
+
+    /**
+     * @return Contexto imutável com a configuração atual dos métodos estáticos
+     */
+    public static ContextoCifra contexto() {
+        return contexto;
     }
 
     /**
@@ -65,29 +69,15 @@ public class CaesarCipher {
      * @return Texto desencriptado com o deslocamento especificado
      */
     public static String desencriptarComDeslocamento(String text, int shift) {
-        StringBuilder result = new StringBuilder();
-
-        // Normalizar o shift para estar entre 0-25
-        shift = shift % 26;
-
-        // Processar cada caractere
-        for (char c : text.toCharArray()) {
-            // Verificar se é uma letra
-            if (Character.isLetter(c)) {
-                // Converter para maiúscula
-                char upperChar = Character.toUpperCase(c);
-
-                // Desencriptar: deslocar para trás
-                char decrypted = (char) ((upperChar - 'A' - shift + 26) % 26 + 'A');
-
-                result.append(decrypted);
-            } else {
-                // Manter caracteres não-alfabéticos inalterados
-                result.append(c);
-            }
+        String latin1 = KernelDeslocamento.desencriptarLatin1(text, shift);
+        if (latin1 != null) {
+            return latin1;
         }
 
-        return result.toString();
+        // Desencriptar no próprio buffer através das tabelas pré-calculadas
+        char[] buffer = text.toCharArray();
+        KernelDeslocamento.desencriptar(buffer, 0, buffer.length, buffer, 0, shift);
+        return new String(buffer);
     }
 
     /**
@@ -97,20 +87,46 @@ public class CaesarCipher {
      */
     public static String[] desencriptarTodosDeslocamentos(String text) {
         String[] results = new String[26];
+        int n = text.length();
+        char[] origem = text.toCharArray();
+        char[] todos = new char[26 * n];
 
-        // Tentar cada deslocamento de 0 a 25
+        // Os 26 deslocamentos são escritos de uma vez num único buffer
+        KernelDeslocamento.desencriptarTodos(origem, 0, n, todos);
         for (int shift = 0; shift < 26; shift++) {
-            results[shift] = desencriptarComDeslocamento(text, shift);
+            results[shift] = new String(todos, shift * n, n);
         }
 
         return results;
     }
 
+    /**
+     * Desencripta apenas os deslocamentos mais prováveis segundo a análise de frequências
+     * Lê o texto uma única vez para o histograma; só os K melhores são desencriptados.
+     * @param text Texto cifrado
+     * @param k Número de deslocamentos a desencriptar
+     * @return Candidatos do mais provável para o menos provável (pontuação = correlação)
+     */
+    public static List<ClassificadorCandidatos.Candidato> desencriptarPorFrequencias(String text, int k) {
+        List<AnaliseFrequencias.Estimativa> estimativas = AnaliseFrequencias.estimarDeslocamentos(text);
+        List<ClassificadorCandidatos.Candidato> candidatos = new ArrayList<>();
+
+        for (int i = 0; i < Math.min(k, estimativas.size()); i++) {
+            AnaliseFrequencias.Estimativa estimativa = estimativas.get(i);
+            candidatos.add(new ClassificadorCandidatos.Candidato(estimativa.shift(),
+                    desencriptarComDeslocamento(text, estimativa.shift()), estimativa.correlacao()));
+        }
+
+        return candidatos;
+    }
+
     /**
      * Apresenta todas as possibilidades de desencriptação formatadas
      * @param text Texto cifrado original
      */
     public static void apresentarTodasDesencriptacoes(String text) {
+        boolean filtrosAtivos = contexto.filtrosAtivos();
+
         System.out.println("\n========================================");
         System.out.println("TODAS AS POSSIBILIDADES DE DESENCRIPTAÇÃO");
         System.out.println("========================================");
@@ -122,17 +138,26 @@ public class CaesarCipher {
         }
         System.out.println("----------------------------------------\n");
 
-        String[] results = desencriptarTodosDeslocamentos(text);
         int exibidos = 0;
+        AvaliacaoAmostrada amostragem = contexto.amostragem();
 
-        for (int i = 0; i < results.length; i++) {
-            String resultado = results[i];
-            if (filtrosAtivos && !textoValido(resultado)) {
-                continue;
+        if (filtrosAtivos && amostragem != null && amostragem.aplica(text.length())) {
+            // Texto longo: os deslocamentos rejeitados nas amostras não são desencriptados por inteiro
+            for (ContextoCifra.Hipotese h : amostragem.avaliar(text)) {
+                System.out.printf("Shift %2d: %s\n", h.shift(), h.mensagem());
+                exibidos++;
             }
+        } else {
+            String[] results = desencriptarTodosDeslocamentos(text);
+            for (int i = 0; i < results.length; i++) {
+                String resultado = results[i];
+                if (filtrosAtivos && !textoValido(resultado)) {
+                    continue;
+                }
 
-            System.out.printf("Shift %2d: %s\n", i, resultado);
-            exibidos++;
+                System.out.printf("Shift %2d: %s\n", i, resultado);
+                exibidos++;
+            }
         }
 
         if (filtrosAtivos && exibidos == 0) {
@@ -147,6 +172,40 @@ public class CaesarCipher {
         System.out.println("\n========================================\n");
     }
 
+    /**
+     * Classifica os 26 deslocamentos por pontuação estatística (sem filtros por regex)
+     * @param text Texto cifrado
+     * @param k Número máximo de candidatos
+     * @return Os K candidatos mais prováveis, do melhor para o pior
+     */
+    public static List<ClassificadorCandidatos.Candidato> classificarDesencriptacoes(String text, int k) {
+        return new ClassificadorCandidatos().classificarDeslocamentos(text, k);
+    }
+
+    /**
+     * Apresenta os K deslocamentos mais prováveis, ordenados por pontuação
+     * @param text Texto cifrado original
+     * @param k Número de candidatos a mostrar
+     */
+    public static void apresentarMelhoresDesencriptacoes(String text, int k) {
+        System.out.println("\n========================================");
+        System.out.println("DESENCRIPTAÇÕES MAIS PROVÁVEIS");
+        System.out.println("========================================");
+        System.out.println("Mensagem cifrada: " + text);
+        System.out.println("(ordenadas por pontuação de n-gramas em português/inglês)");
+        System.out.println("----------------------------------------\n");
+
+        List<ClassificadorCandidatos.Candidato> melhores = classificarDesencriptacoes(text, k);
+        for (int i = 0; i < melhores.size(); i++) {
+            ClassificadorCandidatos.Candidato candidato = melhores.get(i);
+            System.out.printf("%2d) Shift %2d [%8.3f]: %s\n",
+                    i + 1, candidato.shift(), candidato.pontuacao(), candidato.texto());
+        }
+
+        System.out.println("\nTotal mostrado: " + melhores.size() + " de 26");
+        System.out.println("\n========================================\n");
+    }
+
     public static List<ResultadoDesencriptacao> desencriptarHashComParametros(String hashBase64,
                                                                              String alfabetoSubstituicao,
                                                                              int deslocacao,
@@ -161,53 +220,22 @@ public class CaesarCipher {
             throw new IllegalArgumentException("O alfabeto de substituição deve ter 26 letras");
         }
 
-        String textoCodificado;
-        try {
-            byte[] dados = Base64.getDecoder().decode(hashBase64);
-            textoCodificado = new String(dados, StandardCharsets.ISO_8859_1);
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Hash Base64 inválida", e);
-        }
-
-        String aposCaesar = desencriptarComDeslocamento(textoCodificado, deslocacao);
-        String aposSubstituicao = desfazerSubstituicao(aposCaesar, alfabetoSubstituicao);
-        List<String> peppers = determinarPepper(aposSubstituicao, pepper);
-        List<ResultadoDesencriptacao> resultados = new ArrayList<>();
-
-        for (String pepperAtual : peppers) {
-            String restante = aposSubstituicao.substring(pepperAtual.length());
-            for (SaltOption opcao : determinarSalt(restante, salt, saltNoInicio)) {
-                resultados.add(new ResultadoDesencriptacao(opcao.mensagem(), pepperAtual, opcao.salt(), opcao.saltNoInicio()));
-            }
-        }
-
-        if (resultados.isEmpty()) {
-            throw new IllegalArgumentException("Não foi possível determinar Pepper/Salt válidos para o texto desencriptado");
-        }
-
-        return resultados;
+        return contextoHash(alfabetoSubstituicao).desencriptarHash(hashBase64, deslocacao, pepper, salt, saltNoInicio);
     }
 
-    private static String desfazerSubstituicao(String texto, String alfabetoSubstituicao) {
-        int[] inverso = construirMapaInverso(alfabetoSubstituicao);
-        StringBuilder sb = new StringBuilder(texto.length());
-
-        for (char c : texto.toCharArray()) {
-            if (c >= 'A' && c <= 'Z') {
-                int indice = inverso[c - 'A'];
-                if (indice < 0) {
-                    throw new IllegalArgumentException("Caractere '" + c + "' não pertence ao alfabeto de substituição");
-                }
-                sb.append((char) ('A' + indice));
-            } else {
-                sb.append(c);
-            }
+    private static ContextoCifra contextoHash(String alfabetoSubstituicao) {
+        ContextoCifra base = contexto;
+        ContextoHash ultimo = contextoHash;
+        if (ultimo != null && ultimo.base() == base
+                && alfabetoSubstituicao.equals(ultimo.comAlfabeto().alfabetoSubstituicao())) {
+            return ultimo.comAlfabeto();
         }
-
-        return sb.toString();
+        ContextoCifra novo = base.comAlfabeto(alfabetoSubstituicao);
+        contextoHash = new ContextoHash(base, novo);
+        return novo;
     }
 
-    private static int[] construirMapaInverso(String alfabetoSubstituicao) {
+    static int[] construirMapaInverso(String alfabetoSubstituicao) {
         int[] inverso = new int[26];
         for (int i = 0; i < inverso.length; i++) {
             inverso[i] = -1;
@@ -228,123 +256,6 @@ public class CaesarCipher {
         return inverso;
     }
 
-    private record SaltOption(String mensagem, String salt, boolean saltNoInicio) {}
-
-    private static List<String> determinarPepper(String texto, String pepperInformado) {
-        List<String> peppers = new ArrayList<>();
-
-        if (pepperInformado != null && !pepperInformado.isEmpty()) {
-            if (!pepperInformado.matches("\\d{1,2}")) {
-                throw new IllegalArgumentException("Pepper inválido. Use 1 ou 2 dígitos.");
-            }
-            if (!texto.startsWith(pepperInformado)) {
-                throw new IllegalArgumentException("Pepper fornecido não corresponde ao texto desencriptado");
-            }
-            peppers.add(pepperInformado);
-            return peppers;
-        }
-
-        int max = Math.min(2, texto.length());
-        int len = 0;
-        while (len < max && Character.isDigit(texto.charAt(len))) {
-            len++;
-        }
-
-        if (len == 0) {
-            peppers.add("");
-        } else {
-            for (int i = 1; i <= len; i++) {
-                peppers.add(texto.substring(0, i));
-            }
-        }
-
-        return peppers;
-    }
-
-    private static List<SaltOption> determinarSalt(String texto,
-                                                   String saltInformado,
-                                                   Boolean saltNoInicioInformado) {
-        List<SaltOption> salts = new ArrayList<>();
-
-        if (saltInformado != null && !saltInformado.isEmpty()) {
-            if (!SALT_PATTERN.matcher(saltInformado).matches()) {
-                throw new IllegalArgumentException("Salt inválido. Use apenas caracteres permitidos e máximo 4.");
-            }
-
-            if (Boolean.TRUE.equals(saltNoInicioInformado)) {
-                if (!texto.startsWith(saltInformado)) {
-                    throw new IllegalArgumentException("Salt fornecido não corresponde ao início do texto");
-                }
-                salts.add(new SaltOption(texto.substring(saltInformado.length()), saltInformado, true));
-            } else if (Boolean.FALSE.equals(saltNoInicioInformado)) {
-                if (!texto.endsWith(saltInformado)) {
-                    throw new IllegalArgumentException("Salt fornecido não corresponde ao fim do texto");
-                }
-                salts.add(new SaltOption(texto.substring(0, texto.length() - saltInformado.length()), saltInformado, false));
-            } else {
-                boolean encontrado = false;
-                if (texto.startsWith(saltInformado)) {
-                    salts.add(new SaltOption(texto.substring(saltInformado.length()), saltInformado, true));
-                    encontrado = true;
-                }
-                if (texto.endsWith(saltInformado)) {
-                    salts.add(new SaltOption(texto.substring(0, texto.length() - saltInformado.length()), saltInformado, false));
-                    encontrado = true;
-                }
-                if (!encontrado) {
-                    throw new IllegalArgumentException("Salt fornecido não corresponde ao início nem ao fim do texto");
-                }
-            }
-
-            return salts;
-        }
-
-        LinkedHashSet<SaltOption> conjunto = new LinkedHashSet<>();
-
-        String prefixo = extrairSaltInicio(texto);
-        if (!prefixo.isEmpty()) {
-            conjunto.add(new SaltOption(texto.substring(prefixo.length()), prefixo, true));
-        }
-
-        String sufixo = extrairSaltFim(texto);
-        if (!sufixo.isEmpty()) {
-            conjunto.add(new SaltOption(texto.substring(0, texto.length() - sufixo.length()), sufixo, false));
-        }
-
-        if (conjunto.isEmpty()) {
-            conjunto.add(new SaltOption(texto, "", false));
-        }
-
-        salts.addAll(conjunto);
-        return salts;
-    }
-
-    private static String extrairSaltInicio(String texto) {
-        int limite = Math.min(4, texto.length());
-        StringBuilder candidato = new StringBuilder();
-        for (int j = 0; j < limite; j++) {
-            char c = texto.charAt(j);
-            if (SALT_CHARS.indexOf(c) < 0) {
-                break;
-            }
-            candidato.append(c);
-        }
-        return candidato.toString();
-    }
-
-    private static String extrairSaltFim(String texto) {
-        int limite = Math.min(4, texto.length());
-        StringBuilder candidato = new StringBuilder();
-        for (int j = 1; j <= limite; j++) {
-            char c = texto.charAt(texto.length() - j);
-            if (SALT_CHARS.indexOf(c) < 0) {
-                break;
-            }
-            candidato.insert(0, c);
-        }
-        return candidato.toString();
-    }
-
     public static String[] desencriptarComSalts(String cipherText,
                                                 int shiftSalt1,
                                                 int shiftMessage,
@@ -364,94 +275,91 @@ public class CaesarCipher {
     }
 
     public static void desencriptarTodasCombinacoes(String cipherText) {
+        // As linhas são formatadas aqui e escritas por uma thread à parte, em lotes
+        try (SaidaResultados saida = SaidaResultados.assincrona(SaidaResultados.consola())) {
+            desencriptarTodasCombinacoes(cipherText, saida);
+        }
+    }
+
+    /**
+     * Apresenta todas as combinações de deslocamentos com salts numa saída à escolha
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @param saida Destino das linhas (não é fechado)
+     */
+    public static void desencriptarTodasCombinacoes(String cipherText, SaidaResultados saida) {
+        boolean filtrosAtivos = contexto.filtrosAtivos();
+
         // Validação
         if (cipherText.length() < 7) {
-            System.out.println("\n[ERRO] A mensagem deve ter pelo menos 7 caracteres!");
-            System.out.println("       (3 para Salt1 + 1 para mensagem + 3 para Salt2)");
+            saida.escreverComSeparadorSistema("\n[ERRO] A mensagem deve ter pelo menos 7 caracteres!");
+            saida.escreverComSeparadorSistema("       (3 para Salt1 + 1 para mensagem + 3 para Salt2)");
+            saida.flush();
             return;
         }
 
-        // Cabeçalho
-        System.out.println("\n" + "=".repeat(100));
-        System.out.println("TODAS AS COMBINAÇÕES DE DESENCRIPTAÇÃO COM SALTS");
-        System.out.println("=".repeat(100));
-        System.out.println("Mensagem cifrada: " + cipherText);
-        System.out.println("Total de combinações: 17,576 (26 x 26 x 26)");
+        // Cabeçalho (as linhas que eram println usam o separador do sistema; as que eram printf, '\n')
+        saida.escreverComSeparadorSistema("\n" + "=".repeat(100));
+        saida.escreverComSeparadorSistema("TODAS AS COMBINAÇÕES DE DESENCRIPTAÇÃO COM SALTS");
+        saida.escreverComSeparadorSistema("=".repeat(100));
+        saida.escreverComSeparadorSistema("Mensagem cifrada: " + cipherText);
+        saida.escreverComSeparadorSistema("Total de combinações: 17,576 (26 x 26 x 26)");
         if (filtrosAtivos) {
-            System.out.println("(apresentando apenas combinações cujo texto da mensagem cumpre os filtros)");
+            saida.escreverComSeparadorSistema("(apresentando apenas combinações cujo texto da mensagem cumpre os filtros)");
         } else {
-            System.out.println("(filtros desativados - todas as combinações serão mostradas)");
+            saida.escreverComSeparadorSistema("(filtros desativados - todas as combinações serão mostradas)");
         }
-        System.out.println("-".repeat(100));
-        System.out.printf("%-6s | %-18s | %-30s | %-18s\n",
-                "  Nº  ", "Salt1 [shift]", "Mensagem [shift]", "Salt2 [shift]");
-        System.out.println("-".repeat(100));
+        saida.escreverComSeparadorSistema("-".repeat(100));
+        saida.escrever(String.format("%-6s | %-18s | %-30s | %-18s",
+                "  Nº  ", "Salt1 [shift]", "Mensagem [shift]", "Salt2 [shift]"));
+        saida.escreverComSeparadorSistema("-".repeat(100));
 
         int contador = 0;
-        int totalTestado = 0;
+        int totalTestado = MotorPesquisaSalts.TOTAL_COMBINACOES;
 
-        // Loop triplo: testar todos os shifts
-        for (int shiftSalt1 = 0; shiftSalt1 < 26; shiftSalt1++) {
-            for (int shiftMsg = 0; shiftMsg < 26; shiftMsg++) {
-                for (int shiftSalt2 = 0; shiftSalt2 < 26; shiftSalt2++) {
-                    totalTestado++;
+        // A mensagem é desencriptada e filtrada uma vez por shift; os salts só são combinados com as aceites
+        List<MotorPesquisaSalts.ResultadoCombinacao> resultados =
+                new MotorPesquisaSalts(filtrosAtivos).pesquisar(cipherText);
 
-                    // Desencriptar com esta combinação
-                    String[] resultado = desencriptarComSalts(cipherText, shiftSalt1, shiftMsg, shiftSalt2);
+        for (MotorPesquisaSalts.ResultadoCombinacao resultado : resultados) {
+            contador++;
 
-                    if (filtrosAtivos && !textoValido(resultado[1])) {
-                        continue;
-                    }
-
-                    contador++;
-
-                    // Mostrar resultado
-                    System.out.printf("%6d | %-3s [shift=%2d] | %-20s [shift=%2d] | %-3s [shift=%2d]\n",
-                            contador,
-                            resultado[0], shiftSalt1,
-                            resultado[1], shiftMsg,
-                            resultado[2], shiftSalt2);
-                }
-            }
+            // Mostrar resultado
+            saida.escrever(String.format("%6d | %-3s [shift=%2d] | %-20s [shift=%2d] | %-3s [shift=%2d]",
+                    contador,
+                    resultado.salt1(), resultado.shiftSalt1(),
+                    resultado.mensagem(), resultado.shiftMensagem(),
+                    resultado.salt2(), resultado.shiftSalt2()));
         }
 
-        System.out.println("=".repeat(100));
+        saida.escreverComSeparadorSistema("=".repeat(100));
         if (filtrosAtivos) {
-            System.out.println("Total analisado: " + totalTestado + " combinações");
-            System.out.println("Total mostrado: " + contador + " combinações (após filtros)");
+            saida.escreverComSeparadorSistema("Total analisado: " + totalTestado + " combinações");
+            saida.escreverComSeparadorSistema("Total mostrado: " + contador + " combinações (após filtros)");
         } else {
-            System.out.println("Filtros desativados: " + contador + " combinações foram apresentadas.");
+            saida.escreverComSeparadorSistema("Filtros desativados: " + contador + " combinações foram apresentadas.");
         }
-        System.out.println("=".repeat(100));
+        saida.escreverComSeparadorSistema("=".repeat(100));
+        saida.flush();
     }
 
-    private static boolean textoValido(String texto) {
-        if (texto == null || texto.trim().isEmpty()) {
-            return false;
-        }
-
-        Matcher palavraMatcher = WORD_PATTERN.matcher(texto);
-        boolean temPalavraReal = false;
-        while (palavraMatcher.find()) {
-            String palavra = palavraMatcher.group();
-            if (VOWEL_PATTERN.matcher(palavra).find()) {
-                temPalavraReal = true;
-                break;
-            }
-        }
-        if (!temPalavraReal) {
-            return false;
-        }
-
-        if (!VOWEL_PATTERN.matcher(texto).find()) {
-            return false;
-        }
+    static boolean textoValido(String texto) {
+        return textoValido((CharSequence) texto);
+    }
 
-        if (IMPOSSIBLE_PATTERN.matcher(texto).find()) {
-            return false;
-        }
+    static boolean textoValido(CharSequence texto) {
+        long inicio = Metricas.inicio(Metricas.Etapa.FILTRO);
+        boolean valido = FiltroPlausibilidade.aceita(texto);
+        Metricas.fim(Metricas.Etapa.FILTRO, inicio);
+        Metricas.candidato(valido);
+        return valido;
+    }
 
-        return true;
+    static boolean textoValido(char[] texto, int inicio, int fim) {
+        long instante = Metricas.inicio(Metricas.Etapa.FILTRO);
+        boolean valido = FiltroPlausibilidade.aceita(texto, inicio, fim);
+        Metricas.fim(Metricas.Etapa.FILTRO, instante);
+        Metricas.candidato(valido);
+        return valido;
     }
 
 }
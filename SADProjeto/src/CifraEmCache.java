@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Operações de {@link ContextoCifra} com os resultados guardados numa {@link CacheResultados}
+ * A chave inclui a entrada e todos os parâmetros do contexto que influenciam o
+ * resultado, pelo que contextos diferentes nunca partilham entradas. As listas
+ * guardadas são imutáveis.
+ */
+public class CifraEmCache {
+
+    private final CacheResultados<List<?>> cache;
+
+    /**
+     * @param bytesMaximos Memória máxima estimada para os resultados
+     * @param ficheiro Ficheiro de persistência (carregado se existir), ou null
+     */
+    public CifraEmCache(long bytesMaximos, Path ficheiro) {
+        this.cache = new CacheResultados<>(bytesMaximos, CifraEmCache::peso, ficheiro,
+                List.of(ContextoCifra.Hipotese.class, MotorPesquisaSalts.ResultadoCombinacao.class,
+                        CaesarCipher.ResultadoDesencriptacao.class));
+    }
+
+    public List<ContextoCifra.Hipotese> desencriptarTodosDeslocamentos(ContextoCifra contexto, String text) {
+        return obter(chave("alinea1", contexto, text, 0, null, null, null),
+                () -> contexto.desencriptarTodosDeslocamentos(text));
+    }
+
+    public List<MotorPesquisaSalts.ResultadoCombinacao> pesquisarSalts(ContextoCifra contexto, String cipherText) {
+        return obter(chave("alinea2", contexto, cipherText, 0, null, null, null),
+                () -> contexto.pesquisarSalts(cipherText));
+    }
+
+    public List<CaesarCipher.ResultadoDesencriptacao> desencriptarHash(ContextoCifra contexto, String hashBase64,
+                                                                       int deslocacao, String pepper, String salt,
+                                                                       Boolean saltNoInicio) {
+        return obter(chave("hash", contexto, hashBase64, deslocacao, pepper, salt, saltNoInicio),
+                () -> contexto.desencriptarHash(hashBase64, deslocacao, pepper, salt, saltNoInicio));
+    }
+
+    public CacheResultados.Estatisticas estatisticas() {
+        return cache.estatisticas();
+    }
+
+    public void persistir() throws IOException {
+        cache.persistir();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> obter(CacheResultados.Chave chave, Supplier<List<T>> calcular) {
+        return (List<T>) cache.obter(chave, () -> List.copyOf(calcular.get()));
+    }
+
+    // As regras de salt e pepper e o índice entram na operação: raramente mudam e assim a chave fica com os campos pedidos
+    private static CacheResultados.Chave chave(String operacao, ContextoCifra contexto, String entrada,
+                                               int deslocacao, String pepper, String salt, Boolean saltNoInicio) {
+        String regras = operacao + '|' + contexto.caracteresSalt() + '|' + contexto.tamanhoMaximoSalt()
+                + '|' + contexto.digitosMaximosPepper() + '|' + (contexto.indice() == null ? "" : contexto.indice().ficheiro());
+        return new CacheResultados.Chave(regras, entrada, contexto.alfabetoSubstituicao(),
+                KernelDeslocamento.normalizar(deslocacao), pepper, salt, saltNoInicio, contexto.filtrosAtivos());
+    }
+
+    // Estimativa grosseira: cabeçalho de cada objeto mais 2 bytes por carácter das mensagens.
+    // As combinações da alínea 2 partilham a mensagem e os salts, pelo que cada String
+    // (por identidade) só é contada uma vez.
+    private static long peso(List<?> resultados) {
+        long total = 16L + 8L * resultados.size();
+        Set<String> contadas = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object r : resultados) {
+            total += 48;
+            if (r instanceof ContextoCifra.Hipotese h) {
+                total += peso(h.mensagem(), contadas);
+            } else if (r instanceof MotorPesquisaSalts.ResultadoCombinacao c) {
+                total += peso(c.salt1(), contadas) + peso(c.mensagem(), contadas) + peso(c.salt2(), contadas);
+            } else if (r instanceof CaesarCipher.ResultadoDesencriptacao d) {
+                total += peso(d.getMensagem(), contadas);
+            }
+        }
+        return total;
+    }
+
+    private static long peso(String s, Set<String> contadas) {
+        return contadas.add(s) ? 40L + 2L * s.length() : 0;
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Ordena candidatos de desencriptação por pontuação e devolve os K melhores
+ * Substitui os filtros por expressões regulares quando se pretende apenas a
+ * hipótese mais provável em primeiro lugar.
+ */
+public class ClassificadorCandidatos {
+
+    /**
+     * Candidato classificado
+     * @param shift Deslocamento que produziu o texto
+     * @param texto Texto desencriptado
+     * @param pontuacao Pontuação atribuída pelo modelo (maior é melhor)
+     */
+    public record Candidato(int shift, String texto, double pontuacao) {}
+
+    // Pior candidato no topo da fila; em empate perde o deslocamento maior
+    private static final Comparator<Pontuado> PIOR_PRIMEIRO =
+            Comparator.comparingDouble(Pontuado::pontuacao).thenComparing(Pontuado::shift, Comparator.reverseOrder());
+
+    private record Pontuado(int shift, double pontuacao) {}
+
+    private final ModeloPontuacao modelo;
+
+    public ClassificadorCandidatos() {
+        this(ModeloPontuacao.padrao());
+    }
+
+    public ClassificadorCandidatos(ModeloPontuacao modelo) {
+        this.modelo = modelo;
+    }
+
+    /**
+     * Classifica os 26 deslocamentos de um texto cifrado sem construir as 26 Strings
+     * O texto é codificado uma vez e cada deslocamento é obtido rodando os códigos.
+     * @param text Texto cifrado
+     * @param k Número máximo de candidatos a devolver
+     * @return Os K melhores candidatos, do mais provável para o menos provável
+     */
+    public List<Candidato> classificarDeslocamentos(String text, int k) {
+        double[] pontuacoes = pontuarDeslocamentos(text);
+        PriorityQueue<Pontuado> fila = new PriorityQueue<>(PIOR_PRIMEIRO);
+        for (int shift = 0; shift < 26; shift++) {
+            manterMelhores(fila, new Pontuado(shift, pontuacoes[shift]), k);
+        }
+
+        return construir(fila, shift -> CaesarCipher.desencriptarComDeslocamento(text, shift));
+    }
+
+    /**
+     * Ordena os 26 deslocamentos de um texto cifrado sem os desencriptar
+     * @param text Texto cifrado
+     * @return Deslocamentos do mais provável para o menos provável (em empate, o menor primeiro)
+     */
+    public int[] ordenarDeslocamentos(String text) {
+        return ordenar(pontuarDeslocamentos(text));
+    }
+
+    /**
+     * @param pontuacoes Pontuação de cada deslocamento
+     * @return Deslocamentos do mais provável para o menos provável (em empate, o menor primeiro)
+     */
+    static int[] ordenar(double[] pontuacoes) {
+        return IntStream.range(0, 26).boxed()
+                .sorted(Comparator.comparingDouble((Integer shift) -> pontuacoes[shift]).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Pontua os 26 deslocamentos sem os desencriptar
+     * O texto é codificado uma vez e cada deslocamento é obtido rodando os códigos.
+     * @param text Texto cifrado
+     * @return Pontuação de cada deslocamento (maior é melhor)
+     */
+    double[] pontuarDeslocamentos(String text) {
+        int n = text.length();
+        int[] cifrado = new int[n];
+        for (int i = 0; i < n; i++) {
+            cifrado[i] = KernelDeslocamento.codigoLetra(text.charAt(i));
+        }
+
+        int[] letras = new int[n];
+        double[] pontuacoes = new double[26];
+        for (int shift = 0; shift < 26; shift++) {
+            for (int i = 0; i < n; i++) {
+                int c = cifrado[i];
+                letras[i] = c == ModeloPontuacao.SEPARADOR ? c : (c - shift + 26) % 26;
+            }
+            pontuacoes[shift] = modelo.pontuar(letras, n);
+        }
+        return pontuacoes;
+    }
+
+    /**
+     * Classifica candidatos já desencriptados
+     * @param candidatos Candidatos indexados pelo deslocamento
+     * @param k Número máximo de candidatos a devolver
+     * @return Os K melhores candidatos, do mais provável para o menos provável
+     */
+    public List<Candidato> classificar(String[] candidatos, int k) {
+        PriorityQueue<Pontuado> fila = new PriorityQueue<>(PIOR_PRIMEIRO);
+        int[] letras = new int[0];
+        for (int shift = 0; shift < candidatos.length; shift++) {
+            String candidato = candidatos[shift];
+            if (letras.length < candidato.length()) {
+                letras = new int[candidato.length()];
+            }
+            int n = ModeloPontuacao.codificar(candidato, letras);
+            manterMelhores(fila, new Pontuado(shift, modelo.pontuar(letras, n)), k);
+        }
+        return construir(fila, shift -> candidatos[shift]);
+    }
+
+    private static void manterMelhores(PriorityQueue<Pontuado> fila, Pontuado pontuado, int k) {
+        if (k <= 0) {
+            return;
+        }
+        if (fila.size() < k) {
+            fila.add(pontuado);
+        } else if (PIOR_PRIMEIRO.compare(pontuado, fila.peek()) > 0) {
+            fila.poll();
+            fila.add(pontuado);
+        }
+    }
+
+    private static List<Candidato> construir(PriorityQueue<Pontuado> fila,
+                                             IntFunction<String> texto) {
+        List<Candidato> melhores = new ArrayList<>(fila.size());
+        while (!fila.isEmpty()) {
+            Pontuado p = fila.poll();
+            melhores.add(new Candidato(p.shift(), texto.apply(p.shift()), p.pontuacao()));
+        }
+        // A fila devolve do pior para o melhor
+        Collections.reverse(melhores);
+        return melhores;
+    }
+}
@@ -0,0 +1,535 @@
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Configuração imutável de desencriptação, segura para partilhar entre threads
+ * Guarda o estado dos filtros, o alfabeto de substituição (com as tabelas de tradução já
+ * calculado), os caracteres permitidos no salt, as regras do pepper e, opcionalmente, um
+ * índice de mensagens conhecidas e a avaliação por amostras para a Alínea 1. Nenhum método
+ * escreve na consola nem altera estado partilhado, pelo que a mesma instância pode
+ * servir pedidos concorrentes sem sincronização.
+ *
+ * Cada método com* devolve uma nova instância com a alteração pedida.
+ */
+public final class ContextoCifra {
+
+    public static final String CARACTERES_SALT_PADRAO = "!#$%&+-<=>@";
+    public static final int TAMANHO_MAXIMO_SALT_PADRAO = 4;
+    public static final int DIGITOS_MAXIMOS_PEPPER_PADRAO = 2;
+
+    /**
+     * Contexto com as regras do enunciado: filtros ativos, sem alfabeto de substituição
+     * A avaliação por amostras fica ligada, porque não altera os resultados.
+     */
+    public static final ContextoCifra PADRAO = new ContextoCifra(true, null,
+            CARACTERES_SALT_PADRAO, TAMANHO_MAXIMO_SALT_PADRAO, DIGITOS_MAXIMOS_PEPPER_PADRAO, null,
+            AvaliacaoAmostrada.PADRAO);
+
+    /**
+     * Hipótese de desencriptação de um Caesar simples
+     * @param shift Deslocamento
+     * @param mensagem Texto desencriptado
+     */
+    public record Hipotese(int shift, String mensagem) implements Serializable {}
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[256]);
+    // Hashes maiores são descodificadas num buffer próprio, para o de cada thread não ficar
+    // para sempre com o tamanho da maior hash que já viu
+    private static final int TAMANHO_MAXIMO_BUFFER = 8192;
+
+    private final boolean filtrosAtivos;
+    private final String alfabetoSubstituicao;
+    // César composto com a substituição inversa, uma tabela de 256 bytes por deslocamento
+    private final byte[][] tabelas;
+    private final String caracteresSalt;
+    private final int tamanhoMaximoSalt;
+    private final boolean[] tabelaSalt;
+    private final int digitosMaximosPepper;
+    private final IndiceImpressoes indice;
+    private final AvaliacaoAmostrada amostragem;
+
+    private ContextoCifra(boolean filtrosAtivos, String alfabetoSubstituicao, String caracteresSalt,
+                          int tamanhoMaximoSalt, int digitosMaximosPepper, IndiceImpressoes indice,
+                          AvaliacaoAmostrada amostragem) {
+        if (caracteresSalt == null || caracteresSalt.isEmpty()) {
+            throw new IllegalArgumentException("Indique pelo menos um caractere de salt");
+        }
+        if (tamanhoMaximoSalt <= 0) {
+            throw new IllegalArgumentException("O tamanho máximo do salt deve ser positivo");
+        }
+        if (digitosMaximosPepper <= 0) {
+            throw new IllegalArgumentException("O número máximo de dígitos do pepper deve ser positivo");
+        }
+        if (alfabetoSubstituicao != null && alfabetoSubstituicao.length() != 26) {
+            throw new IllegalArgumentException("O alfabeto de substituição deve ter 26 letras");
+        }
+
+        this.filtrosAtivos = filtrosAtivos;
+        this.alfabetoSubstituicao = alfabetoSubstituicao;
+        this.tabelas = alfabetoSubstituicao == null ? null : construirTabelas(alfabetoSubstituicao);
+        this.caracteresSalt = caracteresSalt;
+        this.tamanhoMaximoSalt = tamanhoMaximoSalt;
+        this.tabelaSalt = construirTabelaSalt(caracteresSalt);
+        this.digitosMaximosPepper = digitosMaximosPepper;
+        this.indice = indice;
+        this.amostragem = amostragem;
+    }
+
+    public ContextoCifra comFiltros(boolean ativos) {
+        return new ContextoCifra(ativos, alfabetoSubstituicao, caracteresSalt, tamanhoMaximoSalt,
+                digitosMaximosPepper, indice, amostragem);
+    }
+
+    public ContextoCifra comAlfabeto(String alfabeto) {
+        return new ContextoCifra(filtrosAtivos, alfabeto, caracteresSalt, tamanhoMaximoSalt,
+                digitosMaximosPepper, indice, amostragem);
+    }
+
+    public ContextoCifra comSalt(String caracteres, int tamanhoMaximo) {
+        return new ContextoCifra(filtrosAtivos, alfabetoSubstituicao, caracteres, tamanhoMaximo,
+                digitosMaximosPepper, indice, amostragem);
+    }
+
+    public ContextoCifra comPepper(int digitosMaximos) {
+        return new ContextoCifra(filtrosAtivos, alfabetoSubstituicao, caracteresSalt, tamanhoMaximoSalt,
+                digitosMaximos, indice, amostragem);
+    }
+
+    /**
+     * @param indice Índice de mensagens conhecidas consultado antes da força bruta da
+     *               Alínea 1, ou null para desligar
+     */
+    public ContextoCifra comIndice(IndiceImpressoes indice) {
+        return new ContextoCifra(filtrosAtivos, alfabetoSubstituicao, caracteresSalt, tamanhoMaximoSalt,
+                digitosMaximosPepper, indice, amostragem);
+    }
+
+    /**
+     * @param amostragem Rejeição antecipada dos deslocamentos da Alínea 1 em textos longos,
+     *                   ou null para filtrar sempre o texto completo
+     */
+    public ContextoCifra comAmostragem(AvaliacaoAmostrada amostragem) {
+        return new ContextoCifra(filtrosAtivos, alfabetoSubstituicao, caracteresSalt, tamanhoMaximoSalt,
+                digitosMaximosPepper, indice, amostragem);
+    }
+
+    public boolean filtrosAtivos() {
+        return filtrosAtivos;
+    }
+
+    public String alfabetoSubstituicao() {
+        return alfabetoSubstituicao;
+    }
+
+    public String caracteresSalt() {
+        return caracteresSalt;
+    }
+
+    public int tamanhoMaximoSalt() {
+        return tamanhoMaximoSalt;
+    }
+
+    public int digitosMaximosPepper() {
+        return digitosMaximosPepper;
+    }
+
+    public IndiceImpressoes indice() {
+        return indice;
+    }
+
+    public AvaliacaoAmostrada amostragem() {
+        return amostragem;
+    }
+
+    /**
+     * @param texto Texto candidato
+     * @return Verdadeiro se o texto deve ser apresentado com a configuração de filtros deste contexto
+     */
+    public boolean aceita(CharSequence texto) {
+        return !filtrosAtivos || CaesarCipher.textoValido(texto);
+    }
+
+    /**
+     * Alínea 1: desencripta os 26 deslocamentos e devolve os que passam nos filtros
+     * Com um índice, um texto cifrado a partir de uma mensagem do corpus devolve só essa
+     * mensagem (o corpus é confiável, não passa pelos filtros), sem força bruta.
+     * @param text Texto cifrado
+     * @return Hipóteses aceites, por ordem de deslocamento
+     */
+    public List<Hipotese> desencriptarTodosDeslocamentos(String text) {
+        List<Hipotese> conhecidas = procurarNoIndice(text);
+        if (!conhecidas.isEmpty()) {
+            return conhecidas;
+        }
+        if (filtrosAtivos && amostragem != null && amostragem.aplica(text.length())) {
+            return amostragem.avaliar(text);
+        }
+        String[] todos = CaesarCipher.desencriptarTodosDeslocamentos(text);
+        List<Hipotese> hipoteses = new ArrayList<>();
+        for (int shift = 0; shift < todos.length; shift++) {
+            if (aceita(todos[shift])) {
+                hipoteses.add(new Hipotese(shift, todos[shift]));
+            }
+        }
+        return hipoteses;
+    }
+
+    /**
+     * Alínea 1 preguiçosa: cada deslocamento só é desencriptado e filtrado quando é pedido
+     * Para obter apenas o primeiro texto válido use {@code candidatos(text).findFirst()};
+     * o stream pode ser paralelizado.
+     * @param text Texto cifrado
+     * @return Hipóteses aceites, por ordem de deslocamento
+     */
+    public Stream<Hipotese> candidatos(String text) {
+        List<Hipotese> conhecidas = procurarNoIndice(text);
+        if (!conhecidas.isEmpty()) {
+            return conhecidas.stream();
+        }
+        return candidatos(text, IntStream.range(0, 26).toArray());
+    }
+
+    /**
+     * Alínea 1 preguiçosa, da hipótese mais provável para a menos provável
+     * Os 26 deslocamentos são pontuados sobre códigos de letra, sem construir Strings;
+     * só os pedidos são desencriptados e filtrados.
+     * @param text Texto cifrado
+     * @param modelo Modelo de pontuação
+     * @return Hipóteses aceites, pela ordem da pontuação
+     */
+    public Stream<Hipotese> candidatos(String text, ModeloPontuacao modelo) {
+        List<Hipotese> conhecidas = procurarNoIndice(text);
+        if (!conhecidas.isEmpty()) {
+            return conhecidas.stream();
+        }
+        return candidatos(text, new ClassificadorCandidatos(modelo).ordenarDeslocamentos(text));
+    }
+
+    private Stream<Hipotese> candidatos(String text, int[] ordem) {
+        AvaliacaoAmostrada amostras = filtrosAtivos && amostragem != null && amostragem.aplica(text.length())
+                ? amostragem : null;
+        return StreamSupport.stream(new FluxoCandidatos.Deslocamentos(text, ordem, filtrosAtivos, amostras), false);
+    }
+
+    private List<Hipotese> procurarNoIndice(String text) {
+        return indice == null ? List.of() : indice.procurar(text);
+    }
+
+    /**
+     * Alínea 2: pesquisa todas as combinações de deslocamentos com salts
+     * @param cipherText Texto cifrado (Salt1 + mensagem + Salt2)
+     * @return Combinações aceites
+     */
+    public List<MotorPesquisaSalts.ResultadoCombinacao> pesquisarSalts(String cipherText) {
+        return new MotorPesquisaSalts(filtrosAtivos).pesquisar(cipherText);
+    }
+
+    /**
+     * Desencripta uma hash com o alfabeto de substituição deste contexto
+     * @param hashBase64 Hash em Base64
+     * @param deslocacao Deslocação de César
+     * @param pepper Pepper conhecido, ou vazio/null se desconhecido
+     * @param salt Salt conhecido, ou vazio/null se desconhecido
+     * @param saltNoInicio Posição do salt, ou null se desconhecida
+     * @return Combinações possíveis de mensagem, pepper e salt
+     */
+    public List<CaesarCipher.ResultadoDesencriptacao> desencriptarHash(String hashBase64,
+                                                                       int deslocacao,
+                                                                       String pepper,
+                                                                       String salt,
+                                                                       Boolean saltNoInicio) {
+        if (hashBase64 == null || hashBase64.isEmpty()) {
+            throw new IllegalArgumentException("Hash Base64 inválida");
+        }
+
+        if (tabelas == null) {
+            throw new IllegalArgumentException("O alfabeto de substituição deve ter 26 letras");
+        }
+
+        byte[] dados = buffer(DescodificadorBase64.tamanhoMaximo(hashBase64.length()));
+        int n = descodificar(hashBase64, dados);
+
+        long inicio = Metricas.inicio(Metricas.Etapa.HASH);
+        try {
+            traduzir(dados, n, deslocacao);
+            return desencriptarTexto(dados, n, pepper, salt, saltNoInicio);
+        } finally {
+            Metricas.fim(Metricas.Etapa.HASH, inicio);
+        }
+    }
+
+    /**
+     * Primeira etapa da hash: Base64 para bytes
+     * @param hashBase64 Hash em Base64
+     * @param dados Buffer com pelo menos {@link DescodificadorBase64#tamanhoMaximo} posições
+     * @return Número de bytes escritos
+     */
+    static int descodificar(String hashBase64, byte[] dados) {
+        if (hashBase64 == null || hashBase64.isEmpty()) {
+            throw new IllegalArgumentException("Hash Base64 inválida");
+        }
+        try {
+            return DescodificadorBase64.descodificar(hashBase64, dados);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Hash Base64 inválida", e);
+        }
+    }
+
+    /**
+     * Segunda etapa da hash: César e substituição inversa numa única passagem sobre os bytes
+     * @param dados Bytes descodificados, traduzidos no próprio buffer
+     * @param n Número de bytes
+     * @param deslocacao Deslocação de César
+     */
+    void traduzir(byte[] dados, int n, int deslocacao) {
+        if (tabelas == null) {
+            throw new IllegalArgumentException("O alfabeto de substituição deve ter 26 letras");
+        }
+        KernelDeslocamento.traduzir(dados, 0, n, dados, 0, tabelas[KernelDeslocamento.normalizar(deslocacao)]);
+    }
+
+    private static byte[] buffer(int tamanho) {
+        // Uma thread virtual (um pedido do servidor) não reutilizaria o buffer: só o alocaria
+        if (tamanho > TAMANHO_MAXIMO_BUFFER || Thread.currentThread().isVirtual()) {
+            return new byte[tamanho];
+        }
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < tamanho) {
+            buffer = new byte[Math.max(tamanho, Math.min(buffer.length * 2, TAMANHO_MAXIMO_BUFFER))];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    // O texto ocupa texto[0, n); pepper e salt são posições nesse buffer até se criarem os resultados
+    private List<CaesarCipher.ResultadoDesencriptacao> desencriptarTexto(byte[] texto,
+                                                                         int n,
+                                                                         String pepper,
+                                                                         String salt,
+                                                                         Boolean saltNoInicio) {
+        long inicioPepper = Metricas.inicio(Metricas.Etapa.PEPPER);
+        int digitos = determinarPepper(texto, n, pepper);
+        Metricas.fim(Metricas.Etapa.PEPPER, inicioPepper);
+        return separarSalt(texto, n, digitos, pepper, salt, saltNoInicio);
+    }
+
+    /**
+     * Última etapa da hash: cada pepper possível com as posições possíveis do salt
+     * @param texto Texto desencriptado em texto[0, n)
+     * @param digitos Resultado de {@link #determinarPepper}
+     * @return Combinações possíveis de mensagem, pepper e salt
+     */
+    List<CaesarCipher.ResultadoDesencriptacao> separarSalt(byte[] texto,
+                                                           int n,
+                                                           int digitos,
+                                                           String pepper,
+                                                           String salt,
+                                                           Boolean saltNoInicio) {
+        // Com pepper informado só há um tamanho possível; sem ele, cada prefixo de dígitos é candidato
+        boolean informado = pepper != null && !pepper.isEmpty();
+        int menorPepper = informado || digitos == 0 ? digitos : 1;
+        List<CaesarCipher.ResultadoDesencriptacao> resultados = new ArrayList<>();
+        int[] cortes = new int[4];
+
+        for (int tamanhoPepper = menorPepper; tamanhoPepper <= digitos; tamanhoPepper++) {
+            String pepperAtual = informado ? pepper : latin1(texto, 0, tamanhoPepper);
+            long inicioSalt = Metricas.inicio(Metricas.Etapa.SALT);
+            int opcoes = determinarSalt(texto, tamanhoPepper, n, salt, saltNoInicio, cortes);
+            Metricas.fim(Metricas.Etapa.SALT, inicioSalt);
+            for (int k = 0; k < opcoes; k++) {
+                int tamanhoSalt = cortes[2 * k];
+                boolean noInicio = cortes[2 * k + 1] != 0;
+                int inicioMensagem = noInicio ? tamanhoPepper + tamanhoSalt : tamanhoPepper;
+                int fimMensagem = noInicio ? n : n - tamanhoSalt;
+                String saltAtual = tamanhoSalt == 0 ? ""
+                        : latin1(texto, noInicio ? tamanhoPepper : fimMensagem, tamanhoSalt);
+                resultados.add(new CaesarCipher.ResultadoDesencriptacao(
+                        latin1(texto, inicioMensagem, fimMensagem - inicioMensagem), pepperAtual, saltAtual, noInicio));
+            }
+        }
+
+        if (resultados.isEmpty()) {
+            throw new IllegalArgumentException("Não foi possível determinar Pepper/Salt válidos para o texto desencriptado");
+        }
+
+        return resultados;
+    }
+
+    private static String latin1(byte[] texto, int inicio, int comprimento) {
+        return comprimento == 0 ? "" : new String(texto, inicio, comprimento, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[][] construirTabelas(String alfabetoSubstituicao) {
+        byte[][] tabelas = new byte[26][];
+        for (int shift = 0; shift < 26; shift++) {
+            tabelas[shift] = DesencriptacaoFicheiros.construirTabela(shift, alfabetoSubstituicao);
+        }
+        return tabelas;
+    }
+
+    private static boolean[] construirTabelaSalt(String caracteresSalt) {
+        boolean[] tabela = new boolean[256];
+        for (int i = 0; i < caracteresSalt.length(); i++) {
+            char c = caracteresSalt.charAt(i);
+            if (c < 256) {
+                tabela[c] = true;
+            }
+        }
+        return tabela;
+    }
+
+    /**
+     * @return Número máximo de dígitos do pepper no início do texto (o tamanho do pepper informado, se houver)
+     */
+    int determinarPepper(byte[] texto, int n, String pepperInformado) {
+        if (pepperInformado != null && !pepperInformado.isEmpty()) {
+            if (!pepperValido(pepperInformado)) {
+                throw new IllegalArgumentException("Pepper inválido. Use " + descricaoDigitosPepper() + ".");
+            }
+            if (!comecaCom(texto, 0, n, pepperInformado)) {
+                throw new IllegalArgumentException("Pepper fornecido não corresponde ao texto desencriptado");
+            }
+            return pepperInformado.length();
+        }
+
+        int max = Math.min(digitosMaximosPepper, n);
+        int len = 0;
+        while (len < max && texto[len] >= '0' && texto[len] <= '9') {
+            len++;
+        }
+        return len;
+    }
+
+    // Equivalente a \d{1,digitosMaximosPepper}
+    private boolean pepperValido(String pepper) {
+        if (pepper.length() > digitosMaximosPepper) {
+            return false;
+        }
+        for (int i = 0; i < pepper.length(); i++) {
+            char c = pepper.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String descricaoDigitosPepper() {
+        return switch (digitosMaximosPepper) {
+            case 1 -> "1 dígito";
+            case 2 -> "1 ou 2 dígitos";
+            default -> "1 a " + digitosMaximosPepper + " dígitos";
+        };
+    }
+
+    /**
+     * Determina as posições possíveis do salt em texto[inicio, fim)
+     * @param cortes Recebe pares (tamanho do salt, 1 se estiver no início)
+     * @return Número de pares escritos (1 ou 2)
+     */
+    private int determinarSalt(byte[] texto,
+                               int inicio,
+                               int fim,
+                               String saltInformado,
+                               Boolean saltNoInicioInformado,
+                               int[] cortes) {
+        int opcoes = 0;
+
+        if (saltInformado != null && !saltInformado.isEmpty()) {
+            if (!saltValido(saltInformado)) {
+                throw new IllegalArgumentException("Salt inválido. Use apenas caracteres permitidos e máximo "
+                        + tamanhoMaximoSalt + ".");
+            }
+
+            int tamanho = saltInformado.length();
+            if (Boolean.TRUE.equals(saltNoInicioInformado)) {
+                if (!comecaCom(texto, inicio, fim, saltInformado)) {
+                    throw new IllegalArgumentException("Salt fornecido não corresponde ao início do texto");
+                }
+                opcoes = corte(cortes, opcoes, tamanho, true);
+            } else if (Boolean.FALSE.equals(saltNoInicioInformado)) {
+                if (!terminaCom(texto, inicio, fim, saltInformado)) {
+                    throw new IllegalArgumentException("Salt fornecido não corresponde ao fim do texto");
+                }
+                opcoes = corte(cortes, opcoes, tamanho, false);
+            } else {
+                if (comecaCom(texto, inicio, fim, saltInformado)) {
+                    opcoes = corte(cortes, opcoes, tamanho, true);
+                }
+                if (terminaCom(texto, inicio, fim, saltInformado)) {
+                    opcoes = corte(cortes, opcoes, tamanho, false);
+                }
+                if (opcoes == 0) {
+                    throw new IllegalArgumentException("Salt fornecido não corresponde ao início nem ao fim do texto");
+                }
+            }
+
+            return opcoes;
+        }
+
+        int limite = Math.min(tamanhoMaximoSalt, fim - inicio);
+        int prefixo = 0;
+        while (prefixo < limite && tabelaSalt[texto[inicio + prefixo] & 0xFF]) {
+            prefixo++;
+        }
+        if (prefixo > 0) {
+            opcoes = corte(cortes, opcoes, prefixo, true);
+        }
+
+        int sufixo = 0;
+        while (sufixo < limite && tabelaSalt[texto[fim - 1 - sufixo] & 0xFF]) {
+            sufixo++;
+        }
+        if (sufixo > 0) {
+            opcoes = corte(cortes, opcoes, sufixo, false);
+        }
+
+        if (opcoes == 0) {
+            opcoes = corte(cortes, opcoes, 0, false);
+        }
+        return opcoes;
+    }
+
+    private static int corte(int[] cortes, int opcoes, int tamanhoSalt, boolean noInicio) {
+        cortes[2 * opcoes] = tamanhoSalt;
+        cortes[2 * opcoes + 1] = noInicio ? 1 : 0;
+        return opcoes + 1;
+    }
+
+    // Equivalente a [caracteresSalt]{1,tamanhoMaximoSalt}, contado por code points
+    private boolean saltValido(String salt) {
+        int quantidade = 0;
+        for (int i = 0; i < salt.length(); ) {
+            int cp = salt.codePointAt(i);
+            if (caracteresSalt.indexOf(cp) < 0 || ++quantidade > tamanhoMaximoSalt) {
+                return false;
+            }
+            i += Character.charCount(cp);
+        }
+        return true;
+    }
+
+    private static boolean comecaCom(byte[] texto, int inicio, int fim, String prefixo) {
+        int m = prefixo.length();
+        if (m > fim - inicio) {
+            return false;
+        }
+        for (int i = 0; i < m; i++) {
+            if ((texto[inicio + i] & 0xFF) != prefixo.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean terminaCom(byte[] texto, int inicio, int fim, String sufixo) {
+        int m = sufixo.length();
+        return m <= fim - inicio && comecaCom(texto, fim - m, fim, sufixo);
+    }
+}
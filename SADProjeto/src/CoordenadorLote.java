@@ -0,0 +1,534 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modo de lote distribuído por vários processos: coordenador
+ *
+ * A entrada é dividida em fragmentos de linhas consecutivas que os trabalhadores
+ * ({@link TrabalhadorLote}, processos Java nesta ou noutras máquinas) pedem por TCP à
+ * medida que ficam livres, pelo que um trabalhador mais rápido recebe mais trabalho.
+ * Cada thread de um trabalhador abre a sua ligação e processa um fragmento de cada vez.
+ * Os resultados são escritos pela ordem da entrada, com o mesmo conteúdo do modo local.
+ *
+ * Um fragmento de um trabalhador que termina ou perde a ligação volta para o início da
+ * fila. Quando já não há fragmentos por enviar, uma ligação livre recebe também uma
+ * cópia de um fragmento que está a demorar bastante mais do que a média (trabalhador
+ * lento); fica o primeiro resultado que chegar.
+ *
+ * Utilização (ver também {@link ProcessamentoLote}):
+ *   java Main --lote ENTRADA --modo MODO [opções do lote] --trabalhadores N
+ *             [--threads N] [--porta P] [--fragmento 256] [--token SEGREDO]
+ * Com --trabalhadores N são lançados N processos locais, que repartem entre si as
+ * --threads ligações (por omissão, uma por processador).
+ * Com --porta o coordenador aceita ligações de qualquer interface na porta P; noutras
+ * máquinas, com as mesmas classes no classpath:
+ *   java Main --trabalhador HOST:P --token SEGREDO [--threads N]
+ * Sem --porta escuta apenas em localhost, numa porta livre. O token (gerado se não for
+ * indicado) autentica os trabalhadores, mas o protocolo não é cifrado: use-o apenas em
+ * redes de confiança. Ficheiros indicados nas opções (--indice) têm de existir no
+ * mesmo caminho em todas as máquinas.
+ *
+ * Protocolo (DataOutputStream; textos em UTF-8 precedidos do comprimento, até 64 MiB):
+ *   trabalhador: MAGICO, token (até 256 bytes, nos primeiros 10 s da ligação)
+ *   coordenador: número de argumentos, argumentos do lote
+ *   coordenador: id, primeira linha, número de linhas, linhas  (id = FIM para terminar)
+ *   trabalhador: id, resultados formatados
+ */
+public class CoordenadorLote {
+
+    static final int TAMANHO_FRAGMENTO_PADRAO = 256;
+    static final int MAGICO = 0x53414431;  // "SAD1"
+    static final long FIM = -1;
+    static final String VARIAVEL_TOKEN = "SAD_TOKEN";
+
+    // Fragmentos lidos e ainda não escritos, por ligação ativa (no mínimo para 4 ligações)
+    private static final int FRAGMENTOS_POR_LIGACAO = 4;
+    // Um fragmento é lento se demorar FATOR_LENTIDAO vezes a média, e pelo menos 2 s
+    private static final int FATOR_LENTIDAO = 4;
+    private static final long LENTIDAO_MINIMA_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final int TENTATIVAS_MAXIMAS = 3;
+    private static final long ESPERA_TRABALHADORES_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // A identificação é lida antes de o token ser verificado: tamanho e tempo limitados
+    static final int TAMANHO_MAXIMO_TOKEN = 256;
+    private static final int ESPERA_IDENTIFICACAO_MILIS = 10_000;
+    // Maior texto aceite numa mensagem (uma linha ou os resultados de um fragmento)
+    static final int TAMANHO_MAXIMO_TEXTO = 64 * 1024 * 1024;
+
+    // Opções só do coordenador, não enviadas aos trabalhadores (com o número de valores)
+    private static final Map<String, Integer> OPCOES_COORDENADOR = Map.of(
+            "--lote", 1, "--saida", 1, "--metricas", 0, "--threads", 1,
+            "--trabalhadores", 1, "--porta", 1, "--fragmento", 1, "--token", 1);
+
+    private final ProcessamentoLote.Opcoes opcoes;
+    private final List<String> argumentosTrabalhador;
+    private final String token;
+    private final Fila fila = new Fila();
+    private final Set<Socket> ligacoes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param opcoes Opções do lote
+     * @param args Argumentos da linha de comandos, reenviados aos trabalhadores sem as
+     *             opções que só dizem respeito ao coordenador
+     */
+    public CoordenadorLote(ProcessamentoLote.Opcoes opcoes, String[] args) {
+        this.opcoes = opcoes;
+        this.argumentosTrabalhador = argumentosTrabalhador(args);
+        this.token = opcoes.token() != null ? opcoes.token() : gerarToken();
+        validarToken(token);
+    }
+
+    /**
+     * @param token Token dos trabalhadores
+     * @throws IllegalArgumentException Se o token tiver mais de 256 bytes em UTF-8
+     */
+    static void validarToken(String token) {
+        if (token.getBytes(StandardCharsets.UTF_8).length > TAMANHO_MAXIMO_TOKEN) {
+            throw new IllegalArgumentException("O token não pode ter mais de " + TAMANHO_MAXIMO_TOKEN + " bytes");
+        }
+    }
+
+    /**
+     * Distribui as linhas pelos trabalhadores e escreve os resultados pela ordem de entrada
+     * @param reader Entrada, uma linha por pedido
+     * @param writer Saída formatada
+     * @return Número de linhas processadas
+     * @throws IOException Em falhas de leitura/escrita, se um fragmento falhar em vários
+     *                     trabalhadores ou se não houver trabalhadores ligados durante 30 s
+     */
+    public long processar(BufferedReader reader, Writer writer) throws IOException {
+        ServerSocket servidor = opcoes.porta() != null
+                ? new ServerSocket(opcoes.porta())
+                : new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ExecutorService atendimento = Executors.newVirtualThreadPerTaskExecutor();
+        Thread aceitacao = new Thread(() -> aceitar(servidor, atendimento), "coordenador-ligacoes");
+        aceitacao.setDaemon(true);
+        aceitacao.start();
+        List<Process> processos = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < opcoes.trabalhadores(); i++) {
+                processos.add(lancar(servidor.getLocalPort()));
+            }
+            if (opcoes.porta() != null) {
+                System.err.println("À espera de trabalhadores na porta " + servidor.getLocalPort() + ".");
+            }
+            long linhas = distribuir(reader, writer);
+            if (opcoes.metricas()) {
+                System.err.println(fila.resumo());
+            }
+            return linhas;
+        } finally {
+            fila.encerrar();
+            servidor.close();
+            atendimento.shutdown();
+            try {
+                // As ligações livres enviam FIM logo; as presas num trabalhador parado são cortadas
+                if (!atendimento.awaitTermination(1, TimeUnit.SECONDS)) {
+                    for (Socket socket : ligacoes) {
+                        socket.close();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Process processo : processos) {
+                try {
+                    if (!processo.waitFor(5, TimeUnit.SECONDS)) {
+                        processo.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    processo.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    private long distribuir(BufferedReader reader, Writer writer) throws IOException {
+        writer.write(criarCabecalho());
+        long lidas = 0;
+        long fragmentos = 0;
+        List<String> linhas = new ArrayList<>(opcoes.tamanhoFragmento());
+        String linha;
+        while ((linha = reader.readLine()) != null) {
+            linhas.add(linha);
+            lidas++;
+            if (linhas.size() == opcoes.tamanhoFragmento()) {
+                adicionar(writer, new Fragmento(fragmentos++, lidas - linhas.size() + 1, linhas));
+                linhas = new ArrayList<>(opcoes.tamanhoFragmento());
+            }
+        }
+        if (!linhas.isEmpty()) {
+            adicionar(writer, new Fragmento(fragmentos++, lidas - linhas.size() + 1, linhas));
+        }
+        fila.fecharEntrada();
+        while (fila.escritos() < fragmentos) {
+            escrever(writer, fila.esperarProntos());
+        }
+        writer.flush();
+        return lidas;
+    }
+
+    // O número de fragmentos por escrever é limitado, pelo que a memória não cresce com o lote
+    private void adicionar(Writer writer, Fragmento fragmento) throws IOException {
+        while (fila.cheia()) {
+            escrever(writer, fila.esperarProntos());
+        }
+        fila.adicionar(fragmento);
+        escrever(writer, fila.prontos());
+    }
+
+    private static void escrever(Writer writer, List<String> textos) throws IOException {
+        for (String texto : textos) {
+            writer.write(texto);
+        }
+    }
+
+    // O cabeçalho CSV depende só do modo e do formato; não precisa do índice nem dos dicionários
+    private String criarCabecalho() {
+        return new ProcessamentoLote(opcoes, null).cabecalho();
+    }
+
+    private Process lancar(int porta) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        int threads = Math.max(1, opcoes.threads() / opcoes.trabalhadores());
+        ProcessBuilder construtor = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "Main", "--trabalhador", "127.0.0.1:" + porta, "--threads", Integer.toString(threads))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        // Pelo ambiente, para o token não aparecer na lista de processos
+        construtor.environment().put(VARIAVEL_TOKEN, token);
+        return construtor.start();
+    }
+
+    private void aceitar(ServerSocket servidor, ExecutorService atendimento) {
+        while (!servidor.isClosed()) {
+            try {
+                Socket socket = servidor.accept();
+                atendimento.execute(() -> atender(socket));
+            } catch (IOException e) {
+                // Servidor fechado no fim do lote
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        ligacoes.add(socket);
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            // Um cliente que não se identifica a tempo não prende a ligação
+            socket.setSoTimeout(ESPERA_IDENTIFICACAO_MILIS);
+            if (in.readInt() != MAGICO || !MessageDigest.isEqual(
+                    lerTexto(in, TAMANHO_MAXIMO_TOKEN).getBytes(StandardCharsets.UTF_8),
+                    token.getBytes(StandardCharsets.UTF_8))) {
+                return;
+            }
+            // Um fragmento pode demorar; os trabalhadores lentos são tratados pela fila
+            socket.setSoTimeout(0);
+            out.writeInt(argumentosTrabalhador.size());
+            for (String argumento : argumentosTrabalhador) {
+                escreverTexto(out, argumento);
+            }
+            out.flush();
+
+            fila.ligada();
+            try {
+                Fragmento fragmento;
+                while ((fragmento = fila.proximo()) != null) {
+                    enviar(fragmento, in, out);
+                }
+                out.writeLong(FIM);
+                out.flush();
+            } finally {
+                fila.desligada();
+            }
+        } catch (IOException e) {
+            // Ligação perdida: o fragmento em curso já voltou para a fila
+        } finally {
+            ligacoes.remove(socket);
+        }
+    }
+
+    private void enviar(Fragmento fragmento, DataInputStream in, DataOutputStream out) throws IOException {
+        boolean concluido = false;
+        try {
+            long inicio = System.nanoTime();
+            out.writeLong(fragmento.id);
+            out.writeLong(fragmento.primeiraLinha);
+            out.writeInt(fragmento.linhas.size());
+            for (String linha : fragmento.linhas) {
+                escreverTexto(out, linha);
+            }
+            out.flush();
+
+            long id = in.readLong();
+            String resultado = lerTexto(in);
+            if (id != fragmento.id) {
+                throw new IOException("Resposta inesperada do trabalhador");
+            }
+            fila.concluir(fragmento, resultado, System.nanoTime() - inicio);
+            concluido = true;
+        } finally {
+            if (!concluido) {
+                fila.devolver(fragmento);
+            }
+        }
+    }
+
+    static void escreverTexto(DataOutputStream out, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > TAMANHO_MAXIMO_TEXTO) {
+            throw new IOException("Texto demasiado grande para enviar: " + bytes.length + " bytes");
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String lerTexto(DataInputStream in) throws IOException {
+        return lerTexto(in, TAMANHO_MAXIMO_TEXTO);
+    }
+
+    /**
+     * @param maximo Maior comprimento aceite, verificado antes de reservar o buffer
+     */
+    static String lerTexto(DataInputStream in, int maximo) throws IOException {
+        int tamanho = in.readInt();
+        if (tamanho < 0 || tamanho > maximo) {
+            throw new IOException("Comprimento de texto inválido: " + tamanho);
+        }
+        // readFully falha numa ligação cortada a meio, em vez de devolver um texto incompleto
+        byte[] bytes = new byte[tamanho];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> argumentosTrabalhador(String[] args) {
+        List<String> argumentos = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            Integer valores = OPCOES_COORDENADOR.get(args[i]);
+            if (valores == null) {
+                argumentos.add(args[i]);
+            } else {
+                i += valores;
+            }
+        }
+        return argumentos;
+    }
+
+    private static String gerarToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static final class Fragmento {
+        final long id;
+        final long primeiraLinha;
+        final List<String> linhas;
+        long enviadoEm;
+        int copias;
+        int falhas;
+
+        Fragmento(long id, long primeiraLinha, List<String> linhas) {
+            this.id = id;
+            this.primeiraLinha = primeiraLinha;
+            this.linhas = linhas;
+        }
+    }
+
+    /**
+     * Estado partilhado entre a leitura, as ligações e a escrita (protegido pelo monitor)
+     */
+    private static final class Fila {
+        private final ArrayDeque<Fragmento> porEnviar = new ArrayDeque<>();
+        private final Map<Long, Fragmento> emCurso = new HashMap<>();
+        private final Map<Long, String> concluidos = new HashMap<>();
+        private long proximoAEscrever;
+        private boolean entradaFechada;
+        private boolean encerrada;
+        private int ligadas;
+        private long semLigacoesDesde = System.nanoTime();
+        private long nanosConcluidos;
+        private long numeroConcluidos;
+        private long reenvios;
+        private long copiasLentos;
+        private String falha;
+
+        synchronized boolean cheia() {
+            long porEscrever = porEnviar.size() + emCurso.size() + concluidos.size();
+            return porEscrever >= (long) FRAGMENTOS_POR_LIGACAO * Math.max(4, ligadas);
+        }
+
+        synchronized void adicionar(Fragmento fragmento) {
+            porEnviar.add(fragmento);
+            notifyAll();
+        }
+
+        synchronized void fecharEntrada() {
+            entradaFechada = true;
+            notifyAll();
+        }
+
+        synchronized void encerrar() {
+            encerrada = true;
+            notifyAll();
+        }
+
+        synchronized long escritos() {
+            return proximoAEscrever;
+        }
+
+        /**
+         * @return Resultados que já podem ser escritos pela ordem de entrada (pode ser vazia)
+         */
+        synchronized List<String> prontos() throws IOException {
+            if (falha != null) {
+                throw new IOException(falha);
+            }
+            List<String> prontos = new ArrayList<>();
+            String texto;
+            while ((texto = concluidos.remove(proximoAEscrever)) != null) {
+                prontos.add(texto);
+                proximoAEscrever++;
+            }
+            return prontos;
+        }
+
+        /**
+         * Espera pelo próximo resultado na ordem de entrada
+         */
+        synchronized List<String> esperarProntos() throws IOException {
+            while (true) {
+                List<String> prontos = prontos();
+                if (!prontos.isEmpty()) {
+                    return prontos;
+                }
+                if (ligadas == 0 && System.nanoTime() - semLigacoesDesde > ESPERA_TRABALHADORES_NANOS) {
+                    throw new IOException("Nenhum trabalhador ligado nos últimos "
+                            + TimeUnit.NANOSECONDS.toSeconds(ESPERA_TRABALHADORES_NANOS) + " s");
+                }
+                aguardar();
+            }
+        }
+
+        /**
+         * @return Fragmento a enviar, ou null quando não há mais trabalho
+         */
+        synchronized Fragmento proximo() {
+            while (!encerrada && falha == null) {
+                Fragmento fragmento = porEnviar.poll();
+                if (fragmento == null) {
+                    if (entradaFechada && emCurso.isEmpty()) {
+                        return null;
+                    }
+                    fragmento = lento();
+                    if (fragmento != null) {
+                        copiasLentos++;
+                    }
+                }
+                if (fragmento != null) {
+                    if (fragmento.copias == 0) {
+                        fragmento.enviadoEm = System.nanoTime();
+                    }
+                    fragmento.copias++;
+                    emCurso.put(fragmento.id, fragmento);
+                    return fragmento;
+                }
+                aguardar();
+            }
+            return null;
+        }
+
+        // Fragmento com uma única cópia em curso há mais tempo do que o limite de lentidão
+        private Fragmento lento() {
+            long media = numeroConcluidos == 0 ? 0 : nanosConcluidos / numeroConcluidos;
+            long limite = Math.max(LENTIDAO_MINIMA_NANOS, FATOR_LENTIDAO * media);
+            long agora = System.nanoTime();
+            for (Fragmento fragmento : emCurso.values()) {
+                if (fragmento.copias == 1 && agora - fragmento.enviadoEm > limite) {
+                    return fragmento;
+                }
+            }
+            return null;
+        }
+
+        synchronized void concluir(Fragmento fragmento, String resultado, long nanos) {
+            fragmento.copias--;
+            // Com cópias, só conta o primeiro resultado
+            if (emCurso.remove(fragmento.id) != null) {
+                concluidos.put(fragmento.id, resultado);
+                nanosConcluidos += nanos;
+                numeroConcluidos++;
+                notifyAll();
+            }
+        }
+
+        synchronized void devolver(Fragmento fragmento) {
+            fragmento.copias--;
+            if (fragmento.copias > 0 || emCurso.remove(fragmento.id) == null) {
+                // Outra cópia continua em curso, ou o resultado já chegou
+                return;
+            }
+            if (++fragmento.falhas >= TENTATIVAS_MAXIMAS) {
+                falha = "As linhas " + fragmento.primeiraLinha + " a "
+                        + (fragmento.primeiraLinha + fragmento.linhas.size() - 1)
+                        + " falharam em " + TENTATIVAS_MAXIMAS + " trabalhadores";
+            } else {
+                reenvios++;
+                porEnviar.addFirst(fragmento);
+            }
+            notifyAll();
+        }
+
+        synchronized void ligada() {
+            ligadas++;
+            notifyAll();
+        }
+
+        synchronized void desligada() {
+            if (--ligadas == 0) {
+                semLigacoesDesde = System.nanoTime();
+            }
+            notifyAll();
+        }
+
+        synchronized String resumo() {
+            return "Distribuído: " + proximoAEscrever + " fragmentos, " + reenvios
+                    + " reenviados após falha, " + copiasLentos + " cópias para trabalhadores lentos.";
+        }
+
+        // Acorda periodicamente para rever fragmentos lentos e ligações em falta
+        private void aguardar() {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                encerrada = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+/**
+ * Descodificação Base64 diretamente para um buffer fornecido por quem chama
+ *
+ * Aceita exatamente o mesmo que {@code Base64.getDecoder().decode(String)} (alfabeto
+ * RFC 4648 básico, padding opcional, nada depois do padding), mas lê os caracteres
+ * da String sem a copiar para um byte[] intermédio e escreve num buffer reutilizável.
+ */
+final class DescodificadorBase64 {
+
+    private static final int PADDING = -2;
+    private static final int[] VALORES = new int[256];
+
+    static {
+        Arrays.fill(VALORES, -1);
+        String alfabeto = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alfabeto.length(); i++) {
+            VALORES[alfabeto.charAt(i)] = i;
+        }
+        VALORES['='] = PADDING;
+    }
+
+    private DescodificadorBase64() {
+    }
+
+    /**
+     * @param comprimento Comprimento do texto em Base64
+     * @return Tamanho de buffer suficiente para o descodificar
+     */
+    static int tamanhoMaximo(int comprimento) {
+        return (comprimento / 4) * 3 + 2;
+    }
+
+    /**
+     * @param base64 Texto em Base64
+     * @param destino Buffer com pelo menos {@link #tamanhoMaximo(int)} bytes
+     * @return Número de bytes escritos no início do buffer
+     * @throws IllegalArgumentException Se o texto não for Base64 válido
+     */
+    static int descodificar(String base64, byte[] destino) {
+        int n = base64.length();
+        int i = 0;
+        int d = 0;
+        int bits = 0;
+        int shift = 18;
+
+        while (i < n) {
+            char c = base64.charAt(i++);
+            int valor = c < 256 ? VALORES[c] : -1;
+            if (valor < 0) {
+                if (valor == PADDING) {
+                    // Só "xx==" e "xxx=" fecham um bloco
+                    if (shift == 18 || (shift == 6 && (i == n || base64.charAt(i++) != '='))) {
+                        throw new IllegalArgumentException("Padding Base64 inválido");
+                    }
+                    break;
+                }
+                throw new IllegalArgumentException("Caractere Base64 inválido na posição " + (i - 1));
+            }
+            bits |= valor << shift;
+            shift -= 6;
+            if (shift < 0) {
+                destino[d++] = (byte) (bits >> 16);
+                destino[d++] = (byte) (bits >> 8);
+                destino[d++] = (byte) bits;
+                shift = 18;
+                bits = 0;
+            }
+        }
+
+        if (shift == 6) {
+            destino[d++] = (byte) (bits >> 16);
+        } else if (shift == 0) {
+            destino[d++] = (byte) (bits >> 16);
+            destino[d++] = (byte) (bits >> 8);
+        } else if (shift == 12) {
+            throw new IllegalArgumentException("O último bloco Base64 está incompleto");
+        }
+        if (i < n) {
+            throw new IllegalArgumentException("Caracteres depois do padding Base64");
+        }
+        return d;
+    }
+}
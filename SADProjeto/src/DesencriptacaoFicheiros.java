@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Desencriptação de ficheiros grandes em streaming
+ * O ficheiro de entrada é mapeado em memória por blocos, cada bloco é copiado para um
+ * buffer reutilizável, transformado no próprio buffer e escrito através de um canal.
+ * O uso de memória é constante, independentemente do tamanho do ficheiro.
+ *
+ * Só as letras ASCII são desencriptadas e os restantes bytes são copiados sem alteração, pelo
+ * que um ficheiro UTF-8 (com as sequências multibyte dos acentos) continua a ser UTF-8 válido.
+ */
+public final class DesencriptacaoFicheiros {
+
+    public static final int TAMANHO_BLOCO_PADRAO = 8 * 1024 * 1024;
+
+    private DesencriptacaoFicheiros() {
+    }
+
+    /**
+     * Desencripta um ficheiro com um deslocamento de César
+     * @param entrada Ficheiro cifrado
+     * @param saida Ficheiro de destino (é criado ou substituído)
+     * @param deslocacao Valor do deslocamento
+     * @return Número de bytes processados
+     */
+    public static long desencriptar(Path entrada, Path saida, int deslocacao) throws IOException {
+        return desencriptar(entrada, saida, deslocacao, null, TAMANHO_BLOCO_PADRAO);
+    }
+
+    /**
+     * Desencripta um ficheiro com um deslocamento de César e, opcionalmente, desfaz a substituição
+     * @param entrada Ficheiro cifrado
+     * @param saida Ficheiro de destino (é criado ou substituído; não pode ser o ficheiro cifrado)
+     * @param deslocacao Valor do deslocamento
+     * @param alfabetoSubstituicao Alfabeto de substituição de 26 letras, ou null se não houver
+     * @param tamanhoBloco Número de bytes processados de cada vez
+     * @return Número de bytes processados
+     */
+    public static long desencriptar(Path entrada, Path saida, int deslocacao,
+                                    String alfabetoSubstituicao, int tamanhoBloco) throws IOException {
+        if (tamanhoBloco <= 0) {
+            throw new IllegalArgumentException("O tamanho do bloco deve ser positivo");
+        }
+        // O destino é truncado antes de a entrada ser lida
+        if (mesmoFicheiro(entrada, saida)) {
+            throw new IllegalArgumentException("O ficheiro de destino não pode ser o ficheiro cifrado");
+        }
+        byte[] tabela = construirTabela(deslocacao, alfabetoSubstituicao);
+        // Os bytes fora do ASCII são copiados, para não partir as sequências UTF-8
+        for (int i = 128; i < 256; i++) {
+            tabela[i] = (byte) i;
+        }
+
+        try (FileChannel in = FileChannel.open(entrada, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(saida, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long tamanho = in.size();
+            byte[] bloco = new byte[(int) Math.min(tamanhoBloco, Math.max(tamanho, 1))];
+            ByteBuffer escrita = ByteBuffer.wrap(bloco);
+
+            for (long posicao = 0; posicao < tamanho; posicao += bloco.length) {
+                int n = (int) Math.min(bloco.length, tamanho - posicao);
+                MappedByteBuffer mapa = in.map(FileChannel.MapMode.READ_ONLY, posicao, n);
+                mapa.get(bloco, 0, n);
+
+                // César e substituição inversa numa única tabela, aplicada no próprio buffer
+                KernelDeslocamento.traduzir(bloco, 0, n, bloco, 0, tabela);
+
+                escrita.clear().limit(n);
+                while (escrita.hasRemaining()) {
+                    out.write(escrita);
+                }
+            }
+            return tamanho;
+        }
+    }
+
+    /**
+     * @return Verdadeiro se os dois caminhos existem e indicam o mesmo ficheiro
+     *         (também através de ligações ou caminhos relativos)
+     */
+    static boolean mesmoFicheiro(Path entrada, Path saida) throws IOException {
+        return Files.exists(entrada) && Files.exists(saida) && Files.isSameFile(entrada, saida);
+    }
+
+    /**
+     * Estima o deslocamento de um ficheiro cifrado numa única passagem (análise de frequências)
+     * @param entrada Ficheiro cifrado
+     * @return Deslocamentos do mais provável para o menos provável
+     */
+    public static List<AnaliseFrequencias.Estimativa> estimarDeslocamentos(Path entrada) throws IOException {
+        long[] contagens = new long[26];
+
+        try (FileChannel in = FileChannel.open(entrada, StandardOpenOption.READ)) {
+            long tamanho = in.size();
+            byte[] bloco = new byte[(int) Math.min(TAMANHO_BLOCO_PADRAO, Math.max(tamanho, 1))];
+
+            for (long posicao = 0; posicao < tamanho; posicao += bloco.length) {
+                int n = (int) Math.min(bloco.length, tamanho - posicao);
+                in.map(FileChannel.MapMode.READ_ONLY, posicao, n).get(bloco, 0, n);
+                AnaliseFrequencias.acumular(bloco, 0, n, contagens);
+            }
+        }
+
+        return AnaliseFrequencias.ordenarDeslocamentos(contagens);
+    }
+
+    /**
+     * Compõe o deslocamento de César com a substituição inversa numa tabela de 256 bytes
+     * @param deslocacao Valor do deslocamento
+     * @param alfabetoSubstituicao Alfabeto de substituição de 26 letras, ou null se não houver
+     * @return Tabela indexada pelo byte cifrado
+     */
+    static byte[] construirTabela(int deslocacao, String alfabetoSubstituicao) {
+        int[] inverso = null;
+        if (alfabetoSubstituicao != null) {
+            if (alfabetoSubstituicao.length() != 26) {
+                throw new IllegalArgumentException("O alfabeto de substituição deve ter 26 letras");
+            }
+            inverso = CaesarCipher.construirMapaInverso(alfabetoSubstituicao);
+        }
+
+        byte[] identidade = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            identidade[i] = (byte) i;
+        }
+        byte[] tabela = new byte[256];
+        KernelDeslocamento.desencriptar(identidade, 0, 256, tabela, 0, deslocacao);
+
+        if (inverso != null) {
+            for (int i = 0; i < 256; i++) {
+                int c = tabela[i] & 0xFF;
+                if (c >= 'A' && c <= 'Z') {
+                    tabela[i] = (byte) ('A' + inverso[c - 'A']);
+                }
+            }
+        }
+        return tabela;
+    }
+}
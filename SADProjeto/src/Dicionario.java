@@ -0,0 +1,330 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dicionário de palavras guardado como autómato acíclico mínimo (DAFSA)
+ *
+ * As palavras são normalizadas para o alfabeto [A-Z] (maiúsculas, acentos retirados),
+ * o mesmo dos modelos de pontuação, e construídas por ordem alfabética com o algoritmo
+ * incremental de Daciuk: os sufixos comuns ("-ção", "-mente", "-ing") partilham estados,
+ * pelo que o autómato fica bastante mais pequeno do que uma trie. Depois de construído
+ * é guardado em arrays planos (transições ordenadas por letra) e é imutável.
+ *
+ * Os dicionários de cada idioma vêm em dicionarios/*.txt no classpath e só são lidos
+ * na primeira utilização ({@link #de(PerfilIdioma)}).
+ */
+public final class Dicionario {
+
+    /**
+     * Código devolvido por {@link #codigo(char)} para caracteres que não são letras
+     */
+    static final int SEPARADOR = ModeloPontuacao.SEPARADOR;
+
+    private static final int TAMANHO_TABELA = 0x250;  // Latin-1 e Latin Extended-A/B
+    private static final byte[] CODIGOS = new byte[TAMANHO_TABELA];
+
+    private static final Map<PerfilIdioma, Dicionario> CARREGADOS = new ConcurrentHashMap<>();
+
+    static {
+        for (int c = 0; c < TAMANHO_TABELA; c++) {
+            CODIGOS[c] = (byte) calcularCodigo((char) c);
+        }
+    }
+
+    // Estado i tem as transições [primeira[i], primeira[i + 1])
+    private final int[] primeira;
+    private final byte[] letras;
+    private final int[] destinos;
+    private final boolean[] terminais;
+    private final int palavras;
+
+    private Dicionario(int[] primeira, byte[] letras, int[] destinos, boolean[] terminais, int palavras) {
+        this.primeira = primeira;
+        this.letras = letras;
+        this.destinos = destinos;
+        this.terminais = terminais;
+        this.palavras = palavras;
+    }
+
+    /**
+     * Dicionário de um idioma, lido do classpath na primeira chamada
+     * @param idioma Idioma
+     * @return Dicionário partilhado
+     * @throws IllegalStateException Se o ficheiro do dicionário não estiver no classpath
+     */
+    public static Dicionario de(PerfilIdioma idioma) {
+        return CARREGADOS.computeIfAbsent(idioma, Dicionario::carregarRecurso);
+    }
+
+    /**
+     * @param palavras Palavras (maiúsculas, minúsculas e acentos são indiferentes)
+     * @return Dicionário com as palavras que têm pelo menos uma letra e só letras
+     */
+    public static Dicionario de(Collection<String> palavras) {
+        TreeSet<String> normalizadas = new TreeSet<>();
+        for (String palavra : palavras) {
+            String normalizada = normalizar(palavra);
+            if (normalizada != null) {
+                normalizadas.add(normalizada);
+            }
+        }
+        return new Construtor().construir(normalizadas);
+    }
+
+    /**
+     * Lê um dicionário em texto: uma palavra por linha, linhas vazias e começadas por # ignoradas
+     * @param entrada Ficheiro em UTF-8
+     * @return Dicionário
+     */
+    public static Dicionario ler(InputStream entrada) throws IOException {
+        List<String> palavras = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        String linha;
+        while ((linha = reader.readLine()) != null) {
+            linha = linha.strip();
+            if (!linha.isEmpty() && linha.charAt(0) != '#') {
+                palavras.add(linha);
+            }
+        }
+        return de(palavras);
+    }
+
+    private static Dicionario carregarRecurso(PerfilIdioma idioma) {
+        String recurso = switch (idioma) {
+            case PORTUGUES -> "/dicionarios/pt.txt";
+            case INGLES -> "/dicionarios/en.txt";
+        };
+        try (InputStream entrada = Dicionario.class.getResourceAsStream(recurso)) {
+            if (entrada == null) {
+                throw new IllegalStateException("Dicionário não encontrado no classpath: " + recurso);
+            }
+            return ler(entrada);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o dicionário " + recurso, e);
+        }
+    }
+
+    /**
+     * @param palavra Palavra em qualquer capitalização, com ou sem acentos
+     * @return Se a palavra está no dicionário
+     */
+    public boolean contem(CharSequence palavra) {
+        int estado = 0;
+        for (int i = 0; i < palavra.length() && estado >= 0; i++) {
+            int letra = codigo(palavra.charAt(i));
+            if (letra == SEPARADOR) {
+                return false;
+            }
+            estado = transicao(estado, letra);
+        }
+        return estado >= 0 && terminal(estado);
+    }
+
+    public int numeroPalavras() {
+        return palavras;
+    }
+
+    public int numeroEstados() {
+        return terminais.length;
+    }
+
+    public int numeroTransicoes() {
+        return letras.length;
+    }
+
+    /**
+     * @return Estado inicial do autómato
+     */
+    int inicial() {
+        return 0;
+    }
+
+    /**
+     * @param estado Estado atual
+     * @param letra Código da letra (0-25)
+     * @return Estado seguinte, ou -1 se nenhuma palavra continua com esta letra
+     */
+    int transicao(int estado, int letra) {
+        for (int t = primeira[estado], fim = primeira[estado + 1]; t < fim; t++) {
+            int l = letras[t];
+            if (l == letra) {
+                return destinos[t];
+            }
+            if (l > letra) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Se o caminho até este estado forma uma palavra completa
+     */
+    boolean terminal(int estado) {
+        return terminais[estado];
+    }
+
+    /**
+     * @param c Caractere
+     * @return Letra sem acento em código 0-25 (A = 0), ou {@link #SEPARADOR}
+     */
+    static int codigo(char c) {
+        return c < TAMANHO_TABELA ? CODIGOS[c] : SEPARADOR;
+    }
+
+    private static int calcularCodigo(char c) {
+        if (!Character.isLetter(c)) {
+            return SEPARADOR;
+        }
+        char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+        base = Character.toUpperCase(base);
+        return base >= 'A' && base <= 'Z' ? base - 'A' : SEPARADOR;
+    }
+
+    private static String normalizar(String palavra) {
+        if (palavra == null || palavra.isEmpty()) {
+            return null;
+        }
+        char[] letras = new char[palavra.length()];
+        for (int i = 0; i < letras.length; i++) {
+            int codigo = codigo(palavra.charAt(i));
+            if (codigo == SEPARADOR) {
+                return null;
+            }
+            letras[i] = (char) ('A' + codigo);
+        }
+        return new String(letras);
+    }
+
+    /**
+     * Construção incremental (Daciuk et al., 2000) sobre palavras por ordem alfabética
+     */
+    private static final class Construtor {
+
+        private static final class No {
+            final No[] filhos = new No[26];
+            int ultimaLetra = -1;
+            boolean terminal;
+            int id = -1;
+
+            String assinatura() {
+                StringBuilder sb = new StringBuilder().append(terminal ? '1' : '0');
+                for (int l = 0; l <= ultimaLetra; l++) {
+                    if (filhos[l] != null) {
+                        sb.append((char) ('A' + l)).append(filhos[l].id).append(',');
+                    }
+                }
+                return sb.toString();
+            }
+        }
+
+        private final Map<String, No> registo = new HashMap<>();
+        private final List<No> estados = new ArrayList<>();
+
+        Dicionario construir(Collection<String> ordenadas) {
+            No raiz = new No();
+            String anterior = "";
+            for (String palavra : ordenadas) {
+                int comum = 0;
+                int limite = Math.min(anterior.length(), palavra.length());
+                while (comum < limite && anterior.charAt(comum) == palavra.charAt(comum)) {
+                    comum++;
+                }
+                No atual = raiz;
+                for (int i = 0; i < comum; i++) {
+                    atual = atual.filhos[palavra.charAt(i) - 'A'];
+                }
+                if (atual.ultimaLetra >= 0) {
+                    substituirOuRegistar(atual);
+                }
+                for (int i = comum; i < palavra.length(); i++) {
+                    int letra = palavra.charAt(i) - 'A';
+                    No novo = new No();
+                    atual.filhos[letra] = novo;
+                    atual.ultimaLetra = letra;
+                    atual = novo;
+                }
+                atual.terminal = true;
+                anterior = palavra;
+            }
+            if (raiz.ultimaLetra >= 0) {
+                substituirOuRegistar(raiz);
+            }
+            registar(raiz);
+            return planificar(raiz, ordenadas.size());
+        }
+
+        // Os descendentes do último filho já não mudam: funde-os com estados equivalentes
+        private void substituirOuRegistar(No no) {
+            No filho = no.filhos[no.ultimaLetra];
+            if (filho.ultimaLetra >= 0) {
+                substituirOuRegistar(filho);
+            }
+            No equivalente = registo.get(filho.assinatura());
+            if (equivalente != null) {
+                no.filhos[no.ultimaLetra] = equivalente;
+            } else {
+                registar(filho);
+            }
+        }
+
+        private void registar(No no) {
+            no.id = estados.size();
+            estados.add(no);
+            registo.put(no.assinatura(), no);
+        }
+
+        // A raiz foi registada em último lugar; passa a ser o estado 0
+        private Dicionario planificar(No raiz, int palavras) {
+            int n = estados.size();
+            int[] novoId = new int[n];
+            for (int i = 0; i < n - 1; i++) {
+                novoId[i] = i + 1;
+            }
+            novoId[raiz.id] = 0;
+
+            No[] ordem = new No[n];
+            int transicoes = 0;
+            for (No no : estados) {
+                ordem[novoId[no.id]] = no;
+                for (int l = 0; l <= no.ultimaLetra; l++) {
+                    if (no.filhos[l] != null) {
+                        transicoes++;
+                    }
+                }
+            }
+
+            int[] primeira = new int[n + 1];
+            byte[] letras = new byte[transicoes];
+            int[] destinos = new int[transicoes];
+            boolean[] terminais = new boolean[n];
+            int t = 0;
+            for (int i = 0; i < n; i++) {
+                No no = ordem[i];
+                primeira[i] = t;
+                terminais[i] = no.terminal;
+                for (int l = 0; l <= no.ultimaLetra; l++) {
+                    if (no.filhos[l] != null) {
+                        letras[t] = (byte) l;
+                        destinos[t] = novoId[no.filhos[l].id];
+                        t++;
+                    }
+                }
+            }
+            primeira[n] = t;
+            return new Dicionario(primeira, letras, destinos, terminais, palavras);
+        }
+    }
+}
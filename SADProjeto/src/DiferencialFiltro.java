@@ -0,0 +1,229 @@
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Teste diferencial de {@link FiltroPlausibilidade} contra as expressões regulares originais
+ *
+ * O autómato substitui a semântica de textoValido em todos os caminhos, pelo que tem de dar
+ * o mesmo resultado que {@link FiltroPlausibilidade.Regex} em qualquer texto. Os casos são:
+ * <ul>
+ *   <li>cada caractere do BMP (sem substitutos) em vários moldes curtos;</li>
+ *   <li>textos aleatórios curtos, com letras, vogais acentuadas, marcas, dígitos, '_' e
+ *       formas Unicode de s e k, mais caracteres quaisquer do BMP;</li>
+ *   <li>casos adversos: sequências de consoantes e repetições à volta do limite, cadeias de
+ *       marcas, palavras de 1 e 2 letras junto a dígitos, '_' e letras fora do ASCII;</li>
+ *   <li>textos longos em maiúsculas, como os que saem das desencriptações.</li>
+ * </ul>
+ *
+ * A definição de {@code \b} mudou no JDK 19 e o autómato segue a da JVM em execução. As duas
+ * definições são testadas nesta JVM: a expressão das palavras é reconstruída com {@code \b}
+ * escrito por extenso (lookarounds) para cada definição, e a versão por extenso da definição
+ * da JVM é primeiro confrontada com as expressões originais nos mesmos casos. Textos com pares
+ * substitutos (que o autómato entrega às expressões) só são testados com a definição da JVM.
+ *
+ * Utilização:
+ *   java DiferencialFiltro [--casos 2000000] [--semente 1]
+ * Termina com código 1 se houver diferenças, mostrando as primeiras.
+ */
+public class DiferencialFiltro {
+
+    private static final int DIFERENCAS_MOSTRADAS = 20;
+
+    // Moldes em que cada caractere do BMP é testado (%s é substituído pelo caractere)
+    private static final String[] MOLDES = {
+            "%sab", "a%sab", "ab%s", "%s%s%s", "ba%sa", "bc%sd", "%s ab", "ab %s", "%sa", "oa%s%s",
+            "k%s ola", "%sk ola", "%s%s ola", "ola %s", "a%s", "%sola%s", "xyz%sa", "ol%s%s%sa",
+            "_%sab", "1%sab", "ab%s1", "é%sab"};
+
+    // Caracteres que exercitam as regras: vogais, consoantes proibidas em par, \b, marcas
+    // (U+0300, U+0301), s longo (U+017F), sinal Kelvin (U+212A) e letras fora do ASCII
+    private static final char[] ESPECIAIS = ("aeiouAEIOUbcdfkKwWyYqQjJsSxzlmnrtpÁÉÍÓÚáéíóúçÇãõÿµ"
+            + "ſKḰ̀́ _019.-'\n\r\tßÀàÖİıμΜﬀªº²").toCharArray();
+
+    private static final char[] MARCAS = {'̀', '́', '̧', '⃐'};
+
+    // As cadeias de marcas geradas são mais curtas do que o lookbehind de \b por extenso
+    private static final int MARCAS_MAXIMAS = 32;
+
+    private final Pattern palavrasJvm;
+    private final Pattern palavrasAscii;
+    private final Pattern palavrasUnicode;
+    private long casos;
+    private long diferencas;
+
+    DiferencialFiltro() {
+        palavrasAscii = palavras("[a-zA-Z0-9_]");
+        palavrasUnicode = palavras("[\\p{L}\\p{Nd}_]");
+        palavrasJvm = FiltroPlausibilidade.FRONTEIRA_ASCII ? palavrasAscii : palavrasUnicode;
+    }
+
+    public static void main(String[] args) {
+        long numeroCasos = 2_000_000;
+        long semente = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--casos" -> numeroCasos = Long.parseLong(args[++i]);
+                case "--semente" -> semente = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+            }
+        }
+
+        System.out.println("\\b da JVM: " + (FiltroPlausibilidade.FRONTEIRA_ASCII
+                ? "ASCII (JDK 19+)" : "isLetterOrDigit (anterior ao JDK 19)"));
+        DiferencialFiltro teste = new DiferencialFiltro();
+        Random random = new Random(semente);
+        teste.caracteres();
+        teste.aleatorios(random, numeroCasos / 2);
+        teste.adversos(random, numeroCasos / 4);
+        teste.longos(random, numeroCasos / 4);
+        teste.substitutos(random, Math.max(1, numeroCasos / 100));
+
+        System.out.printf("%d casos, %d diferenças\n", teste.casos, teste.diferencas);
+        if (teste.diferencas > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void caracteres() {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (Character.isSurrogate((char) c)) {
+                continue;
+            }
+            String caractere = String.valueOf((char) c);
+            for (String molde : MOLDES) {
+                verificar(molde.replace("%s", caractere));
+            }
+        }
+    }
+
+    private void aleatorios(Random random, long quantidade) {
+        for (long n = 0; n < quantidade; n++) {
+            char[] texto = new char[random.nextInt(13)];
+            for (int i = 0; i < texto.length; i++) {
+                texto[i] = random.nextInt(10) == 0 ? caractereBmp(random) : ESPECIAIS[random.nextInt(ESPECIAIS.length)];
+            }
+            verificar(new String(texto));
+        }
+    }
+
+    private void adversos(Random random, long quantidade) {
+        String[] consoantes = {"b", "c", "d", "s", "S", "ſ", "k", "K", "t", "R"};
+        String[] separadores = {" ", "_", "1", "ç", "é", "̀", "-", ""};
+        for (long n = 0; n < quantidade; n++) {
+            StringBuilder texto = new StringBuilder();
+            int partes = 1 + random.nextInt(4);
+            for (int p = 0; p < partes; p++) {
+                switch (random.nextInt(5)) {
+                    // Consoantes seguidas: 3 é aceite, 4 não
+                    case 0 -> {
+                        int total = 2 + random.nextInt(4);
+                        for (int i = 0; i < total; i++) {
+                            texto.append(consoantes[random.nextInt(consoantes.length)]);
+                        }
+                    }
+                    // A mesma letra 2 ou 3 vezes, com maiúsculas e formas Unicode misturadas
+                    case 1 -> {
+                        String[] iguais = random.nextBoolean() ? new String[]{"s", "S", "ſ"} : new String[]{"a", "A"};
+                        int total = 2 + random.nextInt(2);
+                        for (int i = 0; i < total; i++) {
+                            texto.append(iguais[random.nextInt(iguais.length)]);
+                        }
+                    }
+                    // Cadeias de marcas depois de letras, dígitos, '_' ou no início
+                    case 2 -> {
+                        texto.append(separadores[random.nextInt(separadores.length)]);
+                        int total = 1 + random.nextInt(MARCAS_MAXIMAS / 4);
+                        for (int i = 0; i < total; i++) {
+                            texto.append(MARCAS[random.nextInt(MARCAS.length)]);
+                        }
+                    }
+                    // Palavras de 1 a 3 letras coladas a separadores que mudam \b
+                    case 3 -> {
+                        texto.append(separadores[random.nextInt(separadores.length)]);
+                        int total = 1 + random.nextInt(3);
+                        for (int i = 0; i < total; i++) {
+                            texto.append(ESPECIAIS[random.nextInt(10)]);
+                        }
+                        texto.append(separadores[random.nextInt(separadores.length)]);
+                    }
+                    default -> texto.append(separadores[random.nextInt(separadores.length)]);
+                }
+            }
+            verificar(texto.toString());
+        }
+    }
+
+    private void longos(Random random, long quantidade) {
+        for (long n = 0; n < quantidade; n++) {
+            char[] texto = new char[16 + random.nextInt(64)];
+            for (int i = 0; i < texto.length; i++) {
+                texto[i] = random.nextInt(6) == 0 ? ' ' : (char) ('A' + random.nextInt(26));
+            }
+            verificar(new String(texto));
+        }
+    }
+
+    private void substitutos(Random random, long quantidade) {
+        for (long n = 0; n < quantidade; n++) {
+            StringBuilder texto = new StringBuilder();
+            int total = 1 + random.nextInt(8);
+            for (int i = 0; i < total; i++) {
+                if (random.nextInt(3) == 0) {
+                    texto.appendCodePoint(Character.MIN_SUPPLEMENTARY_CODE_POINT + random.nextInt(0x20000));
+                } else {
+                    texto.append(ESPECIAIS[random.nextInt(ESPECIAIS.length)]);
+                }
+            }
+            String s = texto.toString();
+            casos++;
+            comparar(s, "JVM", FiltroPlausibilidade.aceita(s), FiltroPlausibilidade.Regex.aceita(s));
+        }
+    }
+
+    private void verificar(String texto) {
+        casos++;
+        char[] chars = texto.toCharArray();
+        boolean original = FiltroPlausibilidade.Regex.aceita(texto);
+        // A versão por extenso de \b tem de coincidir com a original na definição da JVM
+        comparar(texto, "\\b por extenso", FiltroPlausibilidade.Regex.aceita(texto, palavrasJvm), original);
+        comparar(texto, "JVM", FiltroPlausibilidade.aceita(chars, 0, chars.length), original);
+        comparar(texto, "ASCII", FiltroPlausibilidade.aceita(chars, 0, chars.length, true),
+                FiltroPlausibilidade.Regex.aceita(texto, palavrasAscii));
+        comparar(texto, "isLetterOrDigit", FiltroPlausibilidade.aceita(chars, 0, chars.length, false),
+                FiltroPlausibilidade.Regex.aceita(texto, palavrasUnicode));
+    }
+
+    private void comparar(String texto, String caso, boolean obtido, boolean esperado) {
+        if (obtido == esperado) {
+            return;
+        }
+        if (diferencas++ < DIFERENCAS_MOSTRADAS) {
+            StringBuilder codigos = new StringBuilder();
+            texto.codePoints().forEach(c -> codigos.append(String.format(" %04X", c)));
+            System.out.printf("[%s] obtido=%b esperado=%b:%s\n", caso, obtido, esperado, codigos);
+        }
+    }
+
+    private static char caractereBmp(Random random) {
+        char c;
+        do {
+            c = (char) random.nextInt(Character.MAX_VALUE + 1);
+        } while (Character.isSurrogate(c));
+        return c;
+    }
+
+    /**
+     * Expressão das palavras com \b escrito por extenso, tal como o implementa java.util.regex:
+     * há fronteira quando exatamente um dos lados é palavra. Um lado é palavra se o caractere
+     * for \w, ou se for uma marca não espaçadora cujo caractere base (antes de outras marcas)
+     * seja letra ou dígito.
+     * @param palavra Classe \w da definição pretendida
+     */
+    private static Pattern palavras(String palavra) {
+        String base = "[\\p{L}\\p{Nd}]\\p{Mn}{0," + MARCAS_MAXIMAS + "}";
+        String esquerda = "(?:(?<=" + palavra + ")|(?<=\\p{Mn})(?<=" + base + "))";
+        String direita = "(?:(?=" + palavra + ")|(?=\\p{Mn})(?<=" + base + "))";
+        String fronteira = "(?:" + esquerda + "(?!" + direita + ")|(?!" + esquerda + ")" + direita + ")";
+        return Pattern.compile(FiltroPlausibilidade.Regex.WORD_REGEX.replace("\\b", fronteira));
+    }
+}
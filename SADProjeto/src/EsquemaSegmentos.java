@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+/**
+ * Disposição dos segmentos de um texto cifrado com salts
+ * Um esquema tem um único segmento de mensagem, de tamanho variável, rodeado por
+ * qualquer número de salts de tamanho fixo (cada um com o seu deslocamento).
+ * Descreve-se por uma lista separada por vírgulas, com M no lugar da mensagem:
+ * "3,M,3" é o esquema da Alínea 2, "2,4,M" tem dois salts antes da mensagem.
+ */
+public final class EsquemaSegmentos {
+
+    // Valor guardado na posição da mensagem, cujo tamanho depende do texto
+    private static final int MENSAGEM = 0;
+
+    /**
+     * Esquema da Alínea 2: Salt1 (3) + mensagem + Salt2 (3)
+     */
+    public static final EsquemaSegmentos PADRAO = new EsquemaSegmentos(new int[]{3, MENSAGEM, 3}, 1);
+
+    private final int[] tamanhos;
+    private final int indiceMensagem;
+    private final int tamanhoSalts;
+
+    /**
+     * @param tamanhos Tamanho de cada segmento (o valor na posição da mensagem é ignorado)
+     * @param indiceMensagem Posição do segmento de mensagem
+     */
+    private EsquemaSegmentos(int[] tamanhos, int indiceMensagem) {
+        int soma = 0;
+        for (int i = 0; i < tamanhos.length; i++) {
+            if (i == indiceMensagem) {
+                tamanhos[i] = MENSAGEM;
+            } else if (tamanhos[i] <= 0) {
+                throw new IllegalArgumentException("O tamanho de cada salt deve ser positivo: '" + tamanhos[i] + "'");
+            } else {
+                soma += tamanhos[i];
+            }
+        }
+        if (indiceMensagem < 0 || indiceMensagem >= tamanhos.length) {
+            throw new IllegalArgumentException("O esquema deve ter um segmento de mensagem (M)");
+        }
+        this.tamanhos = tamanhos;
+        this.indiceMensagem = indiceMensagem;
+        this.tamanhoSalts = soma;
+    }
+
+    /**
+     * @param descricao Por exemplo "3,M,3" ou "2,4,M"
+     * @return Esquema correspondente
+     */
+    public static EsquemaSegmentos ler(String descricao) {
+        if (descricao == null || descricao.isBlank()) {
+            throw new IllegalArgumentException("Esquema de segmentos vazio");
+        }
+        String[] partes = descricao.split(",");
+        int[] tamanhos = new int[partes.length];
+        int indiceMensagem = -1;
+        for (int i = 0; i < partes.length; i++) {
+            String parte = partes[i].trim();
+            if (parte.equalsIgnoreCase("M")) {
+                if (indiceMensagem >= 0) {
+                    throw new IllegalArgumentException("O esquema só pode ter um segmento de mensagem (M)");
+                }
+                indiceMensagem = i;
+            } else {
+                try {
+                    tamanhos[i] = Integer.parseInt(parte);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Segmento inválido no esquema: '" + parte + "'");
+                }
+            }
+        }
+        return new EsquemaSegmentos(tamanhos, indiceMensagem);
+    }
+
+    public int numeroSegmentos() {
+        return tamanhos.length;
+    }
+
+    public int indiceMensagem() {
+        return indiceMensagem;
+    }
+
+    /**
+     * @return Tamanho mínimo do texto cifrado (salts + 1 carácter de mensagem)
+     */
+    public int tamanhoMinimo() {
+        return tamanhoSalts + 1;
+    }
+
+    /**
+     * Posições onde cada segmento começa num texto com o comprimento dado
+     * @param comprimento Comprimento do texto cifrado
+     * @return numeroSegmentos() + 1 posições; o segmento i ocupa [limites[i], limites[i + 1])
+     */
+    int[] limites(int comprimento) {
+        if (comprimento < tamanhoMinimo()) {
+            throw new IllegalArgumentException("A mensagem deve ter pelo menos " + tamanhoMinimo() + " caracteres");
+        }
+        int[] limites = new int[tamanhos.length + 1];
+        for (int i = 0; i < tamanhos.length; i++) {
+            int tamanho = i == indiceMensagem ? comprimento - tamanhoSalts : tamanhos[i];
+            limites[i + 1] = limites[i] + tamanho;
+        }
+        return limites;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EsquemaSegmentos outro && Arrays.equals(tamanhos, outro.tamanhos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(tamanhos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tamanhos.length; i++) {
+            sb.append(i == 0 ? "" : ",").append(i == indiceMensagem ? "M" : String.valueOf(tamanhos[i]));
+        }
+        return sb.toString();
+    }
+}
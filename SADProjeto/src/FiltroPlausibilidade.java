@@ -0,0 +1,325 @@
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Filtro de plausibilidade dos textos desencriptados, numa única passagem
+ *
+ * Dá exatamente o mesmo resultado que as três expressões regulares originais:
+ * <ul>
+ *   <li>tem de existir uma palavra ({@code \b\p{L}{2,}\b}) com pelo menos uma vogal;</li>
+ *   <li>não pode existir kk, ww, yy, qq ou jj, a mesma letra três vezes seguidas,
+ *       nem quatro consoantes seguidas (sem distinguir maiúsculas, com regras Unicode).</li>
+ * </ul>
+ * Cada caractere é classificado por uma tabela (Latin-1) e alimenta um pequeno autómato,
+ * sem {@link Matcher} nem retrocessos. A fronteira de palavra segue a definição de
+ * {@code \b} da JVM em execução (que mudou no JDK 19); as duas definições podem ser
+ * pedidas explicitamente, para comparação com as expressões regulares ({@link DiferencialFiltro}).
+ *
+ * Textos com pares substitutos (caracteres fora do BMP) usam as expressões regulares,
+ * cujo tratamento desses casos não vale a pena reproduzir.
+ */
+final class FiltroPlausibilidade {
+
+    private static final int LETRA = 1;
+    private static final int VOGAL = 1 << 1;
+    private static final int PALAVRA_ASCII = 1 << 2; // \w de \b desde o JDK 19: [a-zA-Z_0-9]
+    private static final int LETRA_OU_DIGITO = 1 << 3;
+    private static final int MARCA = 1 << 4;         // marca não espaçadora (Mn)
+    private static final int CONSOANTE = 1 << 5;     // [bcdfghjklmnpqrstvwxyz] com (?iu)
+    private static final int PALAVRA_UNICODE = 1 << 6; // \w de \b antes do JDK 19: isLetterOrDigit ou _
+
+    private static final String VOGAIS = "AEIOUÁÉÍÓÚaeiouáéíóú";
+    private static final String CONSOANTES = "bcdfghjklmnpqrstvwxyz";
+    private static final String PROIBIDAS_EM_PAR = "kwyqj";
+
+    // \b usa [a-zA-Z_0-9] desde o JDK 19 e isLetterOrDigit antes disso; decide-se pela versão
+    // para não carregar java.util.regex no arranque
+    static final boolean FRONTEIRA_ASCII = Runtime.version().feature() >= 19;
+    private static final int PALAVRA = FRONTEIRA_ASCII ? PALAVRA_ASCII : PALAVRA_UNICODE;
+
+    private static final int TAMANHO_TABELA = 256;
+    private static final byte[] CLASSES = new byte[TAMANHO_TABELA];
+    private static final char[] CHAVES = new char[TAMANHO_TABELA];
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+    // Como em ContextoCifra: textos maiores (e threads virtuais) usam um buffer próprio
+    private static final int TAMANHO_MAXIMO_BUFFER = 8192;
+
+    static {
+        for (int c = 0; c < TAMANHO_TABELA; c++) {
+            CLASSES[c] = (byte) calcularClasses((char) c);
+            CHAVES[c] = calcularChave((char) c);
+        }
+    }
+
+    private FiltroPlausibilidade() {
+    }
+
+    /**
+     * @param texto Texto a avaliar
+     * @return Se o texto é plausível
+     */
+    static boolean aceita(CharSequence texto) {
+        if (texto == null) {
+            return false;
+        }
+        int n = texto.length();
+        char[] buffer;
+        if (n > TAMANHO_MAXIMO_BUFFER || Thread.currentThread().isVirtual()) {
+            buffer = new char[n];
+        } else {
+            buffer = BUFFER.get();
+            if (buffer.length < n) {
+                buffer = new char[Math.max(n, Math.min(buffer.length * 2, TAMANHO_MAXIMO_BUFFER))];
+                BUFFER.set(buffer);
+            }
+        }
+        if (texto instanceof String s) {
+            s.getChars(0, n, buffer, 0);
+        } else {
+            for (int i = 0; i < n; i++) {
+                buffer[i] = texto.charAt(i);
+            }
+        }
+        return aceita(buffer, 0, n);
+    }
+
+    /**
+     * @param texto Buffer com o texto
+     * @param inicio Primeira posição do texto
+     * @param fim Posição a seguir à última
+     * @return Se o texto é plausível
+     */
+    static boolean aceita(char[] texto, int inicio, int fim) {
+        return aceita(texto, inicio, fim, PALAVRA);
+    }
+
+    /**
+     * Autómato com uma definição de {@code \b} escolhida, independente da JVM em execução
+     * @param fronteiraAscii Verdadeiro para a definição do JDK 19 e seguintes
+     * @return Se o texto é plausível; textos com pares substitutos são sempre avaliados
+     *         pelas expressões regulares da JVM em execução
+     */
+    static boolean aceita(char[] texto, int inicio, int fim, boolean fronteiraAscii) {
+        return aceita(texto, inicio, fim, fronteiraAscii ? PALAVRA_ASCII : PALAVRA_UNICODE);
+    }
+
+    private static boolean aceita(char[] texto, int inicio, int fim, int palavra) {
+        // Equivalente a texto.trim().isEmpty()
+        boolean emBranco = true;
+        for (int i = inicio; i < fim; i++) {
+            if (texto[i] > ' ') {
+                emBranco = false;
+                break;
+            }
+        }
+        if (emBranco) {
+            return false;
+        }
+
+        boolean palavraAnterior = false;   // o caractere anterior conta como \w
+        boolean baseLetraOuDigito = false; // último caractere que não é marca
+        boolean dentroDeLetras = false;
+        int inicioPalavra = -1;            // primeira fronteira \b na sequência de letras atual
+        boolean vogalNaPalavra = false;
+        boolean palavraReal = false;
+
+        char chaveAnterior = 0;
+        int repeticoesDesdeLetra = 0;      // iguais (sem maiúsculas) desde a primeira letra
+        boolean repeticaoTemLetra = false;
+        int consoantesSeguidas = 0;
+
+        for (int i = inicio; i < fim; i++) {
+            char c = texto[i];
+            if (Character.isSurrogate(c)) {
+                return Regex.aceita(new String(texto, inicio, fim - inicio));
+            }
+            int classes = c < TAMANHO_TABELA ? CLASSES[c] : calcularClasses(c);
+            char chave = c < TAMANHO_TABELA ? CHAVES[c] : calcularChave(c);
+
+            // Regras impossíveis
+            if (i > inicio && chave == chaveAnterior) {
+                if (PROIBIDAS_EM_PAR.indexOf(chave) >= 0) {
+                    return false;
+                }
+                if (repeticaoTemLetra && ++repeticoesDesdeLetra >= 3) {
+                    return false;
+                }
+            } else {
+                repeticaoTemLetra = false;
+            }
+            if (!repeticaoTemLetra && (classes & LETRA) != 0) {
+                repeticaoTemLetra = true;
+                repeticoesDesdeLetra = 1;
+            }
+            chaveAnterior = chave;
+
+            consoantesSeguidas = (classes & CONSOANTE) != 0 ? consoantesSeguidas + 1 : 0;
+            if (consoantesSeguidas >= 4) {
+                return false;
+            }
+
+            // Palavras: \b antes deste caractere?
+            boolean marca = (classes & MARCA) != 0;
+            boolean palavraAtual = marca ? baseLetraOuDigito : (classes & palavra) != 0;
+            boolean fronteira = palavraAnterior != palavraAtual;
+
+            if (dentroDeLetras && fronteira && inicioPalavra >= 0 && vogalNaPalavra && i - inicioPalavra >= 2) {
+                palavraReal = true;
+            }
+            if ((classes & LETRA) != 0) {
+                if (!dentroDeLetras) {
+                    dentroDeLetras = true;
+                    inicioPalavra = -1;
+                    vogalNaPalavra = false;
+                }
+                if (fronteira && inicioPalavra < 0) {
+                    inicioPalavra = i;
+                }
+                if (inicioPalavra >= 0 && (classes & VOGAL) != 0) {
+                    vogalNaPalavra = true;
+                }
+            } else {
+                dentroDeLetras = false;
+            }
+
+            if (!marca) {
+                baseLetraOuDigito = (classes & LETRA_OU_DIGITO) != 0;
+            }
+            palavraAnterior = palavraAtual;
+        }
+
+        // \b no fim do texto
+        if (dentroDeLetras && palavraAnterior && inicioPalavra >= 0 && vogalNaPalavra && fim - inicioPalavra >= 2) {
+            palavraReal = true;
+        }
+        return palavraReal;
+    }
+
+    /**
+     * Só as regras impossíveis (pares proibidos, letra repetida três vezes, quatro consoantes)
+     * Como não dependem do contexto, um padrão encontrado num excerto também existe em
+     * qualquer texto que o contenha, e esse texto é rejeitado por {@link #aceita}.
+     * @param texto Buffer com o excerto
+     * @param inicio Primeira posição do excerto
+     * @param fim Posição a seguir à última
+     * @return Se o excerto contém um padrão impossível; falso também quando não é possível
+     *         decidir sem as expressões regulares (pares substitutos)
+     */
+    static boolean temPadraoImpossivel(char[] texto, int inicio, int fim) {
+        char chaveAnterior = 0;
+        int repeticoesDesdeLetra = 0;
+        boolean repeticaoTemLetra = false;
+        int consoantesSeguidas = 0;
+
+        for (int i = inicio; i < fim; i++) {
+            char c = texto[i];
+            if (Character.isSurrogate(c)) {
+                return false;
+            }
+            int classes = c < TAMANHO_TABELA ? CLASSES[c] : calcularClasses(c);
+            char chave = c < TAMANHO_TABELA ? CHAVES[c] : calcularChave(c);
+
+            if (i > inicio && chave == chaveAnterior) {
+                if (PROIBIDAS_EM_PAR.indexOf(chave) >= 0) {
+                    return true;
+                }
+                if (repeticaoTemLetra && ++repeticoesDesdeLetra >= 3) {
+                    return true;
+                }
+            } else {
+                repeticaoTemLetra = false;
+            }
+            if (!repeticaoTemLetra && (classes & LETRA) != 0) {
+                repeticaoTemLetra = true;
+                repeticoesDesdeLetra = 1;
+            }
+            chaveAnterior = chave;
+
+            consoantesSeguidas = (classes & CONSOANTE) != 0 ? consoantesSeguidas + 1 : 0;
+            if (consoantesSeguidas >= 4) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int calcularClasses(char c) {
+        int classes = 0;
+        if (Character.isLetter(c)) {
+            classes |= LETRA;
+        }
+        if (VOGAIS.indexOf(c) >= 0) {
+            classes |= VOGAL;
+        }
+        if (Character.isLetterOrDigit(c)) {
+            classes |= LETRA_OU_DIGITO;
+        }
+        if (c == '_' || (c < 128 && Character.isLetterOrDigit(c))) {
+            classes |= PALAVRA_ASCII;
+        }
+        if (c == '_' || Character.isLetterOrDigit(c)) {
+            classes |= PALAVRA_UNICODE;
+        }
+        if (Character.getType(c) == Character.NON_SPACING_MARK) {
+            classes |= MARCA;
+        }
+        // Na classe com (?iu), 's' e 'k' também aceitam as formas Unicode (ſ, sinal Kelvin)
+        char chave = calcularChave(c);
+        if ((c < 128 && CONSOANTES.indexOf(Character.toLowerCase(c)) >= 0) || chave == 's' || chave == 'k') {
+            classes |= CONSOANTE;
+        }
+        return classes;
+    }
+
+    // Igualdade sem maiúsculas usada pelas referências e literais com (?iu)
+    private static char calcularChave(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Implementação original com expressões regulares (carregada só quando necessária)
+     */
+    static final class Regex {
+        static final String WORD_REGEX = "\\b(?=.*[AEIOUÁÉÍÓÚaeiouáéíóú])[\\p{L}]{2,}\\b";
+        private static final Pattern WORD_PATTERN = Pattern.compile(WORD_REGEX);
+        private static final Pattern VOWEL_PATTERN = Pattern.compile("[AEIOUaeiouÁÉÍÓÚáéíóú]");
+        private static final Pattern IMPOSSIBLE_PATTERN = Pattern.compile(
+                "(?iu)(?:k{2}|w{2}|y{2}|q{2}|j{2}|([\\p{L}])\\1{2,}|[bcdfghjklmnpqrstvwxyz]{4,})");
+
+        private Regex() {
+        }
+
+        static boolean aceita(CharSequence texto) {
+            return aceita(texto, WORD_PATTERN);
+        }
+
+        /**
+         * @param palavras Expressão das palavras (WORD_REGEX, eventualmente com outra definição de \b)
+         */
+        static boolean aceita(CharSequence texto, Pattern palavras) {
+            if (texto == null || texto.toString().trim().isEmpty()) {
+                return false;
+            }
+
+            Matcher palavraMatcher = palavras.matcher(texto);
+            boolean temPalavraReal = false;
+            while (palavraMatcher.find()) {
+                String palavra = palavraMatcher.group();
+                if (VOWEL_PATTERN.matcher(palavra).find()) {
+                    temPalavraReal = true;
+                    break;
+                }
+            }
+            if (!temPalavraReal) {
+                return false;
+            }
+
+            if (!VOWEL_PATTERN.matcher(texto).find()) {
+                return false;
+            }
+
+            return !IMPOSSIBLE_PATTERN.matcher(texto).find();
+        }
+    }
+}
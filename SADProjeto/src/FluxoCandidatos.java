@@ -0,0 +1,222 @@
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Spliterators preguiçosos sobre os candidatos das Alíneas 1 e 2
+ *
+ * Cada candidato só é desencriptado e filtrado quando é pedido, pelo que quem precisa
+ * apenas do primeiro texto válido para ao fim de um ou dois deslocamentos. A divisão
+ * é feita ao meio do intervalo de índices ainda por percorrer, o que dá partes
+ * equilibradas para streams paralelos sem conhecer antecipadamente quantos candidatos
+ * passam nos filtros.
+ */
+final class FluxoCandidatos {
+
+    private static final int CARACTERISTICAS = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+    // Abaixo deste número de combinações não compensa dividir mais
+    private static final int DIVISAO_MINIMA_COMBINACOES = 26;
+
+    private FluxoCandidatos() {
+    }
+
+    /**
+     * Alínea 1: um candidato por deslocamento, pela ordem indicada
+     */
+    static final class Deslocamentos implements Spliterator<ContextoCifra.Hipotese> {
+        private final char[] origem;
+        private final int[] ordem;
+        private final boolean filtrosAtivos;
+        private final AvaliacaoAmostrada amostragem;
+        private int atual;
+        private final int fim;
+        private char[] buffer;
+        private char[] amostra;
+
+        /**
+         * @param text Texto cifrado
+         * @param ordem Deslocamentos pela ordem em que devem ser produzidos
+         * @param filtrosAtivos Se verdadeiro, só os textos plausíveis são produzidos
+         * @param amostragem Rejeição antecipada por amostras (só com filtros), ou null
+         */
+        Deslocamentos(String text, int[] ordem, boolean filtrosAtivos, AvaliacaoAmostrada amostragem) {
+            this(text.toCharArray(), ordem, filtrosAtivos, amostragem, 0, ordem.length);
+        }
+
+        private Deslocamentos(char[] origem, int[] ordem, boolean filtrosAtivos, AvaliacaoAmostrada amostragem,
+                              int atual, int fim) {
+            this.origem = origem;
+            this.ordem = ordem;
+            this.filtrosAtivos = filtrosAtivos;
+            this.amostragem = amostragem;
+            this.atual = atual;
+            this.fim = fim;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ContextoCifra.Hipotese> acao) {
+            int n = origem.length;
+            if (buffer == null) {
+                buffer = new char[n];
+                amostra = amostragem == null ? null : new char[Math.min(amostragem.janela(), n)];
+            }
+            while (atual < fim) {
+                int shift = ordem[atual++];
+                if (amostragem != null && amostragem.rejeita(origem, n, shift, amostra)) {
+                    continue;
+                }
+                KernelDeslocamento.desencriptar(origem, 0, n, buffer, 0, shift);
+                if (!filtrosAtivos || CaesarCipher.textoValido(buffer, 0, n)) {
+                    acao.accept(new ContextoCifra.Hipotese(shift, new String(buffer, 0, n)));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<ContextoCifra.Hipotese> trySplit() {
+            int meio = (atual + fim) >>> 1;
+            if (meio <= atual) {
+                return null;
+            }
+            Deslocamentos prefixo = new Deslocamentos(origem, ordem, filtrosAtivos, amostragem, atual, meio);
+            atual = meio;
+            return prefixo;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fim - atual;
+        }
+
+        @Override
+        public int characteristics() {
+            return CARACTERISTICAS | Spliterator.DISTINCT;
+        }
+    }
+
+    /**
+     * Alínea 2: as 26 x 26 x 26 combinações (salt1, mensagem, salt2), percorridas por índice
+     * As hipóteses da mensagem são avaliadas na primeira vez que são precisas e partilhadas
+     * entre as partes; uma mensagem rejeitada salta de uma vez o bloco de combinações que a usa.
+     */
+    static final class Combinacoes implements Spliterator<MotorPesquisaSalts.ResultadoCombinacao> {
+        private final Espaco espaco;
+        private int atual;
+        private final int fim;
+
+        /**
+         * @param cipherText Texto cifrado com o esquema "3,M,3"
+         * @param ordemMensagem Deslocamentos da mensagem pela ordem em que devem ser produzidos
+         * @param mensagemPrimeiro Se verdadeiro a mensagem varia mais devagar (mensagem, salt1,
+         *                         salt2); caso contrário segue o loop triplo (salt1, mensagem, salt2)
+         * @param filtrosAtivos Se verdadeiro, só as mensagens plausíveis são combinadas
+         */
+        Combinacoes(String cipherText, int[] ordemMensagem, boolean mensagemPrimeiro, boolean filtrosAtivos) {
+            this(new Espaco(cipherText, ordemMensagem, mensagemPrimeiro, filtrosAtivos),
+                    0, MotorPesquisaSalts.TOTAL_COMBINACOES);
+        }
+
+        private Combinacoes(Espaco espaco, int atual, int fim) {
+            this.espaco = espaco;
+            this.atual = atual;
+            this.fim = fim;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super MotorPesquisaSalts.ResultadoCombinacao> acao) {
+            while (atual < fim) {
+                int indice = atual;
+                int salt1;
+                int posicaoMensagem;
+                int proximoBloco;
+                if (espaco.mensagemPrimeiro) {
+                    posicaoMensagem = indice / (26 * 26);
+                    salt1 = indice / 26 % 26;
+                    proximoBloco = (posicaoMensagem + 1) * 26 * 26;
+                } else {
+                    salt1 = indice / (26 * 26);
+                    posicaoMensagem = indice / 26 % 26;
+                    proximoBloco = (indice / 26 + 1) * 26;
+                }
+                int salt2 = indice % 26;
+
+                String mensagem = espaco.mensagem(posicaoMensagem);
+                if (mensagem == null) {
+                    atual = Math.min(fim, proximoBloco);
+                    continue;
+                }
+                atual++;
+                acao.accept(new MotorPesquisaSalts.ResultadoCombinacao(
+                        salt1, espaco.salts1[salt1],
+                        espaco.ordem[posicaoMensagem], mensagem,
+                        salt2, espaco.salts2[salt2]));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<MotorPesquisaSalts.ResultadoCombinacao> trySplit() {
+            if (fim - atual < 2 * DIVISAO_MINIMA_COMBINACOES) {
+                return null;
+            }
+            int meio = (atual + fim) >>> 1;
+            Combinacoes prefixo = new Combinacoes(espaco, atual, meio);
+            atual = meio;
+            return prefixo;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fim - atual;
+        }
+
+        @Override
+        public int characteristics() {
+            return CARACTERISTICAS;
+        }
+    }
+
+    private static final class Espaco {
+        // Marca as mensagens já avaliadas e rejeitadas (comparada por identidade)
+        private static final String REJEITADA = new String();
+
+        final String[] salts1;
+        final String[] salts2;
+        final int[] ordem;
+        final boolean mensagemPrimeiro;
+        private final String mensagemCifrada;
+        private final boolean filtrosAtivos;
+        private final AtomicReferenceArray<String> mensagens;
+
+        Espaco(String cipherText, int[] ordem, boolean mensagemPrimeiro, boolean filtrosAtivos) {
+            int n = cipherText.length();
+            int tamanhoSalt = MotorPesquisaSalts.TAMANHO_SALT;
+            this.salts1 = CaesarCipher.desencriptarTodosDeslocamentos(cipherText.substring(0, tamanhoSalt));
+            this.salts2 = CaesarCipher.desencriptarTodosDeslocamentos(cipherText.substring(n - tamanhoSalt));
+            this.mensagemCifrada = cipherText.substring(tamanhoSalt, n - tamanhoSalt);
+            this.ordem = ordem;
+            this.mensagemPrimeiro = mensagemPrimeiro;
+            this.filtrosAtivos = filtrosAtivos;
+            this.mensagens = new AtomicReferenceArray<>(ordem.length);
+        }
+
+        /**
+         * @param posicao Posição na ordem das mensagens
+         * @return Mensagem desencriptada, ou null se não passar nos filtros
+         */
+        String mensagem(int posicao) {
+            String mensagem = mensagens.get(posicao);
+            if (mensagem == null) {
+                // Duas partes podem avaliar a mesma mensagem em simultâneo; o resultado é igual
+                String texto = CaesarCipher.desencriptarComDeslocamento(mensagemCifrada, ordem[posicao]);
+                mensagem = !filtrosAtivos || CaesarCipher.textoValido(texto) ? texto : REJEITADA;
+                mensagens.compareAndSet(posicao, null, mensagem);
+            }
+            return mensagem == REJEITADA ? null : mensagem;
+        }
+    }
+}
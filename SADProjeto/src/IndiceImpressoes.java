@@ -0,0 +1,265 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice de mensagens conhecidas por uma impressão invariante ao deslocamento
+ *
+ * Deslocar um texto não altera a diferença (mod 26) entre letras consecutivas nem os
+ * caracteres que não são letras, pelo que todas as 26 versões de uma mensagem têm a
+ * mesma impressão: um hash de 64 bits dessa sequência, calculado numa passagem.
+ * Com o índice, a Alínea 1 de um texto cifrado a partir de uma mensagem do corpus é
+ * resolvida com uma procura, em vez de 26 desencriptações e filtros; o deslocamento
+ * sai da diferença entre as primeiras letras. Cada acerto é confirmado desencriptando
+ * o texto e comparando-o com a mensagem guardada, pelo que colisões do hash nunca dão
+ * resultados errados.
+ *
+ * O índice é construído offline a partir de um corpus (uma mensagem por linha) e lido
+ * com memória mapeada: abrir não lê o ficheiro e vários processos que usem o mesmo
+ * índice partilham as páginas em memória. Formato (big-endian):
+ *   cabeçalho: "SADIDX01", número de mensagens (int), número de posições (int, potência de 2)
+ *   posições:  impressão (long, 0 = vazia), início da mensagem (int), comprimento em bytes (int)
+ *   mensagens: texto em UTF-8, já em maiúsculas como sai da desencriptação
+ * A tabela usa endereçamento aberto com ocupação máxima de 50%.
+ *
+ * Utilização (construção):
+ *   java IndiceImpressoes CORPUS INDICE
+ */
+public final class IndiceImpressoes {
+
+    private static final long MAGICO = 0x5341444944583031L;  // "SADIDX01"
+    private static final int CABECALHO = 16;
+    private static final int TAMANHO_POSICAO = 16;
+    private static final int CAPACIDADE_MINIMA = 16;
+
+    private final Path ficheiro;
+    private final ByteBuffer dados;
+    private final int mensagens;
+    private final int mascara;
+    private final int inicioMensagens;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    private IndiceImpressoes(Path ficheiro, ByteBuffer dados, int mensagens, int capacidade) {
+        this.ficheiro = ficheiro;
+        this.dados = dados;
+        this.mensagens = mensagens;
+        this.mascara = capacidade - 1;
+        this.inicioMensagens = CABECALHO + capacidade * TAMANHO_POSICAO;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Utilização: java IndiceImpressoes CORPUS INDICE");
+            System.exit(2);
+        }
+        int total = construir(Path.of(args[0]), Path.of(args[1]));
+        System.err.println("Índice construído: " + total + " mensagens.");
+    }
+
+    /**
+     * Constrói um índice a partir de um corpus com uma mensagem por linha
+     * Linhas sem letras são ignoradas (todos os deslocamentos dão o mesmo texto) e
+     * mensagens repetidas só são guardadas uma vez.
+     * @param corpus Ficheiro UTF-8 com as mensagens em claro
+     * @param destino Ficheiro do índice (substituído se existir)
+     * @return Número de mensagens no índice
+     */
+    public static int construir(Path corpus, Path destino) throws IOException {
+        Set<String> normalizadas = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                if (primeiraLetra(linha) >= 0) {
+                    normalizadas.add(CaesarCipher.desencriptarComDeslocamento(linha, 0));
+                }
+            }
+        }
+
+        int capacidade = Integer.highestOneBit(Math.max(CAPACIDADE_MINIMA, normalizadas.size() * 2 - 1)) << 1;
+        if (capacidade <= 0 || (long) capacidade * TAMANHO_POSICAO > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("O corpus tem demasiadas mensagens para um índice");
+        }
+        ByteBuffer tabela = ByteBuffer.allocate(CABECALHO + capacidade * TAMANHO_POSICAO);
+        tabela.putLong(0, MAGICO).putInt(8, normalizadas.size()).putInt(12, capacidade);
+
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long posicao = tabela.capacity();
+            canal.position(posicao);
+            for (String mensagem : normalizadas) {
+                byte[] bytes = mensagem.getBytes(StandardCharsets.UTF_8);
+                long inicio = posicao - tabela.capacity();
+                if (posicao + bytes.length > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("O corpus é demasiado grande para um índice (máximo 2 GB)");
+                }
+                long impressao = impressao(mensagem);
+                int slot = (int) impressao & (capacidade - 1);
+                while (tabela.getLong(CABECALHO + slot * TAMANHO_POSICAO) != 0) {
+                    slot = (slot + 1) & (capacidade - 1);
+                }
+                int base = CABECALHO + slot * TAMANHO_POSICAO;
+                tabela.putLong(base, impressao).putInt(base + 8, (int) inicio).putInt(base + 12, bytes.length);
+
+                ByteBuffer conteudo = ByteBuffer.wrap(bytes);
+                while (conteudo.hasRemaining()) {
+                    canal.write(conteudo);
+                }
+                posicao += bytes.length;
+            }
+            // A tabela começa no início do ficheiro: a posição no buffer é a posição no ficheiro
+            while (tabela.hasRemaining()) {
+                canal.write(tabela, tabela.position());
+            }
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return normalizadas.size();
+    }
+
+    /**
+     * Abre um índice com memória mapeada (só leitura)
+     * @param ficheiro Ficheiro criado por {@link #construir(Path, Path)}
+     * @return Índice, seguro para partilhar entre threads
+     * @throws IOException Se o ficheiro não existir ou não for um índice válido
+     */
+    public static IndiceImpressoes abrir(Path ficheiro) throws IOException {
+        try (FileChannel canal = FileChannel.open(ficheiro, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < CABECALHO || tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Ficheiro de índice inválido: " + ficheiro);
+            }
+            // O mapeamento continua válido depois de o canal ser fechado
+            ByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho).order(ByteOrder.BIG_ENDIAN);
+            int mensagens = dados.getInt(8);
+            int capacidade = dados.getInt(12);
+            if (dados.getLong(0) != MAGICO || mensagens < 0 || Integer.bitCount(capacidade) != 1
+                    || CABECALHO + (long) capacidade * TAMANHO_POSICAO > tamanho) {
+                throw new IOException("Ficheiro de índice inválido: " + ficheiro);
+            }
+            return new IndiceImpressoes(ficheiro, dados, mensagens, capacidade);
+        }
+    }
+
+    /**
+     * Procura as mensagens do índice de que o texto é uma versão deslocada
+     * @param texto Texto cifrado
+     * @return Hipóteses encontradas por ordem de deslocamento (normalmente uma); vazia se
+     *         nenhuma mensagem do corpus corresponde ou se o texto não tem letras
+     */
+    public List<ContextoCifra.Hipotese> procurar(String texto) {
+        int primeira = primeiraLetra(texto);
+        if (primeira < 0) {
+            falhas.increment();
+            return List.of();
+        }
+        long impressao = impressao(texto);
+        List<ContextoCifra.Hipotese> encontradas = new ArrayList<>(1);
+        int slot = (int) impressao & mascara;
+        long guardada;
+        while ((guardada = dados.getLong(CABECALHO + slot * TAMANHO_POSICAO)) != 0) {
+            if (guardada == impressao) {
+                String mensagem = mensagem(CABECALHO + slot * TAMANHO_POSICAO);
+                int shift = KernelDeslocamento.normalizar(primeira - primeiraLetra(mensagem));
+                String candidato = CaesarCipher.desencriptarComDeslocamento(texto, shift);
+                if (candidato.equals(mensagem)) {
+                    encontradas.add(new ContextoCifra.Hipotese(shift, mensagem));
+                }
+            }
+            slot = (slot + 1) & mascara;
+        }
+        if (encontradas.isEmpty()) {
+            falhas.increment();
+        } else {
+            acertos.increment();
+            encontradas.sort((a, b) -> Integer.compare(a.shift(), b.shift()));
+        }
+        return encontradas;
+    }
+
+    public Path ficheiro() {
+        return ficheiro;
+    }
+
+    public int numeroMensagens() {
+        return mensagens;
+    }
+
+    /**
+     * @return Procuras que encontraram pelo menos uma mensagem
+     */
+    public long acertos() {
+        return acertos.sum();
+    }
+
+    /**
+     * @return Procuras sem mensagem correspondente (resolvidas por força bruta)
+     */
+    public long falhas() {
+        return falhas.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "IndiceImpressoes[" + ficheiro + ", " + mensagens + " mensagens]";
+    }
+
+    private String mensagem(int posicao) {
+        byte[] bytes = new byte[dados.getInt(posicao + 12)];
+        dados.get(inicioMensagens + dados.getInt(posicao + 8), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hash da sequência de diferenças entre letras consecutivas e dos restantes caracteres
+     * Igual para todos os deslocamentos do mesmo texto; nunca é 0 (marca de posição vazia).
+     * @param texto Texto com pelo menos uma letra
+     * @return Impressão de 64 bits
+     */
+    static long impressao(CharSequence texto) {
+        long h = 0xcbf29ce484222325L;
+        int anterior = -1;
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            char c = texto.charAt(i);
+            int codigo = KernelDeslocamento.codigoLetra(c);
+            int valor;
+            if (codigo < 0) {
+                // Fora do intervalo das diferenças (0-25)
+                valor = 26 + c;
+            } else {
+                valor = anterior < 0 ? 0 : KernelDeslocamento.normalizar(codigo - anterior);
+                anterior = codigo;
+            }
+            h = (h ^ valor) * 0x100000001b3L;
+        }
+        // Mistura final para os bits baixos (usados na tabela) dependerem de todo o texto
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private static int primeiraLetra(CharSequence texto) {
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            int codigo = KernelDeslocamento.codigoLetra(texto.charAt(i));
+            if (codigo >= 0) {
+                return codigo;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,255 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Núcleo de desencriptação da Cifra de César sobre buffers fornecidos pelo chamador
+ * Usa 26 tabelas de tradução pré-calculadas (uma por deslocamento), pelo que o loop
+ * interno não aloca objetos nem faz divisões.
+ *
+ * O resultado é idêntico ao de {@link CaesarCipher#desencriptarComDeslocamento(String, int)}:
+ * qualquer letra é convertida para maiúscula e deslocada para trás, os restantes
+ * caracteres ficam inalterados.
+ *
+ * Os caminhos sobre bytes ISO-8859-1 usam, quando disponível, uma implementação
+ * vetorial ({@code KernelVetorial}, sobre jdk.incubator.vector) que só é carregada se
+ * a JVM tiver o módulo e a classe estiver no classpath; caso contrário, ou com
+ * -Dsad.vetorial=false, é usado o loop escalar.
+ */
+public final class KernelDeslocamento {
+
+    // Tabelas para o intervalo ISO-8859-1; acima disso o caractere é calculado diretamente
+    private static final int TAMANHO_TABELA = 256;
+    private static final char[][] TABELAS_CHAR = new char[26][TAMANHO_TABELA];
+    private static final byte[][] TABELAS_BYTE = new byte[26][TAMANHO_TABELA];
+    private static final byte[] CODIGOS = new byte[TAMANHO_TABELA];
+
+    // Abaixo deste tamanho o arranque do loop vetorial não compensa
+    private static final int LIMIAR_VETORIAL = 512;
+    private static final Acelerador ACELERADOR = carregarAcelerador();
+
+    /**
+     * Tradução de bytes por tabela com instruções vetoriais
+     * As tabelas recebidas cumprem {@link #compativelVetorial(byte[])}.
+     */
+    interface Acelerador {
+        void traduzir(byte[] origem, int inicio, int comprimento, byte[] destino, int inicioDestino, byte[] tabela);
+
+        /**
+         * @return Posição da primeira ocorrência do valor no intervalo, ou -1
+         */
+        int indice(byte[] dados, int inicio, int comprimento, byte valor);
+    }
+
+    static {
+        for (int shift = 0; shift < 26; shift++) {
+            for (int c = 0; c < TAMANHO_TABELA; c++) {
+                char decrypted = calcular((char) c, shift);
+                TABELAS_CHAR[shift][c] = decrypted;
+                TABELAS_BYTE[shift][c] = (byte) decrypted;
+            }
+        }
+        for (int c = 0; c < TAMANHO_TABELA; c++) {
+            CODIGOS[c] = (byte) (Character.isLetter((char) c) ? TABELAS_CHAR[0][c] - 'A' : -1);
+        }
+    }
+
+    private KernelDeslocamento() {
+    }
+
+    /**
+     * @return Se os caminhos sobre bytes estão a usar a implementação vetorial
+     */
+    public static boolean vetorial() {
+        return ACELERADOR != null;
+    }
+
+    /**
+     * Normaliza um deslocamento qualquer (incluindo negativos) para 0-25
+     * @param shift Deslocamento
+     * @return Deslocamento equivalente entre 0 e 25
+     */
+    public static int normalizar(int shift) {
+        int s = shift % 26;
+        return s < 0 ? s + 26 : s;
+    }
+
+    /**
+     * Desencripta um único caractere
+     * @param c Caractere cifrado
+     * @param shift Valor do deslocamento
+     * @return Caractere desencriptado
+     */
+    public static char desencriptar(char c, int shift) {
+        int s = normalizar(shift);
+        if (c < TAMANHO_TABELA) {
+            return TABELAS_CHAR[s][c];
+        }
+        return calcular(c, s);
+    }
+
+    /**
+     * Código da letra que o caractere representa para a cifra (A = 0 ... Z = 25)
+     * @param c Caractere
+     * @return Código entre 0 e 25, ou -1 se não for letra
+     */
+    public static int codigoLetra(char c) {
+        if (c < TAMANHO_TABELA) {
+            return CODIGOS[c];
+        }
+        return Character.isLetter(c) ? calcular(c, 0) - 'A' : -1;
+    }
+
+    /**
+     * Código da letra que o byte ISO-8859-1 representa para a cifra (A = 0 ... Z = 25)
+     * @param b Byte
+     * @return Código entre 0 e 25, ou -1 se não for letra
+     */
+    public static int codigoLetra(byte b) {
+        return CODIGOS[b & 0xFF];
+    }
+
+    /**
+     * Desencripta um intervalo de um buffer de caracteres para outro (podem ser o mesmo)
+     * @param origem Buffer com o texto cifrado
+     * @param inicio Posição inicial em origem
+     * @param comprimento Número de caracteres a processar
+     * @param destino Buffer de saída
+     * @param inicioDestino Posição inicial em destino
+     * @param shift Valor do deslocamento
+     */
+    public static void desencriptar(char[] origem, int inicio, int comprimento,
+                                    char[] destino, int inicioDestino, int shift) {
+        int s = normalizar(shift);
+        char[] tabela = TABELAS_CHAR[s];
+        for (int i = 0; i < comprimento; i++) {
+            char c = origem[inicio + i];
+            destino[inicioDestino + i] = c < TAMANHO_TABELA ? tabela[c] : calcular(c, s);
+        }
+    }
+
+    /**
+     * Desencripta um intervalo de bytes ISO-8859-1 para outro buffer (podem ser o mesmo)
+     * @param origem Buffer com o texto cifrado
+     * @param inicio Posição inicial em origem
+     * @param comprimento Número de bytes a processar
+     * @param destino Buffer de saída
+     * @param inicioDestino Posição inicial em destino
+     * @param shift Valor do deslocamento
+     */
+    public static void desencriptar(byte[] origem, int inicio, int comprimento,
+                                    byte[] destino, int inicioDestino, int shift) {
+        byte[] tabela = TABELAS_BYTE[normalizar(shift)];
+        if (ACELERADOR != null && comprimento >= LIMIAR_VETORIAL) {
+            ACELERADOR.traduzir(origem, inicio, comprimento, destino, inicioDestino, tabela);
+        } else {
+            traduzirEscalar(origem, inicio, comprimento, destino, inicioDestino, tabela);
+        }
+    }
+
+    /**
+     * Aplica uma tabela de 256 bytes a um intervalo (origem e destino podem ser o mesmo)
+     * Usa a implementação vetorial quando a tabela trata maiúsculas e minúsculas ASCII
+     * da mesma forma e deixa os restantes caracteres ASCII inalterados, como acontece
+     * com as tabelas de César com ou sem substituição.
+     * @param tabela Tabela indexada pelo byte de origem
+     */
+    public static void traduzir(byte[] origem, int inicio, int comprimento,
+                                byte[] destino, int inicioDestino, byte[] tabela) {
+        if (ACELERADOR != null && comprimento >= LIMIAR_VETORIAL && compativelVetorial(tabela)) {
+            ACELERADOR.traduzir(origem, inicio, comprimento, destino, inicioDestino, tabela);
+        } else {
+            traduzirEscalar(origem, inicio, comprimento, destino, inicioDestino, tabela);
+        }
+    }
+
+    static void traduzirEscalar(byte[] origem, int inicio, int comprimento,
+                                byte[] destino, int inicioDestino, byte[] tabela) {
+        for (int i = 0; i < comprimento; i++) {
+            destino[inicioDestino + i] = tabela[origem[inicio + i] & 0xFF];
+        }
+    }
+
+    /**
+     * Desencripta um texto grande pelo caminho de bytes, se for todo ISO-8859-1
+     * @param text Texto cifrado
+     * @param shift Valor do deslocamento
+     * @return Texto desencriptado, ou null se o caminho de bytes não se aplicar
+     */
+    static String desencriptarLatin1(String text, int shift) {
+        // Um '?' nos bytes indicaria um caractere fora de ISO-8859-1
+        if (ACELERADOR == null || text.length() < LIMIAR_VETORIAL || text.indexOf('?') >= 0) {
+            return null;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        if (ACELERADOR.indice(bytes, 0, bytes.length, (byte) '?') >= 0) {
+            return null;
+        }
+        ACELERADOR.traduzir(bytes, 0, bytes.length, bytes, 0, TABELAS_BYTE[normalizar(shift)]);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    static boolean compativelVetorial(byte[] tabela) {
+        for (int c = 0; c < 128; c++) {
+            boolean letra = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            if (letra ? tabela[c] != tabela[c & 0xDF] : tabela[c] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Acelerador carregarAcelerador() {
+        if ("false".equals(System.getProperty("sad.vetorial"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Acelerador) Class.forName("KernelVetorial").getMethod("criar").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Escreve os 26 deslocamentos de um texto num único buffer contíguo
+     * O deslocamento k ocupa as posições [k * comprimento, (k + 1) * comprimento).
+     * @param origem Buffer com o texto cifrado
+     * @param inicio Posição inicial em origem
+     * @param comprimento Número de caracteres a processar
+     * @param destino Buffer de saída com pelo menos 26 * comprimento posições
+     */
+    public static void desencriptarTodos(char[] origem, int inicio, int comprimento, char[] destino) {
+        verificarDestino(destino.length, comprimento);
+        for (int shift = 0; shift < 26; shift++) {
+            desencriptar(origem, inicio, comprimento, destino, shift * comprimento, shift);
+        }
+    }
+
+    /**
+     * Escreve os 26 deslocamentos de um texto ISO-8859-1 num único buffer contíguo
+     * O deslocamento k ocupa as posições [k * comprimento, (k + 1) * comprimento).
+     * @param origem Buffer com o texto cifrado
+     * @param inicio Posição inicial em origem
+     * @param comprimento Número de bytes a processar
+     * @param destino Buffer de saída com pelo menos 26 * comprimento posições
+     */
+    public static void desencriptarTodos(byte[] origem, int inicio, int comprimento, byte[] destino) {
+        verificarDestino(destino.length, comprimento);
+        for (int shift = 0; shift < 26; shift++) {
+            desencriptar(origem, inicio, comprimento, destino, shift * comprimento, shift);
+        }
+    }
+
+    private static void verificarDestino(int tamanhoDestino, int comprimento) {
+        if ((long) comprimento * 26 > tamanhoDestino) {
+            throw new IllegalArgumentException("O buffer de destino deve ter pelo menos 26 x " + comprimento + " posições");
+        }
+    }
+
+    private static char calcular(char c, int shift) {
+        if (!Character.isLetter(c)) {
+            return c;
+        }
+        char upperChar = Character.toUpperCase(c);
+        return (char) ((upperChar - 'A' - shift + 26) % 26 + 'A');
+    }
+}
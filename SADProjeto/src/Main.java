@@ -2,9 +2,23 @@
  * Programa para desencriptar mensagens cifradas com a Cifra de César
  * Alfabeto usado: [A-Z]
  *
+ * Sem argumentos abre o menu interativo; com --servidor inicia o serviço HTTP
+ * (ver {@link ServicoHttp}); com --trabalhador liga-se a um coordenador de lote
+ * distribuído (ver {@link TrabalhadorLote}); com outros argumentos corre em modo de
+ * lote (ver {@link ProcessamentoLote}).
  */
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            System.exit(ServicoHttp.executar(args));
+        }
+        if (args.length > 0 && args[0].equals("--trabalhador")) {
+            System.exit(TrabalhadorLote.executar(args));
+        }
+        if (args.length > 0) {
+            System.exit(ProcessamentoLote.executar(args));
+        }
+
         Menu menu = new Menu();
         menu.iniciar();
     }
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Mede o tempo de arranque de processos curtos de {@link Main}
+ * Lança o programa várias vezes como processo novo e compara a configuração atual
+ * com o modo de arranque rápido e, se indicado, com um executável nativo.
+ *
+ * Modo de arranque rápido (ficheiro de argumentos arranque/rapido.args):
+ *   jar cfe sadprojeto.jar Main -C out .
+ *   java @arranque/rapido.args -jar sadprojeto.jar --lote ENTRADA --modo alinea1
+ * Usa um arquivo AppCDS dinâmico (criado automaticamente na primeira execução, com as
+ * classes do programa e os lambdas já ligados), apenas o compilador C1 e o Serial GC.
+ * O AppCDS só aceita classes em JAR; se o classpath desta medição for uma pasta,
+ * é empacotada num JAR temporário.
+ *
+ * Executável nativo (GraalVM; a configuração está em META-INF/native-image no classpath):
+ *   native-image -cp out Main sadprojeto
+ *
+ * Utilização:
+ *   java MedicaoArranque [--execucoes 20] [--cds FICHEIRO.jsa] [--nativo EXECUTAVEL]
+ *                        [--saida FICHEIRO] [-- ARGUMENTOS DO MAIN]
+ * Sem argumentos para o Main, mede o modo de lote alinea1 com uma única linha.
+ */
+public class MedicaoArranque {
+
+    // Opções equivalentes a arranque/rapido.args, com o arquivo CDS indicado
+    private static final List<String> OPCOES_RAPIDAS = List.of(
+            "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC");
+
+    /**
+     * Tempos de uma configuração
+     * @param nome Nome da configuração
+     * @param mediana Mediana em milissegundos
+     * @param media Média em milissegundos
+     * @param minimo Mínimo em milissegundos
+     */
+    record Resultado(String nome, double mediana, double media, double minimo) {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int execucoes = 20;
+        Path cds = Path.of("sadprojeto.jsa");
+        String nativo = null;
+        Path saida = null;
+        List<String> argumentos = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--execucoes" -> execucoes = Integer.parseInt(args[++i]);
+                case "--cds" -> cds = Path.of(args[++i]);
+                case "--nativo" -> nativo = args[++i];
+                case "--saida" -> saida = Path.of(args[++i]);
+                case "--" -> {
+                    argumentos.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                    i = args.length;
+                }
+                default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+            }
+        }
+        if (execucoes <= 0) {
+            throw new IllegalArgumentException("O número de execuções deve ser positivo");
+        }
+
+        Path entrada = null;
+        if (argumentos.isEmpty()) {
+            entrada = Files.createTempFile("sad-arranque", ".txt");
+            Files.writeString(entrada, "KHOOR ZRUOG\n", StandardCharsets.UTF_8);
+            argumentos = List.of("--lote", entrada.toString(), "--modo", "alinea1");
+        }
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classpath = System.getProperty("java.class.path");
+        Path jar = null;
+        if (Files.isDirectory(Path.of(classpath))) {
+            jar = empacotar(Path.of(classpath));
+            classpath = jar.toString();
+        }
+
+        try {
+            List<Resultado> resultados = new ArrayList<>();
+            resultados.add(medir("padrão", comando(java, List.of(), classpath, argumentos), execucoes));
+
+            // Execução de treino: grava no arquivo as classes carregadas e os lambdas ligados
+            Files.deleteIfExists(cds);
+            executar(comando(java, List.of("-XX:ArchiveClassesAtExit=" + cds), classpath, argumentos));
+            List<String> rapidas = new ArrayList<>(OPCOES_RAPIDAS);
+            rapidas.add("-XX:SharedArchiveFile=" + cds);
+            resultados.add(medir("appcds", comando(java, List.of("-XX:SharedArchiveFile=" + cds), classpath, argumentos),
+                    execucoes));
+            resultados.add(medir("rápido (appcds+c1+serial)", comando(java, rapidas, classpath, argumentos), execucoes));
+
+            if (nativo != null) {
+                List<String> comandoNativo = new ArrayList<>();
+                comandoNativo.add(nativo);
+                comandoNativo.addAll(argumentos);
+                resultados.add(medir("nativo", comandoNativo, execucoes));
+            }
+
+            List<String> linhas = new ArrayList<>();
+            linhas.add("# java " + System.getProperty("java.version") + ", " + execucoes + " execuções de: Main "
+                    + String.join(" ", argumentos));
+            linhas.add(String.format(Locale.ROOT, "%-28s %12s %12s %12s", "configuração", "mediana ms", "média ms", "mínimo ms"));
+            for (Resultado r : resultados) {
+                linhas.add(String.format(Locale.ROOT, "%-28s %12.1f %12.1f %12.1f", r.nome(), r.mediana(), r.media(), r.minimo()));
+            }
+            linhas.forEach(System.out::println);
+            if (saida != null) {
+                Files.write(saida, linhas, StandardCharsets.UTF_8);
+            }
+        } finally {
+            if (entrada != null) {
+                Files.deleteIfExists(entrada);
+            }
+            if (jar != null) {
+                Files.deleteIfExists(jar);
+            }
+        }
+    }
+
+    private static Path empacotar(Path pasta) throws IOException {
+        Path jar = Files.createTempFile("sadprojeto", ".jar");
+        Manifest manifesto = new Manifest();
+        manifesto.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifesto.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "Main");
+        try (OutputStream saida = Files.newOutputStream(jar);
+             JarOutputStream jarSaida = new JarOutputStream(saida, manifesto);
+             Stream<Path> ficheiros = Files.walk(pasta)) {
+            for (Path ficheiro : (Iterable<Path>) ficheiros.filter(Files::isRegularFile)::iterator) {
+                String nome = pasta.relativize(ficheiro).toString().replace('\\', '/');
+                if (nome.equals("META-INF/MANIFEST.MF")) {
+                    continue;
+                }
+                jarSaida.putNextEntry(new JarEntry(nome));
+                Files.copy(ficheiro, jarSaida);
+                jarSaida.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static List<String> comando(String java, List<String> opcoes, String classpath, List<String> argumentos) {
+        List<String> comando = new ArrayList<>();
+        comando.add(java);
+        comando.addAll(opcoes);
+        comando.add("-cp");
+        comando.add(classpath);
+        comando.add("Main");
+        comando.addAll(argumentos);
+        return comando;
+    }
+
+    static Resultado medir(String nome, List<String> comando, int execucoes) throws IOException, InterruptedException {
+        // Uma execução de aquecimento para a cache de ficheiros do sistema operativo
+        executar(comando);
+        double[] tempos = new double[execucoes];
+        for (int i = 0; i < execucoes; i++) {
+            long inicio = System.nanoTime();
+            executar(comando);
+            tempos[i] = (System.nanoTime() - inicio) / 1e6;
+        }
+        Arrays.sort(tempos);
+        double soma = 0;
+        for (double t : tempos) {
+            soma += t;
+        }
+        double mediana = execucoes % 2 == 1
+                ? tempos[execucoes / 2]
+                : (tempos[execucoes / 2 - 1] + tempos[execucoes / 2]) / 2;
+        return new Resultado(nome, mediana, soma / execucoes, tempos[0]);
+    }
+
+    private static void executar(List<String> comando) throws IOException, InterruptedException {
+        Process processo = new ProcessBuilder(comando)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        processo.getOutputStream().close();
+        int codigo = processo.waitFor();
+        if (codigo != 0) {
+            throw new IllegalStateException("O processo terminou com o código " + codigo + ": " + String.join(" ", comando));
+        }
+    }
+}
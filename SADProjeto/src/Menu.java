@@ -1,7 +1,11 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
 public class Menu {
+    private static final int TAMANHO_PAGINA = 20;
+
     private Scanner scanner;
 
     /**
@@ -34,6 +38,15 @@ public class Menu {
                 case 4:
                     alternarFiltros();
                     break;
+                case 5:
+                    executarAlinea1Classificada();
+                    break;
+                case 6:
+                    desencriptarFicheiro();
+                    break;
+                case 7:
+                    executarAlinea2Paginada();
+                    break;
                 case 0:
                     System.out.println("\nA sair do programa...");
                     System.out.println("Até breve!");
@@ -59,6 +72,9 @@ public class Menu {
         System.out.println("  3 - Desencriptar hash com parâmetros");
         boolean filtrosAtivos = CaesarCipher.filtrosAtivos();
         System.out.println("  4 - " + (filtrosAtivos ? "Desativar filtros de resultados" : "Ativar filtros de resultados"));
+        System.out.println("  5 - Alínea 1 (mais prováveis primeiro)");
+        System.out.println("  6 - Desencriptar ficheiro");
+        System.out.println("  7 - Alínea 2 (resultados paginados)");
         System.out.println("  0 - Sair");
         System.out.println("─────────────────────────────────────────");
         System.out.print("Escolha uma opção: ");
@@ -103,6 +119,45 @@ public class Menu {
         scanner.nextLine();
     }
 
+    /**
+     * Executa a Alínea 1 ordenando os deslocamentos por pontuação estatística
+     * Mostra apenas os mais prováveis, sem usar os filtros de resultados
+     */
+    private void executarAlinea1Classificada() {
+        System.out.println("\n┌────────────────────────────────────────┐");
+        System.out.println("│   ALÍNEA 1 - MAIS PROVÁVEIS PRIMEIRO   │");
+        System.out.println("└────────────────────────────────────────┘");
+
+        System.out.print("Introduza a mensagem cifrada: ");
+        String mensagemCifrada = scanner.nextLine();
+
+        if (mensagemCifrada == null || mensagemCifrada.trim().isEmpty()) {
+            System.out.println("\nErro: A mensagem não pode estar vazia!");
+            return;
+        }
+
+        System.out.print("Número de resultados a mostrar (1-26, ENTER para 5): ");
+        String quantidadeStr = scanner.nextLine().trim();
+        int quantidade = 5;
+        if (!quantidadeStr.isEmpty()) {
+            try {
+                quantidade = Integer.parseInt(quantidadeStr);
+            } catch (NumberFormatException e) {
+                System.out.println("\n[ERRO] Número inválido.");
+                return;
+            }
+            if (quantidade < 1 || quantidade > 26) {
+                System.out.println("\n[ERRO] O número deve estar entre 1 e 26.");
+                return;
+            }
+        }
+
+        CaesarCipher.apresentarMelhoresDesencriptacoes(mensagemCifrada, quantidade);
+
+        System.out.println("Prima ENTER para voltar ao menu...");
+        scanner.nextLine();
+    }
+
     /**
      * Executa a funcionalidade da Alínea 2
      * Desencripta mensagens com dois Salts (um no início e outro no fim)
@@ -133,6 +188,90 @@ public class Menu {
         scanner.nextLine();
     }
 
+    /**
+     * Executa a Alínea 2 com os resultados guardados de forma compacta
+     * Mostra uma página de cada vez, da mensagem mais provável para a menos provável;
+     * só as combinações da página apresentada são desencriptadas.
+     */
+    private void executarAlinea2Paginada() {
+        System.out.println("\n┌────────────────────────────────────────┐");
+        System.out.println("│  ALÍNEA 2 - RESULTADOS PAGINADOS       │");
+        System.out.println("└────────────────────────────────────────┘");
+
+        System.out.print("Introduza a mensagem cifrada: ");
+        String mensagemCifrada = scanner.nextLine();
+
+        if (mensagemCifrada == null || mensagemCifrada.length() < MotorPesquisaSalts.TAMANHO_MINIMO) {
+            System.out.println("\nErro: A mensagem deve ter pelo menos 7 caracteres!");
+            System.out.println("      (3 para Salt1 + 1 para mensagem + 3 para Salt2)");
+            return;
+        }
+
+        ResultadosCompactos resultados = new MotorPesquisaSalts().pesquisarCompacto(mensagemCifrada);
+        if (resultados.vazio()) {
+            System.out.println("\nNenhuma combinação cumpriu os filtros definidos.");
+            System.out.println("Prima ENTER para voltar ao menu...");
+            scanner.nextLine();
+            return;
+        }
+
+        int paginas = resultados.paginas(TAMANHO_PAGINA);
+        int pagina = 0;
+        while (true) {
+            apresentarPagina(resultados, pagina);
+
+            System.out.print("[S] seguinte  [A] anterior  [P n] página  [R n] rank  [ENTER] voltar: ");
+            String comando = scanner.nextLine().trim().toUpperCase();
+            if (comando.isEmpty()) {
+                return;
+            }
+            try {
+                switch (comando.charAt(0)) {
+                    case 'S' -> pagina = Math.min(pagina + 1, paginas - 1);
+                    case 'A' -> pagina = Math.max(pagina - 1, 0);
+                    case 'P' -> {
+                        int numero = Integer.parseInt(comando.substring(1).trim());
+                        if (numero < 1 || numero > paginas) {
+                            System.out.println("\n[ERRO] A página deve estar entre 1 e " + paginas + ".");
+                        } else {
+                            pagina = numero - 1;
+                        }
+                    }
+                    case 'R' -> pagina = resultados.inicioRank(Integer.parseInt(comando.substring(1).trim()))
+                            / TAMANHO_PAGINA;
+                    default -> System.out.println("\nOpção inválida! Tente novamente.");
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("\n[ERRO] Número inválido.");
+            } catch (IllegalArgumentException e) {
+                System.out.println("\n[ERRO] " + e.getMessage());
+            }
+        }
+    }
+
+    private static void apresentarPagina(ResultadosCompactos resultados, int pagina) {
+        int inicio = pagina * TAMANHO_PAGINA;
+        List<MotorPesquisaSalts.ResultadoCombinacao> combinacoes = resultados.pagina(pagina, TAMANHO_PAGINA);
+
+        System.out.println("\n" + "=".repeat(100));
+        System.out.println("Mensagem cifrada: " + resultados.cipherText());
+        System.out.printf("Página %d de %d (%d combinações, %d mensagens)\n", pagina + 1,
+                resultados.paginas(TAMANHO_PAGINA), resultados.tamanho(), resultados.numeroMensagens());
+        System.out.println("-".repeat(100));
+        System.out.println(String.format("%-6s | %-4s | %-18s | %-30s | %-18s",
+                "  Nº  ", "Rank", "Salt1 [shift]", "Mensagem [shift]", "Salt2 [shift]"));
+        System.out.println("-".repeat(100));
+        for (int i = 0; i < combinacoes.size(); i++) {
+            MotorPesquisaSalts.ResultadoCombinacao r = combinacoes.get(i);
+            System.out.printf("%6d | %4d | %-3s [shift=%2d] | %-20s [shift=%2d] | %-3s [shift=%2d]\n",
+                    inicio + i + 1, resultados.rank(inicio + i),
+                    r.salt1(), r.shiftSalt1(),
+                    r.mensagem(), r.shiftMensagem(),
+                    r.salt2(), r.shiftSalt2());
+        }
+        System.out.println("=".repeat(100));
+    }
+
     /**
      * Desencripta hash com parâmetros fornecidos pelo utilizador
      */
@@ -215,6 +354,66 @@ public class Menu {
         scanner.nextLine();
     }
 
+    /**
+     * Desencripta um ficheiro (possivelmente muito grande) para outro ficheiro
+     * Se a deslocação for deixada em branco, é estimada por análise de frequências
+     */
+    private void desencriptarFicheiro() {
+        System.out.println("\n┌────────────────────────────────────────┐");
+        System.out.println("│        DESENCRIPTAR FICHEIRO          │");
+        System.out.println("└────────────────────────────────────────┘");
+
+        System.out.print("Ficheiro cifrado: ");
+        String entradaStr = scanner.nextLine().trim();
+        System.out.print("Ficheiro de destino: ");
+        String saidaStr = scanner.nextLine().trim();
+        if (entradaStr.isEmpty() || saidaStr.isEmpty()) {
+            System.out.println("\n[ERRO] Indique o ficheiro cifrado e o ficheiro de destino.");
+            return;
+        }
+
+        System.out.print("Deslocação de César (0-25, ENTER para estimar): ");
+        String deslocamentoStr = scanner.nextLine().trim();
+
+        System.out.print("Alfabeto de substituição (26 letras, ENTER se não houver): ");
+        String alfabeto = scanner.nextLine().trim();
+        if (!alfabeto.isEmpty() && alfabeto.length() != 26) {
+            System.out.println("\n[ERRO] O alfabeto de substituição deve ter exatamente 26 letras.");
+            return;
+        }
+
+        try {
+            Path entrada = Path.of(entradaStr);
+            Path saida = Path.of(saidaStr);
+            // Verificado antes da estimativa, que lê o ficheiro inteiro
+            if (DesencriptacaoFicheiros.mesmoFicheiro(entrada, saida)) {
+                throw new IllegalArgumentException("O ficheiro de destino não pode ser o ficheiro cifrado");
+            }
+            int deslocamento;
+            if (deslocamentoStr.isEmpty()) {
+                deslocamento = DesencriptacaoFicheiros.estimarDeslocamentos(entrada).get(0).shift();
+                System.out.println("Deslocação estimada: " + deslocamento);
+            } else {
+                deslocamento = Integer.parseInt(deslocamentoStr);
+            }
+
+            long inicio = System.nanoTime();
+            long bytes = DesencriptacaoFicheiros.desencriptar(entrada, saida, deslocamento,
+                    alfabeto.isEmpty() ? null : alfabeto, DesencriptacaoFicheiros.TAMANHO_BLOCO_PADRAO);
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("\nProcessados %d bytes em %.2f s\n", bytes, segundos);
+        } catch (NumberFormatException e) {
+            System.out.println("\n[ERRO] Deslocação inválida.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("\n[ERRO] " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println("\n[ERRO] Não foi possível processar o ficheiro: " + e.getMessage());
+        }
+
+        System.out.println("\nPrima ENTER para voltar ao menu...");
+        scanner.nextLine();
+    }
+
     private void alternarFiltros() {
         boolean estadoAtual = CaesarCipher.filtrosAtivos();
         CaesarCipher.definirFiltrosAtivos(!estadoAtual);
@@ -0,0 +1,387 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Métricas das etapas críticas da desencriptação
+ * Cada etapa tem um contador de chamadas e um histograma de latências log-linear
+ * (ao estilo do HdrHistogram, com erro relativo inferior a 7%). Para manter o custo
+ * abaixo de 1% as etapas muito curtas (o filtro, o pepper, o salt e a própria hash)
+ * só são cronometradas numa amostra das chamadas; a pesquisa de combinações é sempre
+ * cronometrada. As etapas marcadas medem também os bytes alocados pela thread que as executa,
+ * nas mesmas chamadas amostradas; o total reportado é extrapolado para todas as chamadas.
+ *
+ * As métricas podem ser consultadas por JMX ({@link #registarJmx()}) ou escritas
+ * periodicamente em texto ({@link #iniciarRelatorio}). Desativam-se com
+ * -Dsad.metricas=false.
+ */
+public final class Metricas {
+
+    static final boolean ATIVAS = !"false".equals(System.getProperty("sad.metricas"));
+
+    private static final String DOMINIO_JMX = "SADProjeto";
+
+    /**
+     * Etapas instrumentadas
+     */
+    public enum Etapa {
+        /** Filtro de plausibilidade ({@code textoValido}) */
+        FILTRO(64, false),
+        /** Enumeração dos peppers possíveis de uma hash */
+        PEPPER(64, false),
+        /** Enumeração dos salts possíveis de uma hash */
+        SALT(64, false),
+        /** Pesquisa das combinações salt/mensagem/salt da Alínea 2 */
+        COMBINACOES(1, true),
+        /** Desencriptação completa de uma hash */
+        HASH(16, true);
+
+        private final int amostragem;
+        private final boolean alocacao;
+        private final LongAdder chamadas = new LongAdder();
+        private final LongAdder bytesAlocados = new LongAdder();
+        private final Histograma latencias = new Histograma();
+
+        Etapa(int amostragem, boolean alocacao) {
+            this.amostragem = amostragem;
+            this.alocacao = alocacao;
+        }
+    }
+
+    /**
+     * Atributos JMX de uma etapa
+     */
+    public interface EtapaMBean {
+        long getChamadas();
+        long getAmostras();
+        double getMediaMicros();
+        double getP50Micros();
+        double getP99Micros();
+        double getMaximoMicros();
+        long getBytesAlocados();
+    }
+
+    /**
+     * Atributos e operações JMX globais
+     */
+    public interface ContadoresMBean {
+        long getCandidatosTestados();
+        long getCandidatosAceites();
+        String getRelatorio();
+        void reiniciar();
+    }
+
+    private static final LongAdder CANDIDATOS_TESTADOS = new LongAdder();
+    private static final LongAdder CANDIDATOS_ACEITES = new LongAdder();
+    private static final ThreadLocal<long[]> ALOCADO_INICIO =
+            ThreadLocal.withInitial(() -> new long[Etapa.values().length]);
+
+    private static ScheduledExecutorService relatorio;
+
+    private Metricas() {
+    }
+
+    /**
+     * Marca o início de uma etapa
+     * @return Instante de início, ou 0 se esta chamada não for cronometrada
+     */
+    public static long inicio(Etapa etapa) {
+        if (!ATIVAS) {
+            return 0;
+        }
+        etapa.chamadas.increment();
+        if (etapa.amostragem > 1 && ThreadLocalRandom.current().nextInt(etapa.amostragem) != 0) {
+            return 0;
+        }
+        if (etapa.alocacao && Alocacao.SUPORTADA) {
+            ALOCADO_INICIO.get()[etapa.ordinal()] = alocadoPelaThread();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Marca o fim de uma etapa iniciada com {@link #inicio}
+     */
+    public static void fim(Etapa etapa, long inicio) {
+        if (inicio == 0) {
+            return;
+        }
+        etapa.latencias.registar(System.nanoTime() - inicio);
+        if (etapa.alocacao && Alocacao.SUPORTADA) {
+            etapa.bytesAlocados.add(alocadoPelaThread() - ALOCADO_INICIO.get()[etapa.ordinal()]);
+        }
+    }
+
+    /**
+     * Conta um candidato avaliado pelo filtro
+     * @param aceite Se o candidato passou no filtro
+     */
+    public static void candidato(boolean aceite) {
+        if (!ATIVAS) {
+            return;
+        }
+        CANDIDATOS_TESTADOS.increment();
+        if (aceite) {
+            CANDIDATOS_ACEITES.increment();
+        }
+    }
+
+    public static void reiniciar() {
+        CANDIDATOS_TESTADOS.reset();
+        CANDIDATOS_ACEITES.reset();
+        for (Etapa etapa : Etapa.values()) {
+            etapa.chamadas.reset();
+            etapa.bytesAlocados.reset();
+            etapa.latencias.reiniciar();
+        }
+    }
+
+    /**
+     * @return Resumo em texto de todas as etapas e contadores
+     */
+    public static String relatorio() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-12s %12s %10s %10s %10s %10s %10s %14s%n",
+                "etapa", "chamadas", "amostras", "media_us", "p50_us", "p99_us", "max_us", "bytes_alocados"));
+        for (Etapa etapa : Etapa.values()) {
+            Histograma h = etapa.latencias;
+            sb.append(String.format(Locale.ROOT, "%-12s %12d %10d %10.2f %10.2f %10.2f %10.2f %14d%n",
+                    etapa.name().toLowerCase(Locale.ROOT), etapa.chamadas.sum(), h.amostras(),
+                    h.media() / 1e3, h.percentil(0.50) / 1e3, h.percentil(0.99) / 1e3, h.maximo() / 1e3,
+                    bytesAlocados(etapa)));
+        }
+        sb.append("candidatos testados=").append(CANDIDATOS_TESTADOS.sum())
+                .append(" aceites=").append(CANDIDATOS_ACEITES.sum());
+        return sb.toString();
+    }
+
+    /**
+     * Regista as métricas no servidor de MBeans da plataforma (domínio SADProjeto)
+     * Chamadas repetidas não têm efeito.
+     */
+    public static synchronized void registarJmx() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName global = new ObjectName(DOMINIO_JMX + ":type=Metricas");
+            if (servidor.isRegistered(global)) {
+                return;
+            }
+            servidor.registerMBean(new StandardMBean(new Contadores(), ContadoresMBean.class), global);
+            for (Etapa etapa : Etapa.values()) {
+                servidor.registerMBean(new StandardMBean(new VistaEtapa(etapa), EtapaMBean.class),
+                        new ObjectName(DOMINIO_JMX + ":type=Etapa,name=" + etapa.name().toLowerCase(Locale.ROOT)));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Não foi possível registar as métricas em JMX", e);
+        }
+    }
+
+    /**
+     * Escreve o relatório periodicamente numa thread daemon
+     * @param intervaloSegundos Intervalo entre relatórios
+     * @param destino Destino de cada relatório (por exemplo System.err::println)
+     */
+    public static synchronized void iniciarRelatorio(long intervaloSegundos, Consumer<String> destino) {
+        if (intervaloSegundos <= 0) {
+            throw new IllegalArgumentException("O intervalo do relatório deve ser positivo");
+        }
+        if (relatorio != null) {
+            relatorio.shutdownNow();
+        }
+        relatorio = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "metricas-relatorio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relatorio.scheduleAtFixedRate(() -> destino.accept(relatorio()),
+                intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Bytes alocados estimados para todas as chamadas da etapa
+     * A alocação só é medida nas chamadas amostradas, pelo que a soma medida é escalada pela
+     * proporção entre chamadas e amostras (exata nas etapas sem amostragem).
+     */
+    static long bytesAlocados(Etapa etapa) {
+        long amostras = etapa.latencias.amostras();
+        long medidos = etapa.bytesAlocados.sum();
+        return amostras == 0 ? 0 : Math.round((double) medidos * etapa.chamadas.sum() / amostras);
+    }
+
+    private static long alocadoPelaThread() {
+        return ((com.sun.management.ThreadMXBean) Alocacao.THREADS).getCurrentThreadAllocatedBytes();
+    }
+
+    // Só carrega java.lang.management quando uma etapa com alocação é cronometrada (arranque mais rápido)
+    private static final class Alocacao {
+        static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+        static final boolean SUPORTADA = THREADS instanceof com.sun.management.ThreadMXBean t
+                && t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Histograma concorrente de valores positivos (nanossegundos)
+     * Os valores abaixo de 16 têm balde próprio; acima disso cada potência de 2 é
+     * dividida em 16 baldes, pelo que a resolução relativa é constante.
+     */
+    static final class Histograma {
+        private static final int SUB_BALDES = 16;
+        private static final int BALDES = (63 - 3) * SUB_BALDES;
+
+        private final AtomicLongArray contagens = new AtomicLongArray(BALDES);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder soma = new LongAdder();
+        private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+        void registar(long valor) {
+            long v = Math.max(0, valor);
+            contagens.incrementAndGet(balde(v));
+            total.increment();
+            soma.add(v);
+            maximo.accumulate(v);
+        }
+
+        long amostras() {
+            return total.sum();
+        }
+
+        double media() {
+            long n = total.sum();
+            return n == 0 ? 0 : (double) soma.sum() / n;
+        }
+
+        long maximo() {
+            return maximo.get();
+        }
+
+        /**
+         * @param quantil Entre 0 e 1
+         * @return Valor representativo (meio do balde) do quantil pedido
+         */
+        double percentil(double quantil) {
+            long n = 0;
+            for (int i = 0; i < BALDES; i++) {
+                n += contagens.get(i);
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long alvo = Math.max(1, (long) Math.ceil(quantil * n));
+            long acumulado = 0;
+            for (int i = 0; i < BALDES; i++) {
+                acumulado += contagens.get(i);
+                if (acumulado >= alvo) {
+                    return Math.min(inicioBalde(i) + larguraBalde(i) / 2.0, maximo());
+                }
+            }
+            return maximo();
+        }
+
+        void reiniciar() {
+            for (int i = 0; i < BALDES; i++) {
+                contagens.set(i, 0);
+            }
+            total.reset();
+            soma.reset();
+            maximo.reset();
+        }
+
+        static int balde(long v) {
+            if (v < SUB_BALDES) {
+                return (int) v;
+            }
+            int bit = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (bit - 4)) & (SUB_BALDES - 1);
+            return (bit - 3) * SUB_BALDES + sub;
+        }
+
+        static long inicioBalde(int balde) {
+            if (balde < SUB_BALDES) {
+                return balde;
+            }
+            int bit = balde / SUB_BALDES + 3;
+            return (long) (SUB_BALDES + balde % SUB_BALDES) << (bit - 4);
+        }
+
+        static long larguraBalde(int balde) {
+            return balde < SUB_BALDES ? 1 : 1L << (balde / SUB_BALDES - 1);
+        }
+    }
+
+    private static final class VistaEtapa implements EtapaMBean {
+        private final Etapa etapa;
+
+        VistaEtapa(Etapa etapa) {
+            this.etapa = etapa;
+        }
+
+        @Override
+        public long getChamadas() {
+            return etapa.chamadas.sum();
+        }
+
+        @Override
+        public long getAmostras() {
+            return etapa.latencias.amostras();
+        }
+
+        @Override
+        public double getMediaMicros() {
+            return etapa.latencias.media() / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return etapa.latencias.percentil(0.50) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return etapa.latencias.percentil(0.99) / 1e3;
+        }
+
+        @Override
+        public double getMaximoMicros() {
+            return etapa.latencias.maximo() / 1e3;
+        }
+
+        @Override
+        public long getBytesAlocados() {
+            return bytesAlocados(etapa);
+        }
+    }
+
+    private static final class Contadores implements ContadoresMBean {
+        @Override
+        public long getCandidatosTestados() {
+            return CANDIDATOS_TESTADOS.sum();
+        }
+
+        @Override
+        public long getCandidatosAceites() {
+            return CANDIDATOS_ACEITES.sum();
+        }
+
+        @Override
+        public String getRelatorio() {
+            return relatorio();
+        }
+
+        @Override
+        public void reiniciar() {
+            Metricas.reiniciar();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Pontuação pela log-probabilidade média de trigramas (e bigramas em palavras de
+ * duas letras) de um idioma
+ * Os n-gramas não atravessam separadores, pelo que cada palavra é avaliada isoladamente.
+ */
+public class ModeloNGramas implements ModeloPontuacao {
+
+    private final PerfilIdioma perfil;
+
+    public ModeloNGramas(PerfilIdioma perfil) {
+        this.perfil = perfil;
+    }
+
+    @Override
+    public double pontuar(int[] letras, int comprimento) {
+        double soma = 0;
+        int ngramas = 0;
+        int tamanhoPalavra = 0;
+
+        for (int i = 0; i <= comprimento; i++) {
+            int c = i < comprimento ? letras[i] : SEPARADOR;
+            if (c == SEPARADOR) {
+                // Palavra de duas letras: não tem trigramas, conta o bigrama
+                if (tamanhoPalavra == 2) {
+                    soma += perfil.logBigrama(letras[i - 2], letras[i - 1]);
+                    ngramas++;
+                }
+                tamanhoPalavra = 0;
+                continue;
+            }
+            tamanhoPalavra++;
+            if (tamanhoPalavra >= 3) {
+                soma += perfil.logTrigrama(letras[i - 2], letras[i - 1], c);
+                ngramas++;
+            }
+        }
+
+        if (ngramas == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return soma / ngramas;
+    }
+}
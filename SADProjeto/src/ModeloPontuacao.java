@@ -0,0 +1,65 @@
+/**
+ * Modelo de pontuação de textos candidatos (quanto maior, mais provável ser texto real)
+ * Os modelos trabalham sobre arrays de códigos de letra: A = 0 ... Z = 25 e
+ * {@link #SEPARADOR} para qualquer outro caractere.
+ */
+public interface ModeloPontuacao {
+
+    int SEPARADOR = -1;
+
+    /**
+     * Pontua um texto já codificado
+     * @param letras Códigos de letra (0-25) ou {@link #SEPARADOR}
+     * @param comprimento Número de posições válidas em letras
+     * @return Pontuação (maior é melhor)
+     */
+    double pontuar(int[] letras, int comprimento);
+
+    /**
+     * Pontua um texto, codificando-o primeiro
+     * @param texto Texto candidato
+     * @return Pontuação (maior é melhor)
+     */
+    default double pontuar(CharSequence texto) {
+        int[] letras = new int[texto.length()];
+        return pontuar(letras, codificar(texto, letras));
+    }
+
+    /**
+     * Converte um texto em códigos de letra
+     * Usa os códigos da cifra ({@link KernelDeslocamento#codigoLetra(char)}), tal como
+     * {@link ClassificadorCandidatos} ao pontuar os deslocamentos de um texto cifrado, para que
+     * um texto tenha a mesma pontuação pelos dois caminhos (também com letras acentuadas).
+     * @param texto Texto a codificar
+     * @param destino Array com pelo menos texto.length() posições
+     * @return Número de posições escritas
+     */
+    static int codificar(CharSequence texto, int[] destino) {
+        int n = texto.length();
+        for (int i = 0; i < n; i++) {
+            destino[i] = KernelDeslocamento.codigoLetra(texto.charAt(i));
+        }
+        return n;
+    }
+
+    /**
+     * @param modelos Modelos alternativos (por exemplo, um por idioma)
+     * @return Modelo que devolve a melhor pontuação entre os indicados
+     */
+    static ModeloPontuacao melhorDe(ModeloPontuacao... modelos) {
+        return (letras, comprimento) -> {
+            double melhor = Double.NEGATIVE_INFINITY;
+            for (ModeloPontuacao modelo : modelos) {
+                melhor = Math.max(melhor, modelo.pontuar(letras, comprimento));
+            }
+            return melhor;
+        };
+    }
+
+    /**
+     * @return Modelo por omissão: n-gramas em português ou inglês, o que pontuar melhor
+     */
+    static ModeloPontuacao padrao() {
+        return melhorDe(new ModeloNGramas(PerfilIdioma.PORTUGUES), new ModeloNGramas(PerfilIdioma.INGLES));
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Pontuação pela estatística qui-quadrado entre as frequências de letras do texto
+ * e as esperadas para um idioma
+ * Devolve o qui-quadrado com sinal negativo, para que maior continue a ser melhor.
+ */
+public class ModeloQuiQuadrado implements ModeloPontuacao {
+
+    private final PerfilIdioma perfil;
+
+    public ModeloQuiQuadrado(PerfilIdioma perfil) {
+        this.perfil = perfil;
+    }
+
+    @Override
+    public double pontuar(int[] letras, int comprimento) {
+        int[] contagens = new int[26];
+        int total = 0;
+        for (int i = 0; i < comprimento; i++) {
+            int letra = letras[i];
+            if (letra != SEPARADOR) {
+                contagens[letra]++;
+                total++;
+            }
+        }
+        return -quiQuadrado(contagens, total, perfil, 0);
+    }
+
+    /**
+     * Qui-quadrado de um histograma rodado por um deslocamento
+     * @param contagens Histograma de 26 posições
+     * @param total Soma do histograma
+     * @param perfil Idioma de referência
+     * @param shift A letra i do texto conta como a letra (i - shift) mod 26
+     * @return Valor do qui-quadrado (menor é melhor)
+     */
+    static double quiQuadrado(int[] contagens, int total, PerfilIdioma perfil, int shift) {
+        if (total == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double soma = 0;
+        for (int i = 0; i < 26; i++) {
+            double esperado = perfil.frequencia(i) * total;
+            double diferenca = contagens[(i + shift) % 26] - esperado;
+            soma += diferenca * diferenca / esperado;
+        }
+        return soma;
+    }
+}
@@ -0,0 +1,185 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Motor de pesquisa para a Alínea 2 (Caesar com Salts)
+ * Cada uma das 26 hipóteses da mensagem é desencriptada e filtrada uma única vez;
+ * só as que passam nos filtros são combinadas com os 26 x 26 deslocamentos dos salts.
+ * É o caso particular de {@link MotorSegmentos} com o esquema "3,M,3".
+ */
+public class MotorPesquisaSalts {
+
+    public static final int TAMANHO_SALT = 3;
+    public static final int TAMANHO_MINIMO = 2 * TAMANHO_SALT + 1;
+    public static final int TOTAL_COMBINACOES = 26 * 26 * 26;
+
+    // A partir deste tamanho de mensagem compensa dividir os 26 deslocamentos pelos núcleos
+    private static final int LIMIAR_PARALELO = 4096;
+
+    /**
+     * Uma combinação (salt1, mensagem, salt2) com os respetivos deslocamentos
+     */
+    public record ResultadoCombinacao(int shiftSalt1, String salt1,
+                                      int shiftMensagem, String mensagem,
+                                      int shiftSalt2, String salt2) implements Serializable {}
+
+    private final boolean filtrosAtivos;
+
+    /**
+     * Cria um motor com o estado atual dos filtros de {@link CaesarCipher}
+     */
+    public MotorPesquisaSalts() {
+        this(CaesarCipher.filtrosAtivos());
+    }
+
+    /**
+     * @param filtrosAtivos Se verdadeiro, só as mensagens que cumprem os filtros são combinadas
+     */
+    public MotorPesquisaSalts(boolean filtrosAtivos) {
+        this.filtrosAtivos = filtrosAtivos;
+    }
+
+    public boolean isFiltrosAtivos() {
+        return filtrosAtivos;
+    }
+
+    /**
+     * Pesquisa todas as combinações de deslocamentos de uma mensagem com salts
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @return Combinações aceites, pela mesma ordem do loop triplo (salt1, mensagem, salt2)
+     */
+    public List<ResultadoCombinacao> pesquisar(String cipherText) {
+        return pesquisar(cipherText, cipherText != null && cipherText.length() >= LIMIAR_PARALELO);
+    }
+
+    /**
+     * Pesquisa um lote de mensagens, distribuindo as mensagens pelos núcleos disponíveis
+     * @param cifras Textos cifrados
+     * @return Resultados de cada mensagem, pela ordem de entrada
+     */
+    public List<List<ResultadoCombinacao>> pesquisarLote(List<String> cifras) {
+        return cifras.parallelStream()
+                .map(cifra -> pesquisar(cifra, false))
+                .toList();
+    }
+
+    /**
+     * Pesquisa as combinações das K mensagens mais prováveis segundo um modelo de pontuação
+     * Não aplica os filtros por regex; a mensagem mais provável aparece primeiro.
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @param k Número de hipóteses da mensagem a manter
+     * @param modelo Modelo de pontuação
+     * @return Combinações ordenadas por mensagem (melhor primeiro), depois por salt1 e salt2
+     */
+    public List<ResultadoCombinacao> pesquisarMelhores(String cipherText, int k, ModeloPontuacao modelo) {
+        validar(cipherText);
+
+        String[] salts1 = CaesarCipher.desencriptarTodosDeslocamentos(cipherText.substring(0, TAMANHO_SALT));
+        String[] salts2 = CaesarCipher.desencriptarTodosDeslocamentos(cipherText.substring(cipherText.length() - TAMANHO_SALT));
+        String mensagemCifrada = cipherText.substring(TAMANHO_SALT, cipherText.length() - TAMANHO_SALT);
+
+        List<ClassificadorCandidatos.Candidato> melhores =
+                new ClassificadorCandidatos(modelo).classificarDeslocamentos(mensagemCifrada, k);
+
+        List<ResultadoCombinacao> resultados = new ArrayList<>(melhores.size() * 26 * 26);
+        for (ClassificadorCandidatos.Candidato candidato : melhores) {
+            for (int shiftSalt1 = 0; shiftSalt1 < 26; shiftSalt1++) {
+                for (int shiftSalt2 = 0; shiftSalt2 < 26; shiftSalt2++) {
+                    resultados.add(new ResultadoCombinacao(
+                            shiftSalt1, salts1[shiftSalt1],
+                            candidato.shift(), candidato.texto(),
+                            shiftSalt2, salts2[shiftSalt2]));
+                }
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Pesquisa todas as combinações e guarda-as de forma compacta, para apresentar por páginas
+     * Cada combinação ocupa 2 bytes; os textos só são desencriptados quando apresentados.
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @return Combinações aceites, da mensagem mais provável para a menos provável
+     */
+    public ResultadosCompactos pesquisarCompacto(String cipherText) {
+        return pesquisarCompacto(cipherText, ModeloPontuacao.padrao());
+    }
+
+    /**
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @param modelo Modelo de pontuação que ordena as mensagens
+     * @return Combinações aceites, da mensagem mais provável para a menos provável
+     */
+    public ResultadosCompactos pesquisarCompacto(String cipherText, ModeloPontuacao modelo) {
+        validar(cipherText);
+
+        long inicio = Metricas.inicio(Metricas.Etapa.COMBINACOES);
+        try {
+            return new ResultadosCompactos(cipherText, filtrosAtivos, modelo);
+        } finally {
+            Metricas.fim(Metricas.Etapa.COMBINACOES, inicio);
+        }
+    }
+
+    /**
+     * Versão preguiçosa de {@link #pesquisar(String)}: as combinações são produzidas a pedido
+     * e cada hipótese da mensagem só é filtrada quando a primeira combinação que a usa é pedida.
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @return Combinações aceites, pela mesma ordem de {@link #pesquisar(String)}
+     */
+    public Stream<ResultadoCombinacao> combinacoes(String cipherText) {
+        validar(cipherText);
+        return combinacoes(cipherText, IntStream.range(0, 26).toArray(), false);
+    }
+
+    /**
+     * Versão preguiçosa de {@link #pesquisarMelhores}, com todas as mensagens e os filtros deste motor
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @param modelo Modelo de pontuação
+     * @return Combinações ordenadas por mensagem (melhor primeiro), depois por salt1 e salt2
+     */
+    public Stream<ResultadoCombinacao> combinacoes(String cipherText, ModeloPontuacao modelo) {
+        validar(cipherText);
+        String mensagemCifrada = cipherText.substring(TAMANHO_SALT, cipherText.length() - TAMANHO_SALT);
+        return combinacoes(cipherText, new ClassificadorCandidatos(modelo).ordenarDeslocamentos(mensagemCifrada), true);
+    }
+
+    private Stream<ResultadoCombinacao> combinacoes(String cipherText, int[] ordem, boolean mensagemPrimeiro) {
+        return StreamSupport.stream(
+                new FluxoCandidatos.Combinacoes(cipherText, ordem, mensagemPrimeiro, filtrosAtivos), false);
+    }
+
+    private static void validar(String cipherText) {
+        if (cipherText == null || cipherText.length() < TAMANHO_MINIMO) {
+            throw new IllegalArgumentException("A mensagem deve ter pelo menos " + TAMANHO_MINIMO + " caracteres");
+        }
+    }
+
+    private List<ResultadoCombinacao> pesquisar(String cipherText, boolean paralelo) {
+        validar(cipherText);
+
+        long inicio = Metricas.inicio(Metricas.Etapa.COMBINACOES);
+        try {
+            return combinar(cipherText, paralelo);
+        } finally {
+            Metricas.fim(Metricas.Etapa.COMBINACOES, inicio);
+        }
+    }
+
+    private List<ResultadoCombinacao> combinar(String cipherText, boolean paralelo) {
+        MotorSegmentos.Pesquisa pesquisa =
+                new MotorSegmentos(EsquemaSegmentos.PADRAO, filtrosAtivos).pesquisar(cipherText, paralelo);
+
+        long aceites = pesquisa.combinacoesAceites();
+        List<ResultadoCombinacao> resultados = new ArrayList<>((int) aceites);
+        pesquisa.paraCada(c -> resultados.add(new ResultadoCombinacao(
+                c.shifts()[0], c.partes()[0],
+                c.shifts()[1], c.partes()[1],
+                c.shifts()[2], c.partes()[2])));
+        return resultados;
+    }
+}
@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Motor de pesquisa para textos com qualquer número de salts ({@link EsquemaSegmentos})
+ *
+ * Os deslocamentos dos segmentos são independentes e só a mensagem passa pelos
+ * filtros, pelo que o espaço de chaves se fatoriza: cada segmento é desencriptado
+ * com os seus 26 deslocamentos uma única vez e o resultado guarda as hipóteses de
+ * cada segmento em separado. O custo da pesquisa é proporcional à soma dos espaços
+ * de chaves dos segmentos; o produto só é percorrido por quem enumera as combinações.
+ */
+public class MotorSegmentos {
+
+    // A partir deste tamanho de mensagem compensa dividir os 26 deslocamentos pelos núcleos
+    private static final int LIMIAR_PARALELO = 4096;
+
+    // Maior array que as JVMs costumam aceitar
+    private static final long TAMANHO_MAXIMO_ARRAY = Integer.MAX_VALUE - 8;
+
+    /**
+     * Hipótese de desencriptação de um segmento
+     * @param shift Deslocamento
+     * @param texto Segmento desencriptado
+     */
+    public record Parte(int shift, String texto) {}
+
+    /**
+     * Uma combinação com um deslocamento por segmento
+     * @param shifts Deslocamento de cada segmento
+     * @param partes Texto desencriptado de cada segmento
+     */
+    public record Combinacao(int[] shifts, String[] partes) {}
+
+    /**
+     * Resultado fatorizado da pesquisa: as hipóteses aceites de cada segmento
+     */
+    public static final class Pesquisa {
+        private final EsquemaSegmentos esquema;
+        private final List<List<Parte>> partes;
+
+        Pesquisa(EsquemaSegmentos esquema, List<List<Parte>> partes) {
+            this.esquema = esquema;
+            this.partes = partes;
+        }
+
+        public EsquemaSegmentos esquema() {
+            return esquema;
+        }
+
+        /**
+         * @param segmento Índice do segmento
+         * @return Hipóteses aceites do segmento, por ordem de deslocamento
+         */
+        public List<Parte> partes(int segmento) {
+            return partes.get(segmento);
+        }
+
+        /**
+         * @return Hipóteses aceites da mensagem
+         */
+        public List<Parte> mensagens() {
+            return partes.get(esquema.indiceMensagem());
+        }
+
+        /**
+         * @return 26 elevado ao número de segmentos (satura em Long.MAX_VALUE)
+         */
+        public long totalCombinacoes() {
+            return produto(26, partes.size());
+        }
+
+        /**
+         * @return Número de combinações aceites (satura em Long.MAX_VALUE)
+         */
+        public long combinacoesAceites() {
+            long total = 1;
+            for (List<Parte> segmento : partes) {
+                total = multiplicar(total, segmento.size());
+            }
+            return total;
+        }
+
+        /**
+         * Percorre as combinações aceites pela ordem dos loops encaixados
+         * (o primeiro segmento varia mais devagar). Os arrays da combinação são
+         * reutilizados entre chamadas; copie-os se precisar de os guardar.
+         * @param acao Ação aplicada a cada combinação
+         */
+        public void paraCada(Consumer<Combinacao> acao) {
+            int n = partes.size();
+            for (List<Parte> segmento : partes) {
+                if (segmento.isEmpty()) {
+                    return;
+                }
+            }
+            int[] indices = new int[n];
+            int[] shifts = new int[n];
+            String[] textos = new String[n];
+            Combinacao combinacao = new Combinacao(shifts, textos);
+
+            while (true) {
+                for (int s = 0; s < n; s++) {
+                    Parte parte = partes.get(s).get(indices[s]);
+                    shifts[s] = parte.shift();
+                    textos[s] = parte.texto();
+                }
+                acao.accept(combinacao);
+
+                int s = n - 1;
+                while (s >= 0 && ++indices[s] == partes.get(s).size()) {
+                    indices[s] = 0;
+                    s--;
+                }
+                if (s < 0) {
+                    return;
+                }
+            }
+        }
+
+        private static long produto(long base, int expoente) {
+            long total = 1;
+            for (int i = 0; i < expoente; i++) {
+                total = multiplicar(total, base);
+            }
+            return total;
+        }
+
+        private static long multiplicar(long a, long b) {
+            try {
+                return Math.multiplyExact(a, b);
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+    }
+
+    private final EsquemaSegmentos esquema;
+    private final boolean filtrosAtivos;
+
+    /**
+     * @param esquema Disposição dos segmentos
+     * @param filtrosAtivos Se verdadeiro, só as mensagens que cumprem os filtros são aceites
+     */
+    public MotorSegmentos(EsquemaSegmentos esquema, boolean filtrosAtivos) {
+        this.esquema = esquema;
+        this.filtrosAtivos = filtrosAtivos;
+    }
+
+    public EsquemaSegmentos esquema() {
+        return esquema;
+    }
+
+    /**
+     * Desencripta cada segmento com o seu deslocamento
+     * @param cipherText Texto cifrado
+     * @param shifts Um deslocamento por segmento
+     * @return Texto desencriptado de cada segmento
+     */
+    public String[] desencriptar(String cipherText, int... shifts) {
+        if (shifts.length != esquema.numeroSegmentos()) {
+            throw new IllegalArgumentException("Indique um deslocamento por segmento (" + esquema.numeroSegmentos() + ")");
+        }
+        int[] limites = esquema.limites(cipherText.length());
+        String[] partes = new String[shifts.length];
+        for (int s = 0; s < shifts.length; s++) {
+            partes[s] = CaesarCipher.desencriptarComDeslocamento(cipherText.substring(limites[s], limites[s + 1]), shifts[s]);
+        }
+        return partes;
+    }
+
+    /**
+     * Pesquisa todas as combinações de deslocamentos dos segmentos
+     * @param cipherText Texto cifrado com a disposição do esquema
+     * @return Hipóteses aceites de cada segmento
+     */
+    public Pesquisa pesquisar(String cipherText) {
+        return pesquisar(cipherText, cipherText != null && cipherText.length() >= LIMIAR_PARALELO);
+    }
+
+    Pesquisa pesquisar(String cipherText, boolean paralelo) {
+        if (cipherText == null) {
+            throw new IllegalArgumentException("A mensagem deve ter pelo menos " + esquema.tamanhoMinimo() + " caracteres");
+        }
+        int[] limites = esquema.limites(cipherText.length());
+        List<List<Parte>> partes = new ArrayList<>(esquema.numeroSegmentos());
+
+        for (int s = 0; s < esquema.numeroSegmentos(); s++) {
+            if (s == esquema.indiceMensagem()) {
+                partes.add(pesquisarMensagem(cipherText, limites[s], limites[s + 1], paralelo));
+                continue;
+            }
+            String[] todos = CaesarCipher.desencriptarTodosDeslocamentos(cipherText.substring(limites[s], limites[s + 1]));
+            List<Parte> salts = new ArrayList<>(26);
+            for (int shift = 0; shift < 26; shift++) {
+                salts.add(new Parte(shift, todos[shift]));
+            }
+            partes.add(salts);
+        }
+        return new Pesquisa(esquema, partes);
+    }
+
+    private List<Parte> pesquisarMensagem(String cipherText, int inicio, int fim, boolean paralelo) {
+        // As 26 hipóteses partilham um único buffer; só as aceites viram String. Uma mensagem
+        // demasiado longa para 26 cópias num array usa um buffer por deslocamento.
+        int n = fim - inicio;
+        char[] origem = new char[n];
+        cipherText.getChars(inicio, fim, origem, 0);
+        boolean partilhado = 26L * n <= TAMANHO_MAXIMO_ARRAY;
+        char[] todos = partilhado ? new char[26 * n] : null;
+        String[] mensagens = new String[26];
+
+        IntStream deslocamentos = IntStream.range(0, 26);
+        if (paralelo) {
+            deslocamentos = deslocamentos.parallel();
+        }
+        deslocamentos.forEach(shift -> {
+            char[] destino = partilhado ? todos : new char[n];
+            int base = partilhado ? shift * n : 0;
+            KernelDeslocamento.desencriptar(origem, 0, n, destino, base, shift);
+            if (!filtrosAtivos || CaesarCipher.textoValido(destino, base, base + n)) {
+                mensagens[shift] = new String(destino, base, n);
+            }
+        });
+
+        List<Parte> aceites = new ArrayList<>();
+        for (int shift = 0; shift < 26; shift++) {
+            if (mensagens[shift] != null) {
+                aceites.add(new Parte(shift, mensagens[shift]));
+            }
+        }
+        return aceites;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Perfis estatísticos de idioma usados para pontuar textos candidatos
+ * Guarda a frequência de cada letra [A-Z] (acentos já convertidos na letra base)
+ * e as log-probabilidades de bigramas e trigramas pré-calculadas em arrays indexados
+ * por código de letra (A = 0 ... Z = 25).
+ */
+public enum PerfilIdioma {
+
+    PORTUGUES(
+            new double[]{
+                    14.63, 1.04, 3.88, 4.99, 12.57, 1.02, 1.30, 1.28, 6.18, 0.40, 0.02, 2.78, 4.74,
+                    5.05, 10.73, 2.52, 1.20, 6.53, 7.81, 4.34, 4.63, 1.67, 0.01, 0.21, 0.01, 0.47},
+            new String[]{
+                    "DE", "ES", "OS", "RA", "EN", "AS", "ER", "AD", "DO", "NT", "RE", "AR", "OR",
+                    "TE", "ST", "CO", "TA", "SE", "QU", "UE", "NA", "AO", "EM", "DA", "OD", "MA",
+                    "ON", "TO", "ME", "AN", "CA", "PA", "IA", "SA", "EI", "IS", "AM", "NO", "RI",
+                    "OM", "AC", "IO", "IN", "NC", "EL", "AL", "CI", "PO", "TR", "OU"},
+            new double[]{
+                    2.45, 1.95, 1.80, 1.68, 1.64, 1.60, 1.55, 1.32, 1.30, 1.28, 1.27, 1.26, 1.25,
+                    1.22, 1.20, 1.18, 1.16, 1.15, 1.12, 1.10, 1.08, 1.02, 1.00, 0.98, 0.97, 0.96,
+                    0.95, 0.94, 0.93, 0.92, 0.91, 0.90, 0.88, 0.86, 0.84, 0.82, 0.80, 0.79, 0.78,
+                    0.76, 0.74, 0.73, 0.72, 0.70, 0.68, 0.66, 0.64, 0.62, 0.60, 0.58},
+            new String[]{
+                    "QUE", "ENT", "ADE", "ARA", "COM", "NTE", "ESS", "EST", "ACA", "DOS", "MEN",
+                    "ODE", "PAR", "STA", "DAS", "CAO", "CON", "RES", "ICA", "ADO", "NTO", "ERA",
+                    "ADA", "AME", "OES", "ASE", "UMA", "ONT", "TRA", "POR"},
+            new double[]{
+                    1.20, 0.95, 0.60, 0.58, 0.55, 0.54, 0.50, 0.48, 0.45, 0.44, 0.43, 0.42, 0.41,
+                    0.40, 0.39, 0.38, 0.37, 0.36, 0.35, 0.34, 0.33, 0.32, 0.31, 0.30, 0.29, 0.28,
+                    0.27, 0.26, 0.25, 0.24}),
+
+    INGLES(
+            new double[]{
+                    8.167, 1.492, 2.782, 4.253, 12.702, 2.228, 2.015, 6.094, 6.966, 0.153, 0.772, 4.025, 2.406,
+                    6.749, 7.507, 1.929, 0.095, 5.987, 6.327, 9.056, 2.758, 0.978, 2.360, 0.150, 1.974, 0.074},
+            new String[]{
+                    "TH", "HE", "IN", "ER", "AN", "RE", "ON", "AT", "EN", "ND", "TI", "ES", "OR",
+                    "TE", "OF", "ED", "IS", "IT", "AL", "AR", "ST", "TO", "NT", "NG", "SE", "HA",
+                    "AS", "OU", "IO", "LE", "VE", "CO", "ME", "DE", "HI", "RI", "RO", "IC", "NE",
+                    "EA", "RA", "CE", "LI", "CH", "LL", "BE", "MA", "SI", "OM", "UR"},
+            new double[]{
+                    3.56, 3.07, 2.43, 2.05, 1.99, 1.85, 1.76, 1.49, 1.45, 1.35, 1.34, 1.34, 1.28,
+                    1.20, 1.17, 1.17, 1.13, 1.12, 1.09, 1.07, 1.05, 1.04, 1.04, 0.95, 0.93, 0.93,
+                    0.87, 0.87, 0.83, 0.83, 0.83, 0.79, 0.79, 0.76, 0.76, 0.73, 0.73, 0.70, 0.69,
+                    0.69, 0.69, 0.65, 0.62, 0.60, 0.58, 0.58, 0.57, 0.55, 0.55, 0.54},
+            new String[]{
+                    "THE", "AND", "ING", "ENT", "ION", "HER", "FOR", "THA", "NTH", "INT", "ERE",
+                    "TIO", "TER", "EST", "ERS", "ATI", "HAT", "ATE", "ALL", "ETH", "HES", "VER",
+                    "HIS", "OFT", "ITH", "FTH", "STH", "OTH", "RES", "ONT"},
+            new double[]{
+                    1.81, 0.73, 0.72, 0.42, 0.42, 0.36, 0.34, 0.33, 0.33, 0.32, 0.31, 0.31, 0.30,
+                    0.28, 0.28, 0.26, 0.26, 0.25, 0.25, 0.24, 0.24, 0.24, 0.24, 0.22, 0.21, 0.21,
+                    0.21, 0.21, 0.21, 0.20});
+
+    // Fator aplicado às estimativas de n-gramas que não constam da tabela
+    private static final double FATOR_DESCONHECIDO = 0.3;
+
+    private final double[] frequencias;
+    private final double[] logBigramas;
+    private final double[] logTrigramas;
+
+    PerfilIdioma(double[] frequenciasPercentagem,
+                 String[] bigramas, double[] freqBigramas,
+                 String[] trigramas, double[] freqTrigramas) {
+        this.frequencias = new double[26];
+        double total = 0;
+        for (double f : frequenciasPercentagem) {
+            total += f;
+        }
+        for (int i = 0; i < 26; i++) {
+            frequencias[i] = frequenciasPercentagem[i] / total;
+        }
+
+        // Bigramas: valores da tabela ou, na falta deles, estimativa a partir das letras
+        double[] bi = new double[26 * 26];
+        for (int a = 0; a < 26; a++) {
+            for (int b = 0; b < 26; b++) {
+                bi[a * 26 + b] = frequencias[a] * frequencias[b] * FATOR_DESCONHECIDO;
+            }
+        }
+        for (int i = 0; i < bigramas.length; i++) {
+            bi[codigo(bigramas[i], 0) * 26 + codigo(bigramas[i], 1)] = freqBigramas[i] / 100.0;
+        }
+        normalizar(bi);
+
+        // Trigramas: valores da tabela ou recuo para bigrama x letra
+        double[] tri = new double[26 * 26 * 26];
+        for (int ab = 0; ab < 26 * 26; ab++) {
+            for (int c = 0; c < 26; c++) {
+                tri[ab * 26 + c] = bi[ab] * frequencias[c] * FATOR_DESCONHECIDO;
+            }
+        }
+        for (int i = 0; i < trigramas.length; i++) {
+            String t = trigramas[i];
+            tri[(codigo(t, 0) * 26 + codigo(t, 1)) * 26 + codigo(t, 2)] = freqTrigramas[i] / 100.0;
+        }
+        normalizar(tri);
+
+        this.logBigramas = paraLog(bi);
+        this.logTrigramas = paraLog(tri);
+    }
+
+    /**
+     * @param letra Código da letra (0-25)
+     * @return Frequência relativa esperada da letra (soma 1)
+     */
+    public double frequencia(int letra) {
+        return frequencias[letra];
+    }
+
+    /**
+     * @param a Código da primeira letra
+     * @param b Código da segunda letra
+     * @return Log-probabilidade do bigrama
+     */
+    public double logBigrama(int a, int b) {
+        return logBigramas[a * 26 + b];
+    }
+
+    /**
+     * @param a Código da primeira letra
+     * @param b Código da segunda letra
+     * @param c Código da terceira letra
+     * @return Log-probabilidade do trigrama
+     */
+    public double logTrigrama(int a, int b, int c) {
+        return logTrigramas[(a * 26 + b) * 26 + c];
+    }
+
+    private static int codigo(String ngrama, int posicao) {
+        return Character.toUpperCase(ngrama.charAt(posicao)) - 'A';
+    }
+
+    private static void normalizar(double[] valores) {
+        double total = 0;
+        for (double v : valores) {
+            total += v;
+        }
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] /= total;
+        }
+    }
+
+    private static double[] paraLog(double[] valores) {
+        double[] log = new double[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            log[i] = Math.log(valores[i]);
+        }
+        return log;
+    }
+}
@@ -0,0 +1,354 @@
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Desencriptação de hashes em fluxo contínuo, com {@link java.util.concurrent.Flow}
+ *
+ * As etapas de {@link ContextoCifra#desencriptarHash} são processadores ligados em
+ * cadeia: Base64 → César e substituição inversa (numa só passagem sobre os bytes) →
+ * pepper → salt. Cada etapa corre no seu executor, com o paralelismo indicado, e entrega
+ * à seguinte por um buffer limitado. A procura é pedida item a item: quando uma etapa não
+ * acompanha, o buffer à sua frente enche, a etapa anterior bloqueia ao entregar e deixa
+ * de pedir itens, e assim até à origem. A memória fica limitada pela soma dos buffers e
+ * dos itens em curso, qualquer que seja o ritmo de entrada.
+ *
+ * Os erros de uma hash (Base64 inválida, pepper que não corresponde...) seguem no
+ * resultado dessa hash e não interrompem o fluxo. Com paralelismo maior do que 1 numa
+ * etapa, os resultados podem sair por outra ordem; cada um traz o id do pedido.
+ */
+public final class PipelineHash {
+
+    public static final int CAPACIDADE_PADRAO = 256;
+
+    // As entregas entre etapas só bloqueiam à espera de espaço no buffer seguinte;
+    // correm em threads virtuais para nunca ocuparem os executores das etapas
+    static final Executor ENTREGA = tarefa -> Thread.ofVirtual().name("pipeline-entrega").start(tarefa);
+
+    /**
+     * Hash a desencriptar
+     * @param id Identificador devolvido no resultado (ex.: número da linha)
+     * @param hash Hash em Base64
+     * @param alfabeto Alfabeto de substituição
+     * @param deslocacao Deslocação de César
+     * @param pepper Pepper conhecido, ou vazio/null se desconhecido
+     * @param salt Salt conhecido, ou vazio/null se desconhecido
+     * @param saltNoInicio Posição do salt, ou null se desconhecida
+     * @param erro Erro já encontrado ao ler o pedido, ou null; um pedido com erro atravessa
+     *             as etapas sem ser processado, para o resultado sair na mesma posição
+     */
+    public record Pedido(long id, String hash, String alfabeto, int deslocacao,
+                         String pepper, String salt, Boolean saltNoInicio, String erro) {
+
+        public Pedido(long id, String hash, String alfabeto, int deslocacao,
+                      String pepper, String salt, Boolean saltNoInicio) {
+            this(id, hash, alfabeto, deslocacao, pepper, salt, saltNoInicio, null);
+        }
+
+        /**
+         * @param id Identificador do pedido
+         * @param erro Motivo por que o pedido não pôde ser lido
+         * @return Pedido que dá um resultado com esse erro
+         */
+        public static Pedido invalido(long id, String erro) {
+            return new Pedido(id, null, null, 0, null, null, null, erro);
+        }
+    }
+
+    /**
+     * Resultado de um pedido
+     * @param id Identificador do pedido
+     * @param resultados Combinações possíveis de mensagem, pepper e salt (vazia se houve erro)
+     * @param erro Mensagem de erro, ou null
+     */
+    public record Resultado(long id, List<CaesarCipher.ResultadoDesencriptacao> resultados, String erro) {}
+
+    /**
+     * Executor e número de itens processados em simultâneo numa etapa
+     */
+    public record Configuracao(Executor executor, int paralelismo) {}
+
+    /**
+     * Hash entre etapas; os bytes são transformados sempre no mesmo buffer
+     */
+    public static final class EmCurso {
+        private final Pedido pedido;
+        private ContextoCifra contexto;
+        private byte[] dados;
+        private int n;
+        private int digitosPepper;
+        private String erro;
+
+        private EmCurso(Pedido pedido) {
+            this.pedido = pedido;
+        }
+    }
+
+    private final ContextoCifra base;
+    private final int capacidade;
+    // Um contexto (com as tabelas de tradução) por alfabeto
+    private final Map<String, ContextoCifra> contextos = new ConcurrentHashMap<>();
+
+    /**
+     * @param base Contexto com as regras do pepper e do salt
+     * @param capacidade Itens no buffer à saída de cada etapa
+     */
+    public PipelineHash(ContextoCifra base, int capacidade) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("A capacidade dos buffers deve ser positiva");
+        }
+        this.base = base;
+        this.capacidade = capacidade;
+    }
+
+    /**
+     * Liga as quatro etapas a uma origem de pedidos
+     * @param origem Origem dos pedidos (ex.: um {@link SubmissionPublisher} alimentado por uma fila)
+     * @return Publicador dos resultados; termina quando a origem terminar
+     */
+    public Flow.Publisher<Resultado> ligar(Flow.Publisher<Pedido> origem,
+                                           Configuracao descodificacao,
+                                           Configuracao traducao,
+                                           Configuracao pepper,
+                                           Configuracao salt) {
+        Etapa<Pedido, EmCurso> primeira = descodificacao(descodificacao);
+        Etapa<EmCurso, EmCurso> segunda = traducao(traducao);
+        Etapa<EmCurso, EmCurso> terceira = pepper(pepper);
+        Etapa<EmCurso, Resultado> ultima = salt(salt);
+        // Liga do fim para o início, para nenhum item ser publicado sem subscritor
+        terceira.subscribe(ultima);
+        segunda.subscribe(terceira);
+        primeira.subscribe(segunda);
+        origem.subscribe(primeira);
+        return ultima;
+    }
+
+    /**
+     * Etapa 1: Base64 para bytes
+     */
+    public Etapa<Pedido, EmCurso> descodificacao(Configuracao configuracao) {
+        return new Etapa<>(pedido -> {
+            EmCurso item = new EmCurso(pedido);
+            if (pedido.erro() != null) {
+                item.erro = pedido.erro();
+                return item;
+            }
+            try {
+                String hash = pedido.hash();
+                if (hash == null || hash.isEmpty()) {
+                    throw new IllegalArgumentException("Hash Base64 inválida");
+                }
+                item.contexto = contexto(pedido.alfabeto());
+                item.dados = new byte[DescodificadorBase64.tamanhoMaximo(hash.length())];
+                item.n = ContextoCifra.descodificar(hash, item.dados);
+            } catch (IllegalArgumentException e) {
+                item.erro = e.getMessage();
+            }
+            return item;
+        }, configuracao, capacidade);
+    }
+
+    /**
+     * Etapa 2: César e substituição inversa
+     */
+    public Etapa<EmCurso, EmCurso> traducao(Configuracao configuracao) {
+        return etapa(item -> item.contexto.traduzir(item.dados, item.n, item.pedido.deslocacao()), configuracao);
+    }
+
+    /**
+     * Etapa 3: tamanho máximo do pepper no início do texto
+     */
+    public Etapa<EmCurso, EmCurso> pepper(Configuracao configuracao) {
+        return etapa(item -> {
+            long inicio = Metricas.inicio(Metricas.Etapa.PEPPER);
+            item.digitosPepper = item.contexto.determinarPepper(item.dados, item.n, item.pedido.pepper());
+            Metricas.fim(Metricas.Etapa.PEPPER, inicio);
+        }, configuracao);
+    }
+
+    /**
+     * Etapa 4: posições do salt e resultados
+     */
+    public Etapa<EmCurso, Resultado> salt(Configuracao configuracao) {
+        return new Etapa<>(item -> {
+            Pedido pedido = item.pedido;
+            if (item.erro == null) {
+                try {
+                    return new Resultado(pedido.id(), item.contexto.separarSalt(item.dados, item.n,
+                            item.digitosPepper, pedido.pepper(), pedido.salt(), pedido.saltNoInicio()), null);
+                } catch (IllegalArgumentException e) {
+                    item.erro = e.getMessage();
+                }
+            }
+            return new Resultado(pedido.id(), List.of(), item.erro);
+        }, configuracao, capacidade);
+    }
+
+    private Etapa<EmCurso, EmCurso> etapa(Consumer<EmCurso> passo, Configuracao configuracao) {
+        return new Etapa<>(item -> {
+            // Um item com erro atravessa as restantes etapas sem ser tocado
+            if (item.erro == null) {
+                try {
+                    passo.accept(item);
+                } catch (IllegalArgumentException e) {
+                    item.erro = e.getMessage();
+                }
+            }
+            return item;
+        }, configuracao, capacidade);
+    }
+
+    private ContextoCifra contexto(String alfabeto) {
+        if (alfabeto == null || alfabeto.length() != 26) {
+            throw new IllegalArgumentException("O alfabeto de substituição deve ter 26 letras");
+        }
+        // Um alfabeto inválido lança a exceção aqui e não fica guardado
+        return contextos.computeIfAbsent(alfabeto, base::comAlfabeto);
+    }
+
+    /**
+     * Etapa do fluxo: aplica uma função a cada item no seu executor e publica o resultado
+     * Os itens recebidos esperam numa fila, consumida por até {@code paralelismo} tarefas
+     * do executor; cada tarefa processa itens seguidos enquanto houver, sem uma troca de
+     * thread por item. A procura à etapa anterior é limitada a {@code capacidade} itens por
+     * entregar e renovada às metades; a entrega bloqueia enquanto o buffer da etapa seguinte
+     * estiver cheio. Termina (e fecha a etapa seguinte) quando a anterior terminar e não
+     * houver itens em curso. Uma exceção da função cancela a etapa anterior e termina o
+     * fluxo com erro.
+     */
+    public static final class Etapa<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+        private final Function<? super T, ? extends R> funcao;
+        private final Executor executor;
+        private final int paralelismo;
+        private final int procura;
+        private final Queue<T> fila = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger ativas = new AtomicInteger();
+        // Itens entregues desde o último pedido à etapa anterior
+        private final AtomicInteger atendidos = new AtomicInteger();
+        // Itens em curso, mais 1 enquanto a etapa anterior não terminar
+        private final AtomicInteger pendentes = new AtomicInteger(1);
+        private final AtomicBoolean anteriorTerminada = new AtomicBoolean();
+        private final AtomicReference<Throwable> falha = new AtomicReference<>();
+        private volatile Flow.Subscription subscricao;
+
+        /**
+         * @param funcao Transformação de cada item
+         * @param configuracao Executor da transformação e itens em simultâneo
+         * @param capacidade Itens no buffer à saída e máximo de itens pedidos por processar
+         */
+        public Etapa(Function<? super T, ? extends R> funcao, Configuracao configuracao, int capacidade) {
+            super(ENTREGA, capacidade);
+            if (configuracao.paralelismo() <= 0) {
+                throw new IllegalArgumentException("O paralelismo de cada etapa deve ser positivo");
+            }
+            this.funcao = funcao;
+            this.executor = configuracao.executor();
+            this.paralelismo = configuracao.paralelismo();
+            this.procura = Math.max(capacidade, paralelismo);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscricao) {
+            if (this.subscricao != null) {
+                subscricao.cancel();
+                return;
+            }
+            this.subscricao = subscricao;
+            subscricao.request(procura);
+        }
+
+        @Override
+        public void onNext(T item) {
+            pendentes.incrementAndGet();
+            fila.add(item);
+            iniciarTarefa();
+        }
+
+        @Override
+        public void onError(Throwable erro) {
+            falha.compareAndSet(null, erro);
+            terminarAnterior();
+        }
+
+        @Override
+        public void onComplete() {
+            terminarAnterior();
+        }
+
+        private void iniciarTarefa() {
+            int atuais;
+            while (!fila.isEmpty() && (atuais = ativas.get()) < paralelismo) {
+                if (ativas.compareAndSet(atuais, atuais + 1)) {
+                    try {
+                        executor.execute(this::consumir);
+                    } catch (RuntimeException e) {
+                        // Executor rejeitou a tarefa (ex.: já encerrado): os itens são descartados aqui
+                        falhar(e);
+                        consumir();
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void consumir() {
+            T item;
+            while ((item = fila.poll()) != null) {
+                try {
+                    if (falha.get() == null) {
+                        submit(funcao.apply(item));
+                        pedirMais();
+                    }
+                } catch (RuntimeException e) {
+                    falhar(e);
+                } finally {
+                    terminarItem();
+                }
+            }
+            ativas.decrementAndGet();
+            // Um item pode ter chegado entre a fila ficar vazia e esta tarefa terminar
+            iniciarTarefa();
+        }
+
+        private void pedirMais() {
+            int n = atendidos.incrementAndGet();
+            if (n >= (procura + 1) / 2 && atendidos.compareAndSet(n, 0)) {
+                subscricao.request(n);
+            }
+        }
+
+        private void falhar(Throwable erro) {
+            if (falha.compareAndSet(null, erro)) {
+                subscricao.cancel();
+                terminarAnterior();
+            }
+        }
+
+        private void terminarAnterior() {
+            if (anteriorTerminada.compareAndSet(false, true)) {
+                terminarItem();
+            }
+        }
+
+        private void terminarItem() {
+            if (pendentes.decrementAndGet() == 0) {
+                Throwable erro = falha.get();
+                if (erro == null) {
+                    close();
+                } else {
+                    closeExceptionally(erro);
+                }
+            }
+        }
+    }
+}
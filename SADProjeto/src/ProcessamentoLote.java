@@ -0,0 +1,754 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Modo de processamento em lote (não interativo)
+ * Lê um ficheiro com uma entrada por linha, processa as linhas num conjunto limitado
+ * de threads e escreve os resultados em JSON lines ou CSV, pela ordem de entrada.
+ *
+ * Utilização:
+ *   java Main --lote ENTRADA --modo alinea1|alinea2|segmentos|hash [--saida FICHEIRO]
+ *             [--formato jsonl|csv] [--threads N] [--sem-filtros]
+ *             [--alfabeto ALFABETO] [--deslocacao N] [--segmentos 3,M,3] [--metricas]
+ *             [--dicionario COBERTURA] [--indice FICHEIRO]
+ *             [--amostragem 64,3,1024 | --sem-amostragem] [--pipeline 1,1,1,1]
+ *             [--trabalhadores N] [--porta P] [--fragmento 256] [--token SEGREDO]
+ *
+ * Com --dicionario, no modo alinea1, os candidatos são validados pela cobertura dos
+ * dicionários de português e inglês ({@link ValidadorDicionario}, entre 0 e 1) em vez
+ * dos filtros estruturais, o que aceita mensagens sem espaços nem acentos.
+ *
+ * Com --indice, no modo alinea1, cada linha é procurada primeiro no índice de mensagens
+ * conhecidas ({@link IndiceImpressoes}, criado com java IndiceImpressoes CORPUS INDICE);
+ * uma linha encontrada devolve só a mensagem do corpus, as restantes seguem pela força bruta.
+ *
+ * No modo alinea1 com filtros, as linhas longas são avaliadas primeiro por amostras
+ * ({@link AvaliacaoAmostrada}, --amostragem JANELA,AMOSTRAS,MINIMO): os deslocamentos com
+ * um padrão impossível numa janela são rejeitados sem desencriptar a linha inteira. Os
+ * resultados são os mesmos; --sem-amostragem filtra sempre o texto completo.
+ *
+ * Com --metricas o relatório de {@link Metricas} é escrito em stderr no fim do lote.
+ *
+ * Uma linha que não pode ser processada dá {"linha":N,"erro":"..."} em JSON lines; em CSV
+ * a última coluna (erro) traz a mensagem e as restantes ficam vazias. Nas linhas de
+ * resultados essa coluna está vazia. Em CSV, uma linha sem resultados aceites dá uma linha
+ * só com o número, para que todas as linhas da entrada apareçam na saída.
+ *
+ * Com --trabalhadores ou --porta o lote é dividido por vários processos (ver
+ * {@link CoordenadorLote}); --threads passa a ser o total de ligações dos
+ * trabalhadores lançados localmente.
+ *
+ * O modo segmentos generaliza a Alínea 2 para o esquema de salts indicado em
+ * --segmentos (ver {@link EsquemaSegmentos}) e escreve as hipóteses aceites de cada
+ * segmento em separado, em vez do produto de todas as combinações.
+ *
+ * No modo hash cada linha tem os campos separados por TAB:
+ *   hash [alfabeto [deslocacao [pepper [salt [S|N]]]]]
+ * Os campos em falta (ou vazios) usam --alfabeto e --deslocacao.
+ *
+ * Com --pipeline D,T,P,S, o modo hash corre em fluxo contínuo ({@link PipelineHash}):
+ * descodificação, tradução, pepper e salt em etapas separadas, com esse número de threads
+ * cada uma, e a entrada é lida ao ritmo a que as etapas a conseguem processar. Com mais
+ * de uma thread numa etapa, as linhas saem pela ordem em que terminam (cada resultado
+ * traz o número da linha). Com --lote - a entrada é lida de stdin.
+ */
+public class ProcessamentoLote {
+
+    public enum Modo { ALINEA1, ALINEA2, SEGMENTOS, HASH }
+
+    public enum Formato { JSONL, CSV }
+
+    // Fim de uma linha CSV de resultados: coluna erro vazia
+    private static final String SEM_ERRO_CSV = ",\n";
+
+    private static final int INTERVALO_PROGRESSO = 100_000;
+
+    private final Modo modo;
+    private final Formato formato;
+    private final int threads;
+    private final boolean filtrosAtivos;
+    private final String alfabetoPadrao;
+    private final Integer deslocacaoPadrao;
+    private final EsquemaSegmentos esquema;
+    private final ValidadorDicionario validador;
+    private final IndiceImpressoes indice;
+    private final AvaliacaoAmostrada amostragem;
+
+    /**
+     * @param opcoes Opções do lote (o índice é recebido já aberto)
+     * @param indice Índice de mensagens conhecidas consultado no modo alinea1, ou null
+     */
+    ProcessamentoLote(Opcoes opcoes, IndiceImpressoes indice) {
+        this.modo = opcoes.modo();
+        this.formato = opcoes.formato();
+        this.threads = opcoes.threads();
+        this.filtrosAtivos = opcoes.filtros();
+        this.alfabetoPadrao = opcoes.alfabeto();
+        this.deslocacaoPadrao = opcoes.deslocacao();
+        this.esquema = opcoes.esquema();
+        this.validador = opcoes.validador();
+        this.indice = indice;
+        this.amostragem = opcoes.amostragem();
+    }
+
+    /**
+     * Opções da linha de comandos
+     * As que definem o processamento de cada linha são as mesmas no coordenador e nos
+     * trabalhadores do modo distribuído, que recebem os argumentos do coordenador.
+     */
+    record Opcoes(Path entrada, Path saida, Modo modo, Formato formato, int threads, boolean filtros,
+                  String alfabeto, Integer deslocacao, boolean metricas, EsquemaSegmentos esquema,
+                  ValidadorDicionario validador, Path indice, AvaliacaoAmostrada amostragem,
+                  int trabalhadores, Integer porta, int tamanhoFragmento, String token, int[] pipeline) {
+
+        static Opcoes ler(String[] args) {
+            Path entrada = null;
+            Path saida = null;
+            Modo modo = null;
+            Formato formato = Formato.JSONL;
+            int threads = Runtime.getRuntime().availableProcessors();
+            boolean filtros = true;
+            String alfabeto = null;
+            Integer deslocacao = null;
+            boolean metricas = false;
+            EsquemaSegmentos esquema = EsquemaSegmentos.PADRAO;
+            ValidadorDicionario validador = null;
+            Path indice = null;
+            AvaliacaoAmostrada amostragem = AvaliacaoAmostrada.PADRAO;
+            int trabalhadores = 0;
+            Integer porta = null;
+            int tamanhoFragmento = CoordenadorLote.TAMANHO_FRAGMENTO_PADRAO;
+            String token = null;
+            int[] pipeline = null;
+
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--lote" -> entrada = Path.of(valor(args, ++i));
+                    case "--saida" -> saida = Path.of(valor(args, ++i));
+                    case "--modo" -> modo = lerValor(Modo.class, "--modo", valor(args, ++i));
+                    case "--formato" -> formato = lerValor(Formato.class, "--formato", valor(args, ++i));
+                    case "--threads" -> threads = Integer.parseInt(valor(args, ++i));
+                    case "--sem-filtros" -> filtros = false;
+                    case "--alfabeto" -> alfabeto = valor(args, ++i);
+                    case "--deslocacao" -> deslocacao = Integer.parseInt(valor(args, ++i));
+                    case "--metricas" -> metricas = true;
+                    case "--segmentos" -> esquema = EsquemaSegmentos.ler(valor(args, ++i));
+                    case "--dicionario" -> validador = new ValidadorDicionario(
+                            Double.parseDouble(valor(args, ++i)), PerfilIdioma.PORTUGUES, PerfilIdioma.INGLES);
+                    case "--indice" -> indice = Path.of(valor(args, ++i));
+                    case "--amostragem" -> amostragem = AvaliacaoAmostrada.ler(valor(args, ++i));
+                    case "--sem-amostragem" -> amostragem = null;
+                    case "--trabalhadores" -> trabalhadores = Integer.parseInt(valor(args, ++i));
+                    case "--porta" -> porta = Integer.parseInt(valor(args, ++i));
+                    case "--fragmento" -> tamanhoFragmento = Integer.parseInt(valor(args, ++i));
+                    case "--token" -> token = valor(args, ++i);
+                    case "--pipeline" -> pipeline = lerParalelismos(valor(args, ++i));
+                    default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+                }
+            }
+            if (modo == null) {
+                throw new IllegalArgumentException("Indique pelo menos --lote ENTRADA e --modo alinea1|alinea2|segmentos|hash");
+            }
+            if (threads <= 0) {
+                throw new IllegalArgumentException("O número de threads deve ser positivo");
+            }
+            if (trabalhadores < 0 || tamanhoFragmento <= 0) {
+                throw new IllegalArgumentException("O número de trabalhadores e o tamanho dos fragmentos devem ser positivos");
+            }
+            if (pipeline != null && (modo != Modo.HASH || trabalhadores > 0 || porta != null)) {
+                throw new IllegalArgumentException("--pipeline só pode ser usado no modo hash, sem trabalhadores");
+            }
+            return new Opcoes(entrada, saida, modo, formato, threads, filtros, alfabeto, deslocacao, metricas,
+                    esquema, validador, indice, amostragem, trabalhadores, porta, tamanhoFragmento, token, pipeline);
+        }
+
+        private static <E extends Enum<E>> E lerValor(Class<E> tipo, String opcao, String valor) {
+            try {
+                return Enum.valueOf(tipo, valor.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                StringBuilder validos = new StringBuilder();
+                for (E constante : tipo.getEnumConstants()) {
+                    validos.append(validos.isEmpty() ? "" : "|").append(constante.name().toLowerCase(Locale.ROOT));
+                }
+                throw new IllegalArgumentException("Valor inválido para " + opcao + ": " + valor + " (use " + validos + ")");
+            }
+        }
+
+        private static int[] lerParalelismos(String especificacao) {
+            String[] partes = especificacao.split(",");
+            if (partes.length != 4) {
+                throw new IllegalArgumentException("Pipeline inválido (use D,T,P,S): " + especificacao);
+            }
+            int[] paralelismos = new int[4];
+            try {
+                for (int i = 0; i < 4; i++) {
+                    paralelismos[i] = Integer.parseInt(partes[i].trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Pipeline inválido (use D,T,P,S): " + especificacao, e);
+            }
+            for (int p : paralelismos) {
+                if (p <= 0) {
+                    throw new IllegalArgumentException("O paralelismo de cada etapa deve ser positivo");
+                }
+            }
+            return paralelismos;
+        }
+
+        boolean distribuido() {
+            return trabalhadores > 0 || porta != null;
+        }
+
+        /**
+         * Carrega os dicionários e abre o índice, se pedidos
+         * @return Processamento com estas opções
+         */
+        ProcessamentoLote criarLote() throws IOException {
+            if (validador != null) {
+                validador.carregar();
+            }
+            return new ProcessamentoLote(this, indice == null ? null : IndiceImpressoes.abrir(indice));
+        }
+    }
+
+    /**
+     * Ponto de entrada a partir da linha de comandos
+     * @param args Argumentos (ver documentação da classe)
+     * @return Código de saída do processo
+     */
+    public static int executar(String[] args) {
+        try {
+            Opcoes opcoes = Opcoes.ler(args);
+            if (opcoes.entrada() == null) {
+                throw new IllegalArgumentException("Indique pelo menos --lote ENTRADA e --modo alinea1|alinea2|segmentos|hash");
+            }
+
+            ProcessamentoLote lote = opcoes.distribuido() ? null : opcoes.criarLote();
+            long linhas;
+            try (BufferedReader reader = opcoes.entrada().toString().equals("-")
+                         ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                         : Files.newBufferedReader(opcoes.entrada(), StandardCharsets.UTF_8);
+                 Writer writer = opcoes.saida() == null
+                         ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                         : Files.newBufferedWriter(opcoes.saida(), StandardCharsets.UTF_8)) {
+                if (lote != null && opcoes.pipeline() != null) {
+                    linhas = lote.processarEmFluxo(reader, writer, opcoes.pipeline());
+                } else if (lote != null) {
+                    linhas = lote.processar(reader, writer);
+                } else {
+                    linhas = new CoordenadorLote(opcoes, args).processar(reader, writer);
+                }
+            }
+            System.err.println("Lote concluído: " + linhas + " linhas processadas.");
+            if (opcoes.metricas()) {
+                if (lote != null && lote.indice != null) {
+                    System.err.println("Índice: " + lote.indice.acertos() + " linhas encontradas, "
+                            + lote.indice.falhas() + " por força bruta.");
+                }
+                System.err.println(Metricas.relatorio());
+            }
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERRO] " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("[ERRO] Falha de leitura/escrita: " + e.getMessage());
+            return 1;
+        } catch (IllegalStateException e) {
+            System.err.println("[ERRO] " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * @return Cabeçalho CSV terminado em nova linha, ou vazio em JSON lines
+     */
+    String cabecalho() {
+        return formato == Formato.CSV ? cabecalhoCsv() + '\n' : "";
+    }
+
+    /**
+     * Processa todas as linhas do leitor e escreve os resultados pela mesma ordem
+     * O número de linhas em curso é limitado, pelo que a memória não cresce com o lote.
+     * @param reader Entrada, uma linha por pedido
+     * @param writer Saída formatada
+     * @return Número de linhas processadas
+     */
+    public long processar(BufferedReader reader, Writer writer) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pendentes = new ArrayDeque<>();
+        int maxPendentes = threads * 4;
+        long lidas = 0;
+        long escritas = 0;
+        long inicio = System.nanoTime();
+
+        try {
+            writer.write(cabecalho());
+
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                long numero = ++lidas;
+                String conteudo = linha;
+                pendentes.add(executor.submit(() -> processarLinha(numero, conteudo)));
+
+                if (pendentes.size() >= maxPendentes) {
+                    writer.write(aguardar(pendentes.poll()));
+                    reportarProgresso(++escritas, inicio);
+                }
+            }
+
+            while (!pendentes.isEmpty()) {
+                writer.write(aguardar(pendentes.poll()));
+                reportarProgresso(++escritas, inicio);
+            }
+            writer.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return lidas;
+    }
+
+    private static void reportarProgresso(long escritas, long inicio) {
+        if (escritas % INTERVALO_PROGRESSO == 0) {
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.err.printf("%d linhas processadas (%.0f linhas/s)%n", escritas, escritas / segundos);
+        }
+    }
+
+    private static String aguardar(Future<String> futuro) throws IOException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Processamento interrompido", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha inesperada no processamento", e.getCause());
+        }
+    }
+
+    /**
+     * Processa uma linha e devolve o texto formatado (terminado em nova linha)
+     * Erros de validação da linha são escritos no resultado, sem interromper o lote.
+     */
+    String processarLinha(long numero, String linha) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            switch (modo) {
+                case ALINEA1 -> formatarAlinea1(sb, numero, linha);
+                case ALINEA2 -> formatarAlinea2(sb, numero, linha);
+                case SEGMENTOS -> formatarSegmentos(sb, numero, linha);
+                case HASH -> formatarHash(sb, numero, linha);
+            }
+        } catch (IllegalArgumentException e) {
+            sb.setLength(0);
+            formatarErro(sb, numero, e.getMessage());
+        }
+        return sb.toString();
+    }
+
+    private void formatarErro(StringBuilder sb, long numero, String mensagem) {
+        if (formato == Formato.JSONL) {
+            sb.append("{\"linha\":").append(numero)
+                    .append(",\"erro\":").append(json(mensagem)).append("}\n");
+        } else {
+            // Colunas de resultados vazias e a mensagem na coluna erro
+            sb.append(numero).append(",".repeat(colunasCsv() - 1)).append(csv(mensagem)).append('\n');
+        }
+    }
+
+    // Em JSON lines a linha já aparece com uma lista vazia
+    private void formatarSemResultados(StringBuilder sb, long numero, boolean vazio) {
+        if (vazio && formato == Formato.CSV) {
+            sb.append(numero).append(",".repeat(colunasCsv() - 1)).append('\n');
+        }
+    }
+
+    private void formatarAlinea1(StringBuilder sb, long numero, String linha) {
+        List<ContextoCifra.Hipotese> conhecidas = indice == null ? List.of() : indice.procurar(linha);
+        boolean primeiro = true;
+
+        if (formato == Formato.JSONL) {
+            sb.append("{\"linha\":").append(numero).append(",\"resultados\":[");
+        }
+        if (!conhecidas.isEmpty()) {
+            for (ContextoCifra.Hipotese h : conhecidas) {
+                formatarHipotese(sb, numero, h.shift(), h.mensagem(), primeiro);
+                primeiro = false;
+            }
+        } else if (validador == null && filtrosAtivos && amostragem != null && amostragem.aplica(linha.length())) {
+            for (ContextoCifra.Hipotese h : amostragem.avaliar(linha)) {
+                formatarHipotese(sb, numero, h.shift(), h.mensagem(), primeiro);
+                primeiro = false;
+            }
+        } else {
+            String[] resultados = CaesarCipher.desencriptarTodosDeslocamentos(linha);
+            for (int shift = 0; shift < resultados.length; shift++) {
+                if (!aceita(resultados[shift])) {
+                    continue;
+                }
+                formatarHipotese(sb, numero, shift, resultados[shift], primeiro);
+                primeiro = false;
+            }
+        }
+        formatarSemResultados(sb, numero, primeiro);
+        if (formato == Formato.JSONL) {
+            sb.append("]}\n");
+        }
+    }
+
+    private void formatarHipotese(StringBuilder sb, long numero, int shift, String mensagem, boolean primeiro) {
+        if (formato == Formato.JSONL) {
+            sb.append(primeiro ? "" : ",")
+                    .append("{\"shift\":").append(shift)
+                    .append(",\"mensagem\":").append(json(mensagem)).append('}');
+        } else {
+            sb.append(numero).append(',').append(shift).append(',')
+                    .append(csv(mensagem)).append(SEM_ERRO_CSV);
+        }
+    }
+
+    private boolean aceita(String candidato) {
+        if (validador != null) {
+            return validador.aceita(candidato);
+        }
+        return !filtrosAtivos || CaesarCipher.textoValido(candidato);
+    }
+
+    private void formatarAlinea2(StringBuilder sb, long numero, String linha) {
+        List<MotorPesquisaSalts.ResultadoCombinacao> resultados = new MotorPesquisaSalts(filtrosAtivos).pesquisar(linha);
+        boolean primeiro = true;
+
+        if (formato == Formato.JSONL) {
+            sb.append("{\"linha\":").append(numero).append(",\"resultados\":[");
+        }
+        for (MotorPesquisaSalts.ResultadoCombinacao r : resultados) {
+            if (formato == Formato.JSONL) {
+                sb.append(primeiro ? "" : ",")
+                        .append("{\"shiftSalt1\":").append(r.shiftSalt1())
+                        .append(",\"salt1\":").append(json(r.salt1()))
+                        .append(",\"shiftMensagem\":").append(r.shiftMensagem())
+                        .append(",\"mensagem\":").append(json(r.mensagem()))
+                        .append(",\"shiftSalt2\":").append(r.shiftSalt2())
+                        .append(",\"salt2\":").append(json(r.salt2())).append('}');
+            } else {
+                sb.append(numero).append(',')
+                        .append(r.shiftSalt1()).append(',').append(csv(r.salt1())).append(',')
+                        .append(r.shiftMensagem()).append(',').append(csv(r.mensagem())).append(',')
+                        .append(r.shiftSalt2()).append(',').append(csv(r.salt2())).append(SEM_ERRO_CSV);
+            }
+            primeiro = false;
+        }
+        formatarSemResultados(sb, numero, primeiro);
+        if (formato == Formato.JSONL) {
+            sb.append("]}\n");
+        }
+    }
+
+    private void formatarSegmentos(StringBuilder sb, long numero, String linha) {
+        MotorSegmentos.Pesquisa pesquisa = new MotorSegmentos(esquema, filtrosAtivos).pesquisar(linha);
+
+        if (formato == Formato.JSONL) {
+            sb.append("{\"linha\":").append(numero)
+                    .append(",\"combinacoes\":").append(pesquisa.combinacoesAceites())
+                    .append(",\"segmentos\":[");
+        }
+        for (int s = 0; s < esquema.numeroSegmentos(); s++) {
+            if (formato == Formato.JSONL) {
+                sb.append(s == 0 ? "[" : ",[");
+            }
+            boolean primeiro = true;
+            for (MotorSegmentos.Parte parte : pesquisa.partes(s)) {
+                if (formato == Formato.JSONL) {
+                    sb.append(primeiro ? "" : ",")
+                            .append("{\"shift\":").append(parte.shift())
+                            .append(",\"texto\":").append(json(parte.texto())).append('}');
+                } else {
+                    sb.append(numero).append(',').append(s).append(',').append(parte.shift()).append(',')
+                            .append(csv(parte.texto())).append(SEM_ERRO_CSV);
+                }
+                primeiro = false;
+            }
+            if (formato == Formato.JSONL) {
+                sb.append(']');
+            }
+        }
+        formatarSemResultados(sb, numero, sb.isEmpty());
+        if (formato == Formato.JSONL) {
+            sb.append("]}\n");
+        }
+    }
+
+    private void formatarHash(StringBuilder sb, long numero, String linha) {
+        PipelineHash.Pedido pedido = lerPedidoHash(numero, linha);
+        formatarResultadosHash(sb, numero, CaesarCipher.desencriptarHashComParametros(pedido.hash(),
+                pedido.alfabeto(), pedido.deslocacao(), pedido.pepper(), pedido.salt(), pedido.saltNoInicio()));
+    }
+
+    /**
+     * @param numero Número da linha (id do pedido)
+     * @param linha Campos separados por TAB (ver documentação da classe)
+     * @return Pedido com os valores por omissão deste lote nos campos em falta
+     */
+    private PipelineHash.Pedido lerPedidoHash(long numero, String linha) {
+        String[] campos = linha.split("\t", -1);
+        String hash = campos[0].trim();
+        String alfabeto = campo(campos, 1, alfabetoPadrao);
+        String deslocacaoStr = campo(campos, 2, deslocacaoPadrao == null ? null : deslocacaoPadrao.toString());
+        String pepper = campo(campos, 3, "");
+        String salt = campo(campos, 4, "");
+        String posicao = campo(campos, 5, "");
+
+        if (alfabeto == null || deslocacaoStr == null) {
+            throw new IllegalArgumentException("Falta o alfabeto de substituição ou a deslocação");
+        }
+        int deslocacao;
+        try {
+            deslocacao = Integer.parseInt(deslocacaoStr);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Deslocação inválida: " + deslocacaoStr);
+        }
+        Boolean saltNoInicio = switch (posicao.toUpperCase()) {
+            case "S" -> true;
+            case "N" -> false;
+            case "" -> null;
+            default -> throw new IllegalArgumentException("Posição do salt inválida: " + posicao);
+        };
+        return new PipelineHash.Pedido(numero, hash, alfabeto, deslocacao, pepper, salt, saltNoInicio);
+    }
+
+    private void formatarResultadosHash(StringBuilder sb, long numero,
+                                        List<CaesarCipher.ResultadoDesencriptacao> resultados) {
+        boolean primeiro = true;
+
+        if (formato == Formato.JSONL) {
+            sb.append("{\"linha\":").append(numero).append(",\"resultados\":[");
+        }
+        for (CaesarCipher.ResultadoDesencriptacao r : resultados) {
+            if (formato == Formato.JSONL) {
+                sb.append(primeiro ? "" : ",")
+                        .append("{\"mensagem\":").append(json(r.getMensagem()))
+                        .append(",\"pepper\":").append(json(r.getPepper()))
+                        .append(",\"salt\":").append(json(r.getSalt()))
+                        .append(",\"saltNoInicio\":").append(r.isSaltNoInicio()).append('}');
+            } else {
+                sb.append(numero).append(',').append(csv(r.getMensagem())).append(',')
+                        .append(csv(r.getPepper())).append(',').append(csv(r.getSalt())).append(',')
+                        .append(r.isSaltNoInicio() ? "inicio" : "fim").append(SEM_ERRO_CSV);
+            }
+            primeiro = false;
+        }
+        formatarSemResultados(sb, numero, primeiro);
+        if (formato == Formato.JSONL) {
+            sb.append("]}\n");
+        }
+    }
+
+    /**
+     * Modo hash em fluxo contínuo (ver {@link PipelineHash})
+     * A leitura bloqueia quando a primeira etapa não pede mais linhas, pelo que a memória
+     * não depende do tamanho nem do ritmo da entrada.
+     * @param paralelismos Threads das etapas de descodificação, tradução, pepper e salt
+     * @return Número de linhas processadas
+     */
+    long processarEmFluxo(BufferedReader reader, Writer writer, int[] paralelismos) throws IOException {
+        List<ExecutorService> executores = new ArrayList<>();
+        PipelineHash.Configuracao[] etapas = new PipelineHash.Configuracao[paralelismos.length];
+        for (int i = 0; i < etapas.length; i++) {
+            ExecutorService executor = Executors.newFixedThreadPool(paralelismos[i]);
+            executores.add(executor);
+            etapas[i] = new PipelineHash.Configuracao(executor, paralelismos[i]);
+        }
+        int capacidade = PipelineHash.CAPACIDADE_PADRAO;
+        EscritorFluxo escritor = new EscritorFluxo(writer, capacidade);
+        long lidas = 0;
+
+        try (SubmissionPublisher<PipelineHash.Pedido> origem = new SubmissionPublisher<>(PipelineHash.ENTREGA, capacidade)) {
+            new PipelineHash(CaesarCipher.contexto(), capacidade)
+                    .ligar(origem, etapas[0], etapas[1], etapas[2], etapas[3])
+                    .subscribe(escritor);
+            escritor.escrever(cabecalho());
+
+            String linha;
+            while ((linha = reader.readLine()) != null && !escritor.falhou()) {
+                long numero = ++lidas;
+                PipelineHash.Pedido pedido;
+                try {
+                    pedido = lerPedidoHash(numero, linha);
+                } catch (IllegalArgumentException e) {
+                    // Segue pelo fluxo para sair na mesma posição que as restantes linhas
+                    pedido = PipelineHash.Pedido.invalido(numero, e.getMessage());
+                }
+                // Bloqueia enquanto o buffer da primeira etapa estiver cheio
+                origem.submit(pedido);
+            }
+        } finally {
+            // Fechar a origem termina as etapas depois de processarem o que já receberam
+            try {
+                escritor.aguardar();
+            } finally {
+                executores.forEach(ExecutorService::shutdownNow);
+            }
+        }
+        return lidas;
+    }
+
+    /**
+     * Fim do fluxo: formata e escreve cada resultado, pedindo um novo por cada escrito
+     */
+    private final class EscritorFluxo implements Flow.Subscriber<PipelineHash.Resultado> {
+        private final Writer writer;
+        private final int capacidade;
+        private final CountDownLatch fim = new CountDownLatch(1);
+        private final AtomicReference<Throwable> erro = new AtomicReference<>();
+        private final long inicio = System.nanoTime();
+        private long escritas;
+        private Flow.Subscription subscricao;
+
+        EscritorFluxo(Writer writer, int capacidade) {
+            this.writer = writer;
+            this.capacidade = capacidade;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscricao) {
+            this.subscricao = subscricao;
+            subscricao.request(capacidade);
+        }
+
+        @Override
+        public void onNext(PipelineHash.Resultado resultado) {
+            StringBuilder sb = new StringBuilder();
+            if (resultado.erro() != null) {
+                formatarErro(sb, resultado.id(), resultado.erro());
+            } else {
+                formatarResultadosHash(sb, resultado.id(), resultado.resultados());
+            }
+            try {
+                escrever(sb.toString());
+                reportarProgresso(++escritas, inicio);
+                subscricao.request(1);
+            } catch (IOException e) {
+                erro.compareAndSet(null, e);
+                subscricao.cancel();
+                fim.countDown();
+            }
+        }
+
+        @Override
+        public void onError(Throwable falha) {
+            erro.compareAndSet(null, falha);
+            fim.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            fim.countDown();
+        }
+
+        // Chamado pela thread de leitura (cabeçalho) e pela de entrega
+        void escrever(String texto) throws IOException {
+            synchronized (writer) {
+                writer.write(texto);
+            }
+        }
+
+        boolean falhou() {
+            return erro.get() != null;
+        }
+
+        void aguardar() throws IOException {
+            try {
+                fim.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Processamento interrompido", e);
+            }
+            Throwable falha = erro.get();
+            if (falha instanceof IOException io) {
+                throw io;
+            }
+            if (falha != null) {
+                throw new IOException("Falha inesperada no processamento", falha);
+            }
+            synchronized (writer) {
+                writer.flush();
+            }
+        }
+    }
+
+    private String cabecalhoCsv() {
+        return switch (modo) {
+            case ALINEA1 -> "linha,shift,mensagem,erro";
+            case ALINEA2 -> "linha,shiftSalt1,salt1,shiftMensagem,mensagem,shiftSalt2,salt2,erro";
+            case SEGMENTOS -> "linha,segmento,shift,texto,erro";
+            case HASH -> "linha,mensagem,pepper,salt,posicaoSalt,erro";
+        };
+    }
+
+    private int colunasCsv() {
+        return cabecalhoCsv().split(",").length;
+    }
+
+    private static String campo(String[] campos, int indice, String padrao) {
+        if (indice >= campos.length || campos[indice].trim().isEmpty()) {
+            return padrao;
+        }
+        return campos[indice].trim();
+    }
+
+    private static String valor(String[] args, int indice) {
+        if (indice >= args.length) {
+            throw new IllegalArgumentException("Falta o valor de " + args[indice - 1]);
+        }
+        return args[indice];
+    }
+
+    static String json(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length() + 2).append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static String csv(String texto) {
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
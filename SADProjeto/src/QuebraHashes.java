@@ -0,0 +1,334 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recuperação da chave de hashes quando o alfabeto de substituição e a deslocação são desconhecidos
+ *
+ * A deslocação de César seguida da substituição equivale a uma única substituição
+ * monoalfabética, pelo que as duas não se distinguem: a chave recuperada é devolvida
+ * com deslocação 0 e um alfabeto que já incorpora a deslocação.
+ *
+ * A chave é procurada por subida de encosta com reinícios aleatórios, maximizando a
+ * log-probabilidade de trigramas do {@link PerfilIdioma}. O texto é codificado em
+ * inteiros e cada troca de duas letras da chave só reavalia os trigramas que contêm
+ * essas letras.
+ */
+public class QuebraHashes {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Chave recuperada para uma hash
+     * @param hash Hash em Base64
+     * @param alfabeto Alfabeto de substituição equivalente (com deslocação 0)
+     * @param deslocacao Deslocação de César correspondente ao alfabeto (sempre 0)
+     * @param idioma Idioma que melhor explica o texto
+     * @param pontuacao Log-probabilidade média por n-grama (maior é melhor)
+     * @param resultados Mensagens, pepper e salt obtidos com a chave recuperada
+     */
+    public record ResultadoQuebra(String hash, String alfabeto, int deslocacao, PerfilIdioma idioma,
+                                  double pontuacao, List<CaesarCipher.ResultadoDesencriptacao> resultados) {}
+
+    private final int reinicios;
+    private final long semente;
+
+    public QuebraHashes() {
+        this(20, 42L);
+    }
+
+    /**
+     * @param reinicios Número de reinícios da subida de encosta por idioma
+     * @param semente Semente base do gerador aleatório (cada hash usa uma semente derivada)
+     */
+    public QuebraHashes(int reinicios, long semente) {
+        if (reinicios <= 0) {
+            throw new IllegalArgumentException("O número de reinícios deve ser positivo");
+        }
+        this.reinicios = reinicios;
+        this.semente = semente;
+    }
+
+    /**
+     * Recupera a chave de um lote de hashes, distribuindo-as pelos núcleos disponíveis
+     * @param hashes Hashes em Base64
+     * @return Resultados pela ordem de entrada
+     */
+    public List<ResultadoQuebra> quebrarLote(List<String> hashes) {
+        return hashes.parallelStream()
+                .map(this::quebrar)
+                .toList();
+    }
+
+    /**
+     * Recupera a chave de uma hash
+     * @param hashBase64 Hash em Base64
+     * @return Chave e mensagens mais prováveis
+     */
+    public ResultadoQuebra quebrar(String hashBase64) {
+        if (hashBase64 == null || hashBase64.isEmpty()) {
+            throw new IllegalArgumentException("Hash Base64 inválida");
+        }
+
+        byte[] dados;
+        try {
+            dados = Base64.getDecoder().decode(hashBase64);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Hash Base64 inválida", e);
+        }
+
+        int[] cifra = new int[dados.length];
+        for (int i = 0; i < dados.length; i++) {
+            cifra[i] = KernelDeslocamento.codigoLetra(dados[i]);
+        }
+
+        Random random = new Random(semente ^ hashBase64.hashCode());
+        int[] melhorChave = null;
+        PerfilIdioma melhorIdioma = null;
+        double melhorMedia = Double.NEGATIVE_INFINITY;
+
+        for (PerfilIdioma perfil : PerfilIdioma.values()) {
+            Avaliador avaliador = new Avaliador(cifra, perfil);
+            int[] chave = subirEncosta(avaliador, random);
+            double media = avaliador.media();
+            if (melhorChave == null || media > melhorMedia) {
+                melhorChave = chave;
+                melhorIdioma = perfil;
+                melhorMedia = media;
+            }
+        }
+
+        String alfabeto = alfabetoDaChave(melhorChave);
+        List<CaesarCipher.ResultadoDesencriptacao> resultados;
+        try {
+            resultados = CaesarCipher.desencriptarHashComParametros(hashBase64, alfabeto, 0, null, null, null);
+        } catch (IllegalArgumentException e) {
+            resultados = List.of();
+        }
+
+        return new ResultadoQuebra(hashBase64, alfabeto, 0, melhorIdioma, melhorMedia, resultados);
+    }
+
+    private int[] subirEncosta(Avaliador avaliador, Random random) {
+        int[] melhor = avaliador.chaveInicial();
+        avaliador.definirChave(melhor);
+        otimizar(avaliador);
+        melhor = avaliador.chave.clone();
+        double melhorTotal = avaliador.total;
+
+        for (int r = 1; r < reinicios; r++) {
+            // Perturbar a melhor chave com algumas trocas aleatórias
+            int[] chave = melhor.clone();
+            int trocas = 2 + r % 6;
+            for (int t = 0; t < trocas; t++) {
+                int a = random.nextInt(26);
+                int b = random.nextInt(26);
+                int tmp = chave[a];
+                chave[a] = chave[b];
+                chave[b] = tmp;
+            }
+            avaliador.definirChave(chave);
+            otimizar(avaliador);
+            if (avaliador.total > melhorTotal + EPSILON) {
+                melhor = avaliador.chave.clone();
+                melhorTotal = avaliador.total;
+            }
+        }
+
+        avaliador.definirChave(melhor);
+        return melhor;
+    }
+
+    private static void otimizar(Avaliador avaliador) {
+        boolean melhorou = true;
+        while (melhorou) {
+            melhorou = false;
+            for (int a = 0; a < 26; a++) {
+                for (int b = a + 1; b < 26; b++) {
+                    if (avaliador.semJanelas(a) && avaliador.semJanelas(b)) {
+                        continue;
+                    }
+                    double antes = avaliador.total;
+                    if (avaliador.trocar(a, b) > antes + EPSILON) {
+                        melhorou = true;
+                    } else {
+                        avaliador.trocar(a, b);
+                    }
+                }
+            }
+        }
+    }
+
+    // A letra cifrada x decifra para chave[x], logo alfabeto[chave[x]] = x
+    private static String alfabetoDaChave(int[] chave) {
+        char[] alfabeto = new char[26];
+        for (int x = 0; x < 26; x++) {
+            alfabeto[chave[x]] = (char) ('A' + x);
+        }
+        return new String(alfabeto);
+    }
+
+    /**
+     * Pontuação incremental de um texto cifrado sob uma chave de substituição
+     * As janelas são trigramas dentro de palavras e bigramas de palavras com duas letras.
+     */
+    static final class Avaliador {
+        private final int[] cifra;
+        private final PerfilIdioma perfil;
+        private final int[] janelaInicio;
+        private final boolean[] janelaTrigrama;
+        private final int[][] janelasPorLetra;
+        private final int[] contagens = new int[26];
+        private final double[] contribuicao;
+        private final int[] marca;
+        private int carimbo;
+
+        final int[] chave = new int[26];
+        double total;
+
+        Avaliador(int[] cifra, PerfilIdioma perfil) {
+            this.cifra = cifra;
+            this.perfil = perfil;
+
+            List<Integer> inicios = new ArrayList<>();
+            List<Boolean> trigramas = new ArrayList<>();
+            int tamanhoPalavra = 0;
+            for (int i = 0; i <= cifra.length; i++) {
+                int c = i < cifra.length ? cifra[i] : -1;
+                if (c < 0) {
+                    if (tamanhoPalavra == 2) {
+                        inicios.add(i - 2);
+                        trigramas.add(false);
+                    }
+                    tamanhoPalavra = 0;
+                    continue;
+                }
+                contagens[c]++;
+                tamanhoPalavra++;
+                if (tamanhoPalavra >= 3) {
+                    inicios.add(i - 2);
+                    trigramas.add(true);
+                }
+            }
+
+            int n = inicios.size();
+            janelaInicio = new int[n];
+            janelaTrigrama = new boolean[n];
+            contribuicao = new double[n];
+            marca = new int[n];
+
+            int[] porLetra = new int[26];
+            for (int j = 0; j < n; j++) {
+                janelaInicio[j] = inicios.get(j);
+                janelaTrigrama[j] = trigramas.get(j);
+                for (int k = 0; k < tamanho(j); k++) {
+                    porLetra[cifra[janelaInicio[j] + k]]++;
+                }
+            }
+            janelasPorLetra = new int[26][];
+            for (int x = 0; x < 26; x++) {
+                janelasPorLetra[x] = new int[porLetra[x]];
+                porLetra[x] = 0;
+            }
+            for (int j = 0; j < n; j++) {
+                for (int k = 0; k < tamanho(j); k++) {
+                    int x = cifra[janelaInicio[j] + k];
+                    janelasPorLetra[x][porLetra[x]++] = j;
+                }
+            }
+        }
+
+        /**
+         * Chave inicial: letras cifradas ordenadas por frequência emparelhadas com as do idioma
+         */
+        int[] chaveInicial() {
+            Integer[] cifradas = new Integer[26];
+            Integer[] idioma = new Integer[26];
+            for (int i = 0; i < 26; i++) {
+                cifradas[i] = i;
+                idioma[i] = i;
+            }
+            Arrays.sort(cifradas, (a, b) -> Integer.compare(contagens[b], contagens[a]));
+            Arrays.sort(idioma, (a, b) -> Double.compare(perfil.frequencia(b), perfil.frequencia(a)));
+
+            int[] inicial = new int[26];
+            for (int i = 0; i < 26; i++) {
+                inicial[cifradas[i]] = idioma[i];
+            }
+            return inicial;
+        }
+
+        void definirChave(int[] nova) {
+            System.arraycopy(nova, 0, chave, 0, 26);
+            total = 0;
+            for (int j = 0; j < janelaInicio.length; j++) {
+                contribuicao[j] = valor(j);
+                total += contribuicao[j];
+            }
+        }
+
+        boolean semJanelas(int letra) {
+            return janelasPorLetra[letra].length == 0;
+        }
+
+        /**
+         * Troca as letras decifradas de x e y e atualiza só as janelas afetadas
+         * @return Nova pontuação total
+         */
+        double trocar(int x, int y) {
+            int tmp = chave[x];
+            chave[x] = chave[y];
+            chave[y] = tmp;
+
+            carimbo++;
+            atualizar(janelasPorLetra[x]);
+            atualizar(janelasPorLetra[y]);
+            return total;
+        }
+
+        double media() {
+            return janelaInicio.length == 0 ? Double.NEGATIVE_INFINITY : total / janelaInicio.length;
+        }
+
+        private void atualizar(int[] janelas) {
+            for (int j : janelas) {
+                if (marca[j] == carimbo) {
+                    continue;
+                }
+                marca[j] = carimbo;
+                double novo = valor(j);
+                total += novo - contribuicao[j];
+                contribuicao[j] = novo;
+            }
+        }
+
+        private int tamanho(int janela) {
+            return janelaTrigrama[janela] ? 3 : 2;
+        }
+
+        private double valor(int janela) {
+            int s = janelaInicio[janela];
+            if (janelaTrigrama[janela]) {
+                return perfil.logTrigrama(chave[cifra[s]], chave[cifra[s + 1]], chave[cifra[s + 2]]);
+            }
+            return perfil.logBigrama(chave[cifra[s]], chave[cifra[s + 1]]);
+        }
+    }
+
+    /**
+     * Cifra um texto com um alfabeto de substituição e uma deslocação e codifica-o em Base64
+     * Operação inversa de {@link CaesarCipher#desencriptarHashComParametros}; útil para gerar casos de teste.
+     */
+    static String cifrar(String texto, String alfabeto, int deslocacao) {
+        StringBuilder substituido = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = Character.toUpperCase(texto.charAt(i));
+            substituido.append(c >= 'A' && c <= 'Z' ? alfabeto.charAt(c - 'A') : c);
+        }
+        String cifrado = CaesarCipher.desencriptarComDeslocamento(substituido.toString(), 26 - KernelDeslocamento.normalizar(deslocacao));
+        return Base64.getEncoder().encodeToString(cifrado.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
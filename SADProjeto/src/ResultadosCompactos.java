@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resultados da Alínea 2 guardados de forma compacta, para apresentar por páginas
+ *
+ * Cada combinação aceite ocupa 2 bytes: os três deslocamentos (salt1, mensagem, salt2)
+ * empacotados num short, que referem o texto cifrado partilhado. Os textos só são
+ * desencriptados quando uma combinação é pedida, pelo que as 17.576 combinações sem
+ * filtros ocupam cerca de 34 KB em vez de dezenas de milhares de Strings.
+ *
+ * As combinações ficam ordenadas pela pontuação da mensagem (a mais provável primeiro,
+ * ver {@link ClassificadorCandidatos}) e, dentro de cada mensagem, por salt1 e salt2.
+ * O rank de uma combinação é a posição da sua mensagem nessa ordem, a começar em 1.
+ */
+public final class ResultadosCompactos {
+
+    private final String cipherText;
+    private final short[] combinacoes;
+    private final double[] pontuacoes;
+    // Rank (a começar em 0) de cada deslocamento da mensagem aceite, -1 se foi rejeitada
+    private final int[] rankPorShift;
+    // Deslocamentos das mensagens aceites, pela ordem do rank
+    private final int[] mensagens;
+
+    /**
+     * @param cipherText Texto cifrado (3 caracteres de Salt1 + mensagem + 3 caracteres de Salt2)
+     * @param filtrosAtivos Se verdadeiro, só as mensagens que cumprem os filtros são combinadas
+     * @param modelo Modelo de pontuação das mensagens
+     */
+    ResultadosCompactos(String cipherText, boolean filtrosAtivos, ModeloPontuacao modelo) {
+        int tamanhoSalt = MotorPesquisaSalts.TAMANHO_SALT;
+        String mensagemCifrada = cipherText.substring(tamanhoSalt, cipherText.length() - tamanhoSalt);
+        this.cipherText = cipherText;
+        this.pontuacoes = new ClassificadorCandidatos(modelo).pontuarDeslocamentos(mensagemCifrada);
+        this.rankPorShift = new int[26];
+
+        int[] ordem = ClassificadorCandidatos.ordenar(pontuacoes);
+        int[] aceites = new int[26];
+        int total = 0;
+        for (int shift : ordem) {
+            rankPorShift[shift] = -1;
+            if (!filtrosAtivos || CaesarCipher.textoValido(
+                    CaesarCipher.desencriptarComDeslocamento(mensagemCifrada, shift))) {
+                rankPorShift[shift] = total;
+                aceites[total++] = shift;
+            }
+        }
+        this.mensagens = Arrays.copyOf(aceites, total);
+
+        this.combinacoes = new short[total * 26 * 26];
+        int i = 0;
+        for (int shiftMensagem : mensagens) {
+            for (int shiftSalt1 = 0; shiftSalt1 < 26; shiftSalt1++) {
+                for (int shiftSalt2 = 0; shiftSalt2 < 26; shiftSalt2++) {
+                    combinacoes[i++] = empacotar(shiftSalt1, shiftMensagem, shiftSalt2);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Número de combinações aceites
+     */
+    public int tamanho() {
+        return combinacoes.length;
+    }
+
+    public boolean vazio() {
+        return combinacoes.length == 0;
+    }
+
+    /**
+     * @return Número de mensagens aceites (o maior rank)
+     */
+    public int numeroMensagens() {
+        return mensagens.length;
+    }
+
+    public String cipherText() {
+        return cipherText;
+    }
+
+    /**
+     * @param tamanhoPagina Combinações por página
+     * @return Número de páginas (pelo menos 1)
+     */
+    public int paginas(int tamanhoPagina) {
+        validarTamanhoPagina(tamanhoPagina);
+        return Math.max(1, (combinacoes.length + tamanhoPagina - 1) / tamanhoPagina);
+    }
+
+    /**
+     * @param indice Posição da combinação (a começar em 0)
+     * @return Deslocamento de salt1, da mensagem e de salt2
+     */
+    public int[] shifts(int indice) {
+        int c = combinacoes[validarIndice(indice)];
+        return new int[]{c / (26 * 26), c / 26 % 26, c % 26};
+    }
+
+    /**
+     * @param indice Posição da combinação (a começar em 0)
+     * @return Rank da mensagem da combinação, a começar em 1
+     */
+    public int rank(int indice) {
+        return rankPorShift[combinacoes[validarIndice(indice)] / 26 % 26] + 1;
+    }
+
+    /**
+     * @param indice Posição da combinação (a começar em 0)
+     * @return Pontuação da mensagem da combinação (maior é melhor)
+     */
+    public double pontuacao(int indice) {
+        return pontuacoes[combinacoes[validarIndice(indice)] / 26 % 26];
+    }
+
+    /**
+     * @param rank Rank da mensagem, a começar em 1
+     * @return Posição da primeira combinação com essa mensagem
+     */
+    public int inicioRank(int rank) {
+        if (rank < 1 || rank > mensagens.length) {
+            throw new IllegalArgumentException("O rank deve estar entre 1 e " + mensagens.length);
+        }
+        return (rank - 1) * 26 * 26;
+    }
+
+    /**
+     * Desencripta uma combinação
+     * @param indice Posição da combinação (a começar em 0)
+     * @return Combinação com os textos desencriptados
+     */
+    public MotorPesquisaSalts.ResultadoCombinacao obter(int indice) {
+        int[] s = shifts(indice);
+        int tamanhoSalt = MotorPesquisaSalts.TAMANHO_SALT;
+        return new MotorPesquisaSalts.ResultadoCombinacao(
+                s[0], desencriptar(0, tamanhoSalt, s[0]),
+                s[1], desencriptar(tamanhoSalt, cipherText.length() - tamanhoSalt, s[1]),
+                s[2], desencriptar(cipherText.length() - tamanhoSalt, cipherText.length(), s[2]));
+    }
+
+    /**
+     * Desencripta uma página de combinações
+     * A mensagem é desencriptada uma vez por página e partilhada pelas combinações que a usam.
+     * @param numero Número da página, a começar em 0
+     * @param tamanhoPagina Combinações por página
+     * @return Combinações da página (vazia se a página estiver fora do intervalo)
+     */
+    public List<MotorPesquisaSalts.ResultadoCombinacao> pagina(int numero, int tamanhoPagina) {
+        validarTamanhoPagina(tamanhoPagina);
+        if (numero < 0) {
+            return List.of();
+        }
+        int inicio = (int) Math.min((long) numero * tamanhoPagina, combinacoes.length);
+        int fim = Math.min(inicio + tamanhoPagina, combinacoes.length);
+
+        int tamanhoSalt = MotorPesquisaSalts.TAMANHO_SALT;
+        int n = cipherText.length();
+        List<MotorPesquisaSalts.ResultadoCombinacao> pagina = new ArrayList<>(fim - inicio);
+        int shiftAnterior = -1;
+        String mensagem = null;
+        for (int i = inicio; i < fim; i++) {
+            int c = combinacoes[i];
+            int shiftSalt1 = c / (26 * 26);
+            int shiftMensagem = c / 26 % 26;
+            int shiftSalt2 = c % 26;
+            if (shiftMensagem != shiftAnterior) {
+                mensagem = desencriptar(tamanhoSalt, n - tamanhoSalt, shiftMensagem);
+                shiftAnterior = shiftMensagem;
+            }
+            pagina.add(new MotorPesquisaSalts.ResultadoCombinacao(
+                    shiftSalt1, desencriptar(0, tamanhoSalt, shiftSalt1),
+                    shiftMensagem, mensagem,
+                    shiftSalt2, desencriptar(n - tamanhoSalt, n, shiftSalt2)));
+        }
+        return pagina;
+    }
+
+    private static short empacotar(int shiftSalt1, int shiftMensagem, int shiftSalt2) {
+        // 26^3 = 17.576 cabe em 15 bits
+        return (short) ((shiftSalt1 * 26 + shiftMensagem) * 26 + shiftSalt2);
+    }
+
+    private String desencriptar(int inicio, int fim, int shift) {
+        char[] texto = new char[fim - inicio];
+        cipherText.getChars(inicio, fim, texto, 0);
+        KernelDeslocamento.desencriptar(texto, 0, texto.length, texto, 0, shift);
+        return new String(texto);
+    }
+
+    private int validarIndice(int indice) {
+        if (indice < 0 || indice >= combinacoes.length) {
+            throw new IllegalArgumentException("Posição fora dos resultados: " + indice);
+        }
+        return indice;
+    }
+
+    private static void validarTamanhoPagina(int tamanhoPagina) {
+        if (tamanhoPagina <= 0) {
+            throw new IllegalArgumentException("O tamanho da página deve ser positivo");
+        }
+    }
+}
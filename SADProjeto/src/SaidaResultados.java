@@ -0,0 +1,318 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Destino das linhas de resultados produzidas pela desencriptação
+ * Permite enviar os resultados para a consola, um ficheiro, memória ou para lado
+ * nenhum, e desacoplar a escrita do cálculo através de uma thread de escrita.
+ */
+public interface SaidaResultados extends AutoCloseable {
+
+    /**
+     * Escreve uma linha terminada por '\n' (como printf("...\n"), em qualquer sistema)
+     * @param linha Texto da linha
+     */
+    void escrever(String linha);
+
+    /**
+     * Escreve uma linha terminada pelo separador do sistema (como System.out.println)
+     * As saídas que não escrevem texto tratam-na como {@link #escrever}.
+     * @param linha Texto da linha
+     */
+    default void escreverComSeparadorSistema(String linha) {
+        escrever(linha);
+    }
+
+    /**
+     * Garante que todas as linhas escritas até agora chegaram ao destino
+     */
+    void flush();
+
+    @Override
+    void close();
+
+    /**
+     * @return Saída com buffer para a consola (System.out não é fechado)
+     */
+    static SaidaResultados consola() {
+        return new Escritor(new OutputStreamWriter(System.out, System.out.charset()), false);
+    }
+
+    /**
+     * @param ficheiro Ficheiro de destino (é criado ou substituído)
+     * @return Saída com buffer para o ficheiro, em UTF-8
+     */
+    static SaidaResultados ficheiro(Path ficheiro) throws IOException {
+        return new Escritor(Files.newBufferedWriter(ficheiro, StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * @param writer Destino
+     * @return Saída com buffer para o writer indicado (é fechado com a saída)
+     */
+    static SaidaResultados escritor(Writer writer) {
+        return new Escritor(writer, true);
+    }
+
+    /**
+     * @return Saída que descarta todas as linhas
+     */
+    static SaidaResultados nula() {
+        return Nula.INSTANCIA;
+    }
+
+    /**
+     * @param destino Saída real
+     * @return Saída que entrega as linhas a uma thread de escrita, em lotes
+     */
+    static SaidaResultados assincrona(SaidaResultados destino) {
+        return new Assincrona(destino, Assincrona.CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * Saída sobre um {@link Writer} com buffer
+     */
+    final class Escritor implements SaidaResultados {
+        private final Writer writer;
+        private final boolean fecharDestino;
+
+        Escritor(Writer writer, boolean fecharDestino) {
+            this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, 1 << 16);
+            this.fecharDestino = fecharDestino;
+        }
+
+        @Override
+        public void escrever(String linha) {
+            escrever(linha, "\n");
+        }
+
+        @Override
+        public void escreverComSeparadorSistema(String linha) {
+            escrever(linha, System.lineSeparator());
+        }
+
+        private void escrever(String linha, String separador) {
+            try {
+                writer.write(linha);
+                writer.write(separador);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (fecharDestino) {
+                    writer.close();
+                } else {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Saída em memória, útil para testes e para quem consome os resultados diretamente
+     */
+    final class Memoria implements SaidaResultados {
+        private final List<String> linhas = new ArrayList<>();
+
+        @Override
+        public synchronized void escrever(String linha) {
+            linhas.add(linha);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        public synchronized List<String> linhas() {
+            return List.copyOf(linhas);
+        }
+    }
+
+    /**
+     * Saída que descarta tudo
+     */
+    final class Nula implements SaidaResultados {
+        static final Nula INSTANCIA = new Nula();
+
+        private Nula() {
+        }
+
+        @Override
+        public void escrever(String linha) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Saída assíncrona: as linhas vão para uma fila limitada e uma thread de escrita
+     * retira-as em lotes para o destino, pelo que quem calcula não espera pelo terminal
+     * (só bloqueia se a fila encher).
+     */
+    final class Assincrona implements SaidaResultados {
+        static final int CAPACIDADE_PADRAO = 8192;
+        private static final int TAMANHO_LOTE = 1024;
+        private static final Object FIM = new Object();
+
+        private record LinhaSistema(String linha) {}
+
+        private final SaidaResultados destino;
+        private final BlockingQueue<Object> fila;
+        private final Thread escritor;
+        private volatile RuntimeException erro;
+        private boolean fechada;
+
+        Assincrona(SaidaResultados destino, int capacidade) {
+            this.destino = destino;
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+            this.escritor = new Thread(this::escreverLotes, "saida-resultados");
+            this.escritor.setDaemon(true);
+            this.escritor.start();
+        }
+
+        @Override
+        public void escrever(String linha) {
+            colocar(linha);
+        }
+
+        @Override
+        public void escreverComSeparadorSistema(String linha) {
+            colocar(new LinhaSistema(linha));
+        }
+
+        @Override
+        public void flush() {
+            CountDownLatch concluido = new CountDownLatch(1);
+            colocar(concluido);
+            try {
+                concluido.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            verificarErro();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (fechada) {
+                return;
+            }
+            fechada = true;
+            try {
+                // Mesmo após um erro a thread de escrita continua a esvaziar a fila até ao FIM
+                fila.put(FIM);
+                escritor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            destino.close();
+            verificarErro();
+        }
+
+        private void colocar(Object elemento) {
+            verificarErro();
+            try {
+                fila.put(elemento);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Escrita de resultados interrompida", e);
+            }
+        }
+
+        private void verificarErro() {
+            if (erro != null) {
+                throw erro;
+            }
+        }
+
+        private void escreverLotes() {
+            List<Object> lote = new ArrayList<>(TAMANHO_LOTE);
+            try {
+                while (true) {
+                    lote.add(fila.take());
+                    fila.drainTo(lote, TAMANHO_LOTE - 1);
+                    for (Object elemento : lote) {
+                        if (elemento == FIM) {
+                            destino.flush();
+                            return;
+                        } else if (elemento instanceof CountDownLatch concluido) {
+                            destino.flush();
+                            concluido.countDown();
+                        } else if (elemento instanceof LinhaSistema l) {
+                            destino.escreverComSeparadorSistema(l.linha());
+                        } else {
+                            destino.escrever((String) elemento);
+                        }
+                    }
+                    lote.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                erro = e;
+                // Libertar quem esteja à espera de flush e esvaziar a fila até ao fecho
+                for (Object elemento : lote) {
+                    if (elemento == FIM) {
+                        return;
+                    }
+                    if (elemento instanceof CountDownLatch concluido) {
+                        concluido.countDown();
+                    }
+                }
+                drenarAposErro();
+            }
+        }
+
+        private void drenarAposErro() {
+            try {
+                while (true) {
+                    Object elemento = fila.take();
+                    if (elemento == FIM) {
+                        return;
+                    }
+                    if (elemento instanceof CountDownLatch concluido) {
+                        concluido.countDown();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
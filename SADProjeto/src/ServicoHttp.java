@@ -0,0 +1,565 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serviço HTTP/JSON local para desencriptação
+ * Usa o servidor HTTP do JDK com uma thread virtual por pedido. Os pedidos pequenos
+ * que chegam ao mesmo tempo são agrupados em micro-lotes processados de uma vez, o
+ * que permite, por exemplo, partilhar o mapa inverso de um alfabeto entre todas as
+ * hashes do lote que o usam. Os resultados ficam numa cache LRU limitada em memória,
+ * opcionalmente gravada em disco ao parar para sobreviver a reinícios.
+ *
+ * Utilização:
+ *   java Main --servidor [--porta 8080] [--max-pedidos 10000] [--timeout-ms 2000]
+ *                        [--lote-max 256] [--espera-lote-us 500]
+ *                        [--cache-mb 64] [--cache-ficheiro cache.bin] [--metricas-s 60]
+ *
+ * Pedidos (POST, corpo JSON):
+ *   /alinea1  {"mensagem": "...", "filtros": true}
+ *   /alinea2  {"mensagem": "...", "filtros": true}
+ *   /hash     {"hash": "...", "alfabeto": "...", "deslocacao": 3,
+ *              "pepper": "12", "salt": "!#", "saltNoInicio": false}
+ *   GET /cache devolve os contadores da cache (acertos, falhas, remoções).
+ *   GET /metricas devolve o relatório de {@link Metricas} em texto (também disponível por JMX).
+ *
+ * Quando há mais pedidos em curso do que o permitido a resposta é 503; quando o
+ * processamento excede o tempo limite a resposta é 504. Corpos com mais de 1 MiB são
+ * recusados com 413, pelo que a memória dos pedidos em curso também fica limitada.
+ */
+public class ServicoHttp {
+
+    static final int TAMANHO_MAXIMO_CORPO = 1024 * 1024;
+
+    private enum Tipo { ALINEA1, ALINEA2, HASH }
+
+    private record Pedido(Tipo tipo, Map<String, Object> corpo, CompletableFuture<String> resposta) {}
+
+    private final int porta;
+    private final long timeoutMs;
+    private final int loteMaximo;
+    private final long esperaLoteNanos;
+    private final Semaphore vagas;
+    private final CifraEmCache cache;
+    private final BlockingQueue<Pedido> fila = new LinkedBlockingQueue<>();
+    private final ExecutorService processamento =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    private HttpServer servidor;
+    private Thread agrupador;
+
+    /**
+     * @param porta Porta local (0 escolhe uma porta livre)
+     * @param maxPedidos Número máximo de pedidos em curso antes de rejeitar com 503
+     * @param timeoutMs Tempo máximo de processamento de um pedido
+     * @param loteMaximo Número máximo de pedidos por micro-lote
+     * @param esperaLoteMicros Tempo máximo de espera por mais pedidos antes de fechar um lote
+     * @param cache Cache de resultados, ou null para calcular sempre
+     */
+    public ServicoHttp(int porta, int maxPedidos, long timeoutMs, int loteMaximo, long esperaLoteMicros,
+                       CifraEmCache cache) {
+        if (maxPedidos <= 0 || timeoutMs <= 0 || loteMaximo <= 0 || esperaLoteMicros < 0) {
+            throw new IllegalArgumentException("Parâmetros do servidor inválidos");
+        }
+        this.porta = porta;
+        this.timeoutMs = timeoutMs;
+        this.loteMaximo = loteMaximo;
+        this.esperaLoteNanos = TimeUnit.MICROSECONDS.toNanos(esperaLoteMicros);
+        this.vagas = new Semaphore(maxPedidos);
+        this.cache = cache;
+    }
+
+    /**
+     * Ponto de entrada a partir da linha de comandos (bloqueia até o processo terminar)
+     * @param args Argumentos (ver documentação da classe)
+     * @return Código de saída em caso de erro
+     */
+    public static int executar(String[] args) {
+        int porta = 8080;
+        int maxPedidos = 10_000;
+        long timeoutMs = 2_000;
+        int loteMax = 256;
+        long esperaLote = 500;
+        long cacheMb = 64;
+        Path ficheiroCache = null;
+        long intervaloMetricas = 0;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--servidor" -> { }
+                    case "--porta" -> porta = Integer.parseInt(args[++i]);
+                    case "--max-pedidos" -> maxPedidos = Integer.parseInt(args[++i]);
+                    case "--timeout-ms" -> timeoutMs = Long.parseLong(args[++i]);
+                    case "--lote-max" -> loteMax = Integer.parseInt(args[++i]);
+                    case "--espera-lote-us" -> esperaLote = Long.parseLong(args[++i]);
+                    case "--cache-mb" -> cacheMb = Long.parseLong(args[++i]);
+                    case "--cache-ficheiro" -> ficheiroCache = Path.of(args[++i]);
+                    case "--metricas-s" -> intervaloMetricas = Long.parseLong(args[++i]);
+                    default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+                }
+            }
+            CifraEmCache cache = cacheMb > 0 ? new CifraEmCache(cacheMb << 20, ficheiroCache) : null;
+            ServicoHttp servico = new ServicoHttp(porta, maxPedidos, timeoutMs, loteMax, esperaLote, cache);
+            servico.iniciar();
+            Metricas.registarJmx();
+            if (intervaloMetricas > 0) {
+                Metricas.iniciarRelatorio(intervaloMetricas, System.err::println);
+            }
+            System.err.println("Serviço a escutar em http://localhost:" + servico.porta() + "/");
+            Runtime.getRuntime().addShutdownHook(new Thread(servico::parar));
+            Thread.currentThread().join();
+            return 0;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("[ERRO] " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("[ERRO] Não foi possível iniciar o servidor: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    public void iniciar() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", porta), 1024);
+        servidor.createContext("/alinea1", troca -> tratar(troca, Tipo.ALINEA1));
+        servidor.createContext("/alinea2", troca -> tratar(troca, Tipo.ALINEA2));
+        servidor.createContext("/hash", troca -> tratar(troca, Tipo.HASH));
+        servidor.createContext("/cache", this::estatisticasCache);
+        servidor.createContext("/metricas", troca -> {
+            try (troca) {
+                byte[] bytes = Metricas.relatorio().getBytes(StandardCharsets.UTF_8);
+                troca.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                troca.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = troca.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        });
+        servidor.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+
+        agrupador = new Thread(this::agruparLotes, "servico-agrupador");
+        agrupador.setDaemon(true);
+        agrupador.start();
+        servidor.start();
+    }
+
+    public void parar() {
+        if (servidor != null) {
+            servidor.stop(0);
+        }
+        if (agrupador != null) {
+            agrupador.interrupt();
+        }
+        processamento.shutdownNow();
+        if (cache != null) {
+            try {
+                cache.persistir();
+            } catch (IOException e) {
+                System.err.println("[ERRO] Não foi possível gravar a cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Porta efetivamente usada pelo servidor
+     */
+    public int porta() {
+        return servidor.getAddress().getPort();
+    }
+
+    private void tratar(HttpExchange troca, Tipo tipo) throws IOException {
+        try (troca) {
+            if (!"POST".equals(troca.getRequestMethod())) {
+                responder(troca, 405, erro("Use POST"));
+                return;
+            }
+            // Recusa logo o que se anuncia grande de mais, sem ocupar uma vaga
+            String tamanhoAnunciado = troca.getRequestHeaders().getFirst("Content-Length");
+            if (tamanhoAnunciado != null && tamanhoExcessivo(tamanhoAnunciado)) {
+                responder(troca, 413, erro("Corpo do pedido demasiado grande"));
+                return;
+            }
+            if (!vagas.tryAcquire()) {
+                troca.getResponseHeaders().add("Retry-After", "1");
+                responder(troca, 503, erro("Servidor sobrecarregado"));
+                return;
+            }
+            CompletableFuture<String> futuro = new CompletableFuture<>();
+            try {
+                Map<String, Object> corpo;
+                try (InputStream in = troca.getRequestBody()) {
+                    // Sem Content-Length (chunked) o limite é verificado ao ler
+                    byte[] bytes = in.readNBytes(TAMANHO_MAXIMO_CORPO + 1);
+                    if (bytes.length > TAMANHO_MAXIMO_CORPO) {
+                        responder(troca, 413, erro("Corpo do pedido demasiado grande"));
+                        return;
+                    }
+                    corpo = Json.lerObjeto(new String(bytes, StandardCharsets.UTF_8));
+                }
+
+                fila.add(new Pedido(tipo, corpo, futuro));
+                String resposta = futuro.get(timeoutMs, TimeUnit.MILLISECONDS);
+                responder(troca, 200, resposta);
+            } catch (IllegalArgumentException e) {
+                responder(troca, 400, erro(e.getMessage()));
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof IllegalArgumentException) {
+                    responder(troca, 400, erro(causa.getMessage()));
+                } else {
+                    responder(troca, 500, erro("Erro interno"));
+                }
+            } catch (TimeoutException e) {
+                // O pedido cancelado é ignorado quando o lote chegar a ele
+                futuro.cancel(false);
+                responder(troca, 504, erro("Tempo limite excedido"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                responder(troca, 503, erro("Pedido interrompido"));
+            } finally {
+                vagas.release();
+            }
+        }
+    }
+
+    private static boolean tamanhoExcessivo(String tamanho) {
+        try {
+            return Long.parseLong(tamanho.trim()) > TAMANHO_MAXIMO_CORPO;
+        } catch (NumberFormatException e) {
+            // O servidor do JDK já recusa Content-Length inválidos; na dúvida, lê com o limite
+            return false;
+        }
+    }
+
+    private void estatisticasCache(HttpExchange troca) throws IOException {
+        try (troca) {
+            if (cache == null) {
+                responder(troca, 404, erro("Cache desativada"));
+                return;
+            }
+            CacheResultados.Estatisticas e = cache.estatisticas();
+            responder(troca, 200, "{\"acertos\":" + e.acertos() + ",\"falhas\":" + e.falhas()
+                    + ",\"remocoes\":" + e.remocoes() + ",\"rejeicoes\":" + e.rejeicoes()
+                    + ",\"entradas\":" + e.entradas() + ",\"bytes\":" + e.bytes() + "}");
+        }
+    }
+
+    private static void responder(HttpExchange troca, int estado, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(estado, bytes.length);
+        try (OutputStream out = troca.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String erro(String mensagem) {
+        return "{\"erro\":" + ProcessamentoLote.json(mensagem == null ? "" : mensagem) + "}";
+    }
+
+    /**
+     * Junta os pedidos que chegam num intervalo curto (ou até ao tamanho máximo) num lote
+     */
+    private void agruparLotes() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Pedido> lote = new ArrayList<>(loteMaximo);
+                lote.add(fila.take());
+                long limite = System.nanoTime() + esperaLoteNanos;
+                while (lote.size() < loteMaximo) {
+                    fila.drainTo(lote, loteMaximo - lote.size());
+                    long restante = limite - System.nanoTime();
+                    if (lote.size() >= loteMaximo || restante <= 0) {
+                        break;
+                    }
+                    Pedido proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                }
+                processamento.execute(() -> processarLote(lote));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processarLote(List<Pedido> lote) {
+        // Contextos partilhados pelo lote: um por combinação de filtros/alfabeto
+        Map<String, ContextoCifra> contextos = new HashMap<>();
+
+        for (Pedido pedido : lote) {
+            if (pedido.resposta().isDone()) {
+                continue;
+            }
+            try {
+                pedido.resposta().complete(processar(pedido, contextos));
+            } catch (RuntimeException e) {
+                pedido.resposta().completeExceptionally(e);
+            }
+        }
+    }
+
+    private String processar(Pedido pedido, Map<String, ContextoCifra> contextos) {
+        Map<String, Object> corpo = pedido.corpo();
+        boolean filtros = !Boolean.FALSE.equals(corpo.get("filtros"));
+
+        switch (pedido.tipo()) {
+            case ALINEA1 -> {
+                ContextoCifra contexto = contextos.computeIfAbsent("f" + filtros,
+                        chave -> ContextoCifra.PADRAO.comFiltros(filtros));
+                StringBuilder sb = new StringBuilder("{\"resultados\":[");
+                boolean primeiro = true;
+                String mensagem = texto(corpo, "mensagem");
+                List<ContextoCifra.Hipotese> hipoteses = cache != null
+                        ? cache.desencriptarTodosDeslocamentos(contexto, mensagem)
+                        : contexto.desencriptarTodosDeslocamentos(mensagem);
+                for (ContextoCifra.Hipotese h : hipoteses) {
+                    sb.append(primeiro ? "" : ",")
+                            .append("{\"shift\":").append(h.shift())
+                            .append(",\"mensagem\":").append(ProcessamentoLote.json(h.mensagem())).append('}');
+                    primeiro = false;
+                }
+                return sb.append("]}").toString();
+            }
+            case ALINEA2 -> {
+                ContextoCifra contexto = contextos.computeIfAbsent("f" + filtros,
+                        chave -> ContextoCifra.PADRAO.comFiltros(filtros));
+                StringBuilder sb = new StringBuilder("{\"resultados\":[");
+                boolean primeiro = true;
+                String mensagem = texto(corpo, "mensagem");
+                List<MotorPesquisaSalts.ResultadoCombinacao> combinacoes = cache != null
+                        ? cache.pesquisarSalts(contexto, mensagem)
+                        : contexto.pesquisarSalts(mensagem);
+                for (MotorPesquisaSalts.ResultadoCombinacao r : combinacoes) {
+                    sb.append(primeiro ? "" : ",")
+                            .append("{\"shiftSalt1\":").append(r.shiftSalt1())
+                            .append(",\"salt1\":").append(ProcessamentoLote.json(r.salt1()))
+                            .append(",\"shiftMensagem\":").append(r.shiftMensagem())
+                            .append(",\"mensagem\":").append(ProcessamentoLote.json(r.mensagem()))
+                            .append(",\"shiftSalt2\":").append(r.shiftSalt2())
+                            .append(",\"salt2\":").append(ProcessamentoLote.json(r.salt2())).append('}');
+                    primeiro = false;
+                }
+                return sb.append("]}").toString();
+            }
+            default -> {
+                String alfabeto = texto(corpo, "alfabeto");
+                ContextoCifra contexto = contextos.computeIfAbsent("a" + alfabeto,
+                        chave -> ContextoCifra.PADRAO.comAlfabeto(alfabeto));
+                Object deslocacao = corpo.get("deslocacao");
+                if (!(deslocacao instanceof Long valor)) {
+                    throw new IllegalArgumentException("Deslocação inválida");
+                }
+                int shift;
+                try {
+                    shift = Math.toIntExact(valor);
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("Deslocação inválida: " + valor, e);
+                }
+                Object posicao = corpo.get("saltNoInicio");
+                if (posicao != null && !(posicao instanceof Boolean)) {
+                    throw new IllegalArgumentException("saltNoInicio deve ser true, false ou null");
+                }
+
+                String hash = texto(corpo, "hash");
+                String pepper = textoOpcional(corpo, "pepper");
+                String salt = textoOpcional(corpo, "salt");
+                List<CaesarCipher.ResultadoDesencriptacao> resultados = cache != null
+                        ? cache.desencriptarHash(contexto, hash, shift, pepper, salt, (Boolean) posicao)
+                        : contexto.desencriptarHash(hash, shift, pepper, salt, (Boolean) posicao);
+
+                StringBuilder sb = new StringBuilder("{\"resultados\":[");
+                boolean primeiro = true;
+                for (CaesarCipher.ResultadoDesencriptacao r : resultados) {
+                    sb.append(primeiro ? "" : ",")
+                            .append("{\"mensagem\":").append(ProcessamentoLote.json(r.getMensagem()))
+                            .append(",\"pepper\":").append(ProcessamentoLote.json(r.getPepper()))
+                            .append(",\"salt\":").append(ProcessamentoLote.json(r.getSalt()))
+                            .append(",\"saltNoInicio\":").append(r.isSaltNoInicio()).append('}');
+                    primeiro = false;
+                }
+                return sb.append("]}").toString();
+            }
+        }
+    }
+
+    private static String texto(Map<String, Object> corpo, String campo) {
+        Object valor = corpo.get(campo);
+        if (!(valor instanceof String s)) {
+            throw new IllegalArgumentException("Campo '" + campo + "' em falta ou inválido");
+        }
+        return s;
+    }
+
+    private static String textoOpcional(Map<String, Object> corpo, String campo) {
+        Object valor = corpo.get(campo);
+        if (valor != null && !(valor instanceof String)) {
+            throw new IllegalArgumentException("Campo '" + campo + "' inválido");
+        }
+        return (String) valor;
+    }
+
+    /**
+     * Leitor mínimo de objetos JSON planos (texto, inteiros, booleanos e null)
+     */
+    static final class Json {
+        private final String texto;
+        private int pos;
+
+        private Json(String texto) {
+            this.texto = texto;
+        }
+
+        static Map<String, Object> lerObjeto(String texto) {
+            Json json = new Json(texto);
+            Map<String, Object> objeto = json.objeto();
+            json.espacos();
+            if (json.pos != texto.length()) {
+                throw json.invalido();
+            }
+            return objeto;
+        }
+
+        private Map<String, Object> objeto() {
+            Map<String, Object> objeto = new LinkedHashMap<>();
+            esperar('{');
+            espacos();
+            if (consumir('}')) {
+                return objeto;
+            }
+            do {
+                espacos();
+                String chave = cadeia();
+                espacos();
+                esperar(':');
+                espacos();
+                objeto.put(chave, valor());
+                espacos();
+            } while (consumir(','));
+            esperar('}');
+            return objeto;
+        }
+
+        private Object valor() {
+            if (pos >= texto.length()) {
+                throw invalido();
+            }
+            char c = texto.charAt(pos);
+            if (c == '"') {
+                return cadeia();
+            }
+            if (texto.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (texto.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (texto.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            int inicio = pos;
+            if (c == '-') {
+                pos++;
+            }
+            while (pos < texto.length() && Character.isDigit(texto.charAt(pos))) {
+                pos++;
+            }
+            try {
+                return Long.parseLong(texto.substring(inicio, pos));
+            } catch (NumberFormatException e) {
+                throw invalido();
+            }
+        }
+
+        private String cadeia() {
+            esperar('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < texto.length()) {
+                char c = texto.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= texto.length()) {
+                    break;
+                }
+                char escape = texto.charAt(pos++);
+                switch (escape) {
+                    case '"', '\\', '/' -> sb.append(escape);
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > texto.length()) {
+                            throw invalido();
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw invalido();
+                        }
+                        pos += 4;
+                    }
+                    default -> throw invalido();
+                }
+            }
+            throw invalido();
+        }
+
+        private void espacos() {
+            while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean consumir(char c) {
+            if (pos < texto.length() && texto.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void esperar(char c) {
+            if (!consumir(c)) {
+                throw invalido();
+            }
+        }
+
+        private IllegalArgumentException invalido() {
+            return new IllegalArgumentException("JSON inválido na posição " + pos);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.List;
+
+/**
+ * Teste do orçamento de memória de {@link CifraEmCache} e {@link CacheResultados}
+ *
+ * Verifica que:
+ * <ul>
+ *   <li>o resultado da alínea 2 sem filtros (todas as combinações de salts, que partilham a
+ *       mesma mensagem) fica guardado numa cache com o tamanho por omissão do serviço HTTP;</li>
+ *   <li>um resultado maior do que um segmento não é guardado, conta como rejeição e não
+ *       remove as entradas que já lá estavam.</li>
+ * </ul>
+ *
+ * Utilização:
+ *   java TesteCifraEmCache
+ * Termina com código 1 se alguma verificação falhar.
+ */
+public class TesteCifraEmCache {
+
+    // Tamanho por omissão de --cache-mb no serviço HTTP
+    private static final long BYTES_CACHE = 64L << 20;
+
+    private int falhas;
+
+    public static void main(String[] args) {
+        TesteCifraEmCache teste = new TesteCifraEmCache();
+        teste.alinea2SemFiltros();
+        teste.entradaMaiorDoQueSegmento();
+
+        System.out.println(teste.falhas == 0 ? "OK" : teste.falhas + " verificações falharam");
+        if (teste.falhas > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void alinea2SemFiltros() {
+        CifraEmCache cache = new CifraEmCache(BYTES_CACHE, null);
+        ContextoCifra contexto = ContextoCifra.PADRAO.comFiltros(false);
+        String cifra = "KHOOR ZRUOG ".repeat(20);
+
+        List<MotorPesquisaSalts.ResultadoCombinacao> primeiro = cache.pesquisarSalts(contexto, cifra);
+        List<MotorPesquisaSalts.ResultadoCombinacao> segundo = cache.pesquisarSalts(contexto, cifra);
+        CacheResultados.Estatisticas e = cache.estatisticas();
+
+        verificar("alínea 2 com " + primeiro.size() + " combinações", !primeiro.isEmpty());
+        verificar("alínea 2 guardada (rejeições=" + e.rejeicoes() + ")", e.entradas() == 1 && e.rejeicoes() == 0);
+        verificar("alínea 2 servida pela cache (acertos=" + e.acertos() + ")", e.acertos() == 1 && primeiro == segundo);
+        verificar("alínea 2 dentro de um segmento (" + e.bytes() + " bytes)", e.bytes() <= BYTES_CACHE / 16);
+    }
+
+    private void entradaMaiorDoQueSegmento() {
+        // 16 segmentos de 1 KiB
+        CacheResultados<String> cache = new CacheResultados<>(16 * 1024, s -> 2L * s.length());
+        for (int i = 0; i < 64; i++) {
+            cache.colocar(chave("pequena" + i), "x");
+        }
+        long guardadas = cache.estatisticas().entradas();
+        CacheResultados.Chave grande = chave("grande");
+        cache.colocar(grande, "x".repeat(4096));
+        CacheResultados.Estatisticas e = cache.estatisticas();
+
+        verificar("entrada grande rejeitada", e.rejeicoes() == 1 && cache.procurar(grande) == null);
+        verificar("entradas pequenas mantidas (" + e.entradas() + " de " + guardadas + ")",
+                e.entradas() == guardadas && e.remocoes() == 0);
+    }
+
+    private static CacheResultados.Chave chave(String entrada) {
+        return new CacheResultados.Chave("teste", entrada, null, 0, null, null, null, false);
+    }
+
+    private void verificar(String caso, boolean condicao) {
+        System.out.println((condicao ? "[ok] " : "[FALHA] ") + caso);
+        if (!condicao) {
+            falhas++;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.List;
+
+/**
+ * Teste de coerência entre os dois caminhos de {@link ClassificadorCandidatos}
+ *
+ * {@link ClassificadorCandidatos#classificarDeslocamentos} pontua os deslocamentos a partir
+ * do texto cifrado e {@link ClassificadorCandidatos#classificar} pontua candidatos já
+ * desencriptados. Para os mesmos textos, com ou sem letras acentuadas, os dois caminhos
+ * têm de dar as mesmas pontuações e a mesma ordem.
+ *
+ * Utilização:
+ *   java TesteClassificacao
+ * Termina com código 1 se alguma verificação falhar.
+ */
+public class TesteClassificacao {
+
+    private static final String[] TEXTOS = {
+            "A ação da canção começou à beira-mar, onde a mãe e o avô pescavam",
+            "ÉPOCA DE COLHEITA: PÃO, MAÇÃ, LIMÕES E AÇÚCAR PARA O CORAÇÃO DO PAÍS",
+            "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG"};
+
+    private int falhas;
+
+    public static void main(String[] args) {
+        TesteClassificacao teste = new TesteClassificacao();
+        for (String texto : TEXTOS) {
+            teste.mesmaOrdem(texto);
+        }
+
+        System.out.println(teste.falhas == 0 ? "OK" : teste.falhas + " verificações falharam");
+        if (teste.falhas > 0) {
+            System.exit(1);
+        }
+    }
+
+    // O texto é tratado como cifrado: o deslocamento 0 devolve-o tal como está, com os acentos
+    private void mesmaOrdem(String texto) {
+        ClassificadorCandidatos classificador = new ClassificadorCandidatos();
+        String[] candidatos = new String[26];
+        candidatos[0] = texto;
+        for (int shift = 1; shift < 26; shift++) {
+            candidatos[shift] = CaesarCipher.desencriptarComDeslocamento(texto, shift);
+        }
+
+        List<ClassificadorCandidatos.Candidato> pelaCifra = classificador.classificarDeslocamentos(texto, 26);
+        List<ClassificadorCandidatos.Candidato> pelosCandidatos = classificador.classificar(candidatos, 26);
+
+        boolean iguais = pelaCifra.size() == pelosCandidatos.size();
+        for (int i = 0; iguais && i < pelaCifra.size(); i++) {
+            iguais = pelaCifra.get(i).shift() == pelosCandidatos.get(i).shift()
+                    && pelaCifra.get(i).pontuacao() == pelosCandidatos.get(i).pontuacao();
+        }
+        verificar("mesma ordem e pontuações: " + texto + " (melhor: " + pelaCifra.get(0).shift()
+                + " e " + pelosCandidatos.get(0).shift() + ")", iguais);
+    }
+
+    private void verificar(String caso, boolean condicao) {
+        System.out.println((condicao ? "[ok] " : "[FALHA] ") + caso);
+        if (!condicao) {
+            falhas++;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Teste de {@link DesencriptacaoFicheiros} com ficheiros UTF-8 acentuados
+ *
+ * Cifra um texto português em UTF-8 e verifica que:
+ * <ul>
+ *   <li>o ficheiro cifrado e o desencriptado são UTF-8 válido;</li>
+ *   <li>o ficheiro desencriptado é igual ao original com as letras ASCII em maiúsculas (tal
+ *       como a cifra as devolve) e os acentos intactos, também com blocos de tamanho ímpar
+ *       (que cortam as sequências multibyte a meio);</li>
+ *   <li>a estimativa do deslocamento, que ignora os bytes fora do ASCII, encontra a chave.</li>
+ * </ul>
+ *
+ * Utilização:
+ *   java TesteDesencriptacaoFicheiros
+ * Termina com código 1 se alguma verificação falhar.
+ */
+public class TesteDesencriptacaoFicheiros {
+
+    private static final int DESLOCAMENTO = 7;
+    private static final String TEXTO = "A ação da canção começou à beira-mar, onde a mãe e o avô "
+            + "pescavam. ÉPOCA DE COLHEITA: pão, maçã, limões e açúcar para o coração do país.\n";
+
+    private int falhas;
+
+    public static void main(String[] args) throws IOException {
+        TesteDesencriptacaoFicheiros teste = new TesteDesencriptacaoFicheiros();
+        Path pasta = Files.createTempDirectory("desencriptacao");
+        try {
+            teste.utf8(pasta);
+        } finally {
+            try (var ficheiros = Files.list(pasta)) {
+                for (Path p : ficheiros.toList()) {
+                    Files.delete(p);
+                }
+            }
+            Files.delete(pasta);
+        }
+
+        System.out.println(teste.falhas == 0 ? "OK" : teste.falhas + " verificações falharam");
+        if (teste.falhas > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void utf8(Path pasta) throws IOException {
+        byte[] original = TEXTO.repeat(50).getBytes(StandardCharsets.UTF_8);
+        byte[] esperado = original.clone();
+        for (int i = 0; i < esperado.length; i++) {
+            if (esperado[i] >= 'a' && esperado[i] <= 'z') {
+                esperado[i] -= 'a' - 'A';
+            }
+        }
+        Path simples = Files.write(pasta.resolve("simples.txt"), original);
+        Path cifrado = pasta.resolve("cifrado.txt");
+        DesencriptacaoFicheiros.desencriptar(simples, cifrado, 26 - DESLOCAMENTO);
+
+        verificar("cifrado é UTF-8 válido", utf8Valido(Files.readAllBytes(cifrado)));
+        verificar("cifrado difere do original", !Arrays.equals(Files.readAllBytes(cifrado), original));
+
+        for (int bloco : new int[]{DesencriptacaoFicheiros.TAMANHO_BLOCO_PADRAO, 4096, 7, 1}) {
+            Path saida = pasta.resolve("saida" + bloco + ".txt");
+            DesencriptacaoFicheiros.desencriptar(cifrado, saida, DESLOCAMENTO, null, bloco);
+            byte[] obtido = Files.readAllBytes(saida);
+            verificar("desencriptado com blocos de " + bloco + " é UTF-8 válido", utf8Valido(obtido));
+            verificar("desencriptado com blocos de " + bloco + " igual ao original", Arrays.equals(obtido, esperado));
+        }
+
+        int estimado = DesencriptacaoFicheiros.estimarDeslocamentos(cifrado).get(0).shift();
+        verificar("deslocamento estimado " + estimado + " (esperado " + DESLOCAMENTO + ")", estimado == DESLOCAMENTO);
+    }
+
+    private static boolean utf8Valido(byte[] bytes) {
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    private void verificar(String caso, boolean condicao) {
+        System.out.println((condicao ? "[ok] " : "[FALHA] ") + caso);
+        if (!condicao) {
+            falhas++;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Modo de lote distribuído por vários processos: trabalhador (ver {@link CoordenadorLote})
+ * Abre uma ligação ao coordenador por thread. Cada ligação recebe as opções do lote,
+ * depois fragmentos de linhas, que processa com {@link ProcessamentoLote} e devolve já
+ * formatados. Termina quando o coordenador indica que não há mais trabalho.
+ *
+ * Utilização:
+ *   java Main --trabalhador HOST:PORTA [--token SEGREDO] [--threads N]
+ * Sem --token usa a variável de ambiente SAD_TOKEN.
+ */
+public class TrabalhadorLote {
+
+    private final String host;
+    private final int porta;
+    private final String token;
+
+    public TrabalhadorLote(String host, int porta, String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Indique o token do coordenador (--token ou " + CoordenadorLote.VARIAVEL_TOKEN + ")");
+        }
+        CoordenadorLote.validarToken(token);
+        this.host = host;
+        this.porta = porta;
+        this.token = token;
+    }
+
+    /**
+     * Ponto de entrada a partir da linha de comandos
+     * @param args Argumentos (ver documentação da classe)
+     * @return Código de saída do processo
+     */
+    public static int executar(String[] args) {
+        String endereco = null;
+        String token = System.getenv(CoordenadorLote.VARIAVEL_TOKEN);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--trabalhador" -> endereco = valor(args, ++i);
+                    case "--token" -> token = valor(args, ++i);
+                    case "--threads" -> threads = Integer.parseInt(valor(args, ++i));
+                    default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+                }
+            }
+            int separador = endereco == null ? -1 : endereco.lastIndexOf(':');
+            if (separador <= 0 || threads <= 0) {
+                throw new IllegalArgumentException("Indique --trabalhador HOST:PORTA e um número de threads positivo");
+            }
+            TrabalhadorLote trabalhador = new TrabalhadorLote(endereco.substring(0, separador),
+                    Integer.parseInt(endereco.substring(separador + 1)), token);
+            trabalhador.executar(threads);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERRO] " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("[ERRO] Falha na ligação ao coordenador: " + e.getMessage());
+            return 1;
+        } catch (IllegalStateException e) {
+            System.err.println("[ERRO] " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Processa fragmentos em várias ligações até o coordenador terminar
+     * @param threads Número de ligações (fragmentos processados em simultâneo)
+     * @throws IOException Se alguma ligação falhar
+     */
+    public void executar(int threads) throws IOException {
+        AtomicReference<Exception> erro = new AtomicReference<>();
+        List<Thread> ligacoes = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    atender();
+                } catch (IOException | RuntimeException e) {
+                    erro.compareAndSet(null, e);
+                }
+            }, "trabalhador-" + i);
+            thread.start();
+            ligacoes.add(thread);
+        }
+        for (Thread thread : ligacoes) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Trabalhador interrompido", e);
+            }
+        }
+        Exception e = erro.get();
+        if (e instanceof IOException io) {
+            throw io;
+        }
+        if (e != null) {
+            throw (RuntimeException) e;
+        }
+    }
+
+    private void atender() throws IOException {
+        try (Socket socket = new Socket(host, porta);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            out.writeInt(CoordenadorLote.MAGICO);
+            CoordenadorLote.escreverTexto(out, token);
+            out.flush();
+
+            int numeroArgumentos;
+            try {
+                numeroArgumentos = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("O coordenador recusou a ligação (token errado?)", e);
+            }
+            String[] argumentos = new String[numeroArgumentos];
+            for (int i = 0; i < argumentos.length; i++) {
+                argumentos[i] = CoordenadorLote.lerTexto(in);
+            }
+            ProcessamentoLote lote = ProcessamentoLote.Opcoes.ler(argumentos).criarLote();
+
+            long id;
+            while ((id = in.readLong()) != CoordenadorLote.FIM) {
+                long primeiraLinha = in.readLong();
+                int linhas = in.readInt();
+                StringBuilder resultado = new StringBuilder();
+                for (int i = 0; i < linhas; i++) {
+                    resultado.append(lote.processarLinha(primeiraLinha + i, CoordenadorLote.lerTexto(in)));
+                }
+                out.writeLong(id);
+                CoordenadorLote.escreverTexto(out, resultado.toString());
+                out.flush();
+            }
+        }
+    }
+
+    private static String valor(String[] args, int indice) {
+        if (indice >= args.length) {
+            throw new IllegalArgumentException("Falta o valor de " + args[indice - 1]);
+        }
+        return args[indice];
+    }
+}
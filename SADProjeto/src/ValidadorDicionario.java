@@ -0,0 +1,239 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Validação de candidatos pela cobertura de um dicionário
+ *
+ * A cobertura é a fração das letras do texto que pertencem a palavras do dicionário.
+ * Cada sequência de letras é segmentada por programação dinâmica sobre o autómato
+ * do {@link Dicionario}, pelo que textos sem espaços ("ATACAMOSAMANHA") também são
+ * reconhecidos. Palavras de uma só letra só contam quando aparecem isoladas, para que
+ * "a", "e" e "o" não cubram texto aleatório. Acentos e maiúsculas são indiferentes.
+ *
+ * Com vários idiomas, o texto é avaliado em cada um e conta o de maior cobertura.
+ * Também serve de {@link ModeloPontuacao}, com a cobertura (0 a 1) como pontuação.
+ */
+public class ValidadorDicionario implements ModeloPontuacao {
+
+    public static final double COBERTURA_MINIMA_PADRAO = 0.7;
+
+    /**
+     * Parte de um texto segmentado
+     * @param texto Letras do texto original (com acentos e maiúsculas)
+     * @param conhecido Se é uma palavra do dicionário
+     */
+    public record Segmento(String texto, boolean conhecido) {}
+
+    /**
+     * Melhor segmentação de um texto
+     * @param idioma Idioma com maior cobertura
+     * @param cobertura Fração das letras cobertas por palavras conhecidas
+     * @param segmentos Palavras conhecidas e sequências desconhecidas, pela ordem do texto
+     */
+    public record Segmentacao(PerfilIdioma idioma, double cobertura, List<Segmento> segmentos) {}
+
+    private final double coberturaMinima;
+    private final PerfilIdioma[] idiomas;
+
+    /**
+     * Português e inglês, com a cobertura mínima por omissão
+     */
+    public ValidadorDicionario() {
+        this(COBERTURA_MINIMA_PADRAO, PerfilIdioma.PORTUGUES, PerfilIdioma.INGLES);
+    }
+
+    /**
+     * @param coberturaMinima Cobertura a partir da qual um texto é aceite (0 a 1)
+     * @param idiomas Idiomas cujos dicionários são usados (carregados na primeira utilização)
+     */
+    public ValidadorDicionario(double coberturaMinima, PerfilIdioma... idiomas) {
+        if (!(coberturaMinima >= 0 && coberturaMinima <= 1)) {
+            throw new IllegalArgumentException("A cobertura mínima deve estar entre 0 e 1");
+        }
+        if (idiomas.length == 0) {
+            throw new IllegalArgumentException("Indique pelo menos um idioma");
+        }
+        this.coberturaMinima = coberturaMinima;
+        this.idiomas = idiomas.clone();
+    }
+
+    public double coberturaMinima() {
+        return coberturaMinima;
+    }
+
+    /**
+     * Lê já os dicionários, que de outro modo só são lidos na primeira validação
+     * @throws IllegalStateException Se algum dicionário não estiver no classpath
+     */
+    public void carregar() {
+        for (PerfilIdioma idioma : idiomas) {
+            Dicionario.de(idioma);
+        }
+    }
+
+    /**
+     * @param texto Texto candidato
+     * @return Se a cobertura do texto atinge a cobertura mínima
+     */
+    public boolean aceita(CharSequence texto) {
+        return texto != null && cobertura(texto) >= coberturaMinima;
+    }
+
+    /**
+     * @param texto Texto candidato
+     * @return Maior cobertura entre os idiomas (0 se o texto não tiver letras)
+     */
+    public double cobertura(CharSequence texto) {
+        int[] letras = new int[texto.length()];
+        return pontuar(letras, codificar(texto, letras));
+    }
+
+    @Override
+    public double pontuar(CharSequence texto) {
+        return cobertura(texto);
+    }
+
+    /**
+     * Os códigos de {@link ModeloPontuacao#codificar} são os da cifra, em que uma letra
+     * acentuada não dá a letra sem acento; {@link #cobertura(CharSequence)} retira-lhe o acento.
+     */
+    @Override
+    public double pontuar(int[] letras, int comprimento) {
+        int total = contarLetras(letras, comprimento);
+        if (total == 0) {
+            return 0;
+        }
+        int[] melhor = new int[comprimento + 1];
+        int maximo = 0;
+        for (PerfilIdioma idioma : idiomas) {
+            maximo = Math.max(maximo, segmentar(Dicionario.de(idioma), letras, comprimento, melhor, null));
+            if (maximo == total) {
+                break;
+            }
+        }
+        return (double) maximo / total;
+    }
+
+    /**
+     * Segmenta um texto em palavras do dicionário do idioma com maior cobertura
+     * @param texto Texto (com ou sem espaços)
+     * @return Segmentação; sem letras, a lista de segmentos vem vazia
+     */
+    public Segmentacao segmentar(CharSequence texto) {
+        int n = texto.length();
+        int[] letras = new int[n];
+        codificar(texto, letras);
+        int total = contarLetras(letras, n);
+
+        int[] melhor = new int[n + 1];
+        int[] inicio = new int[n + 1];
+        PerfilIdioma melhorIdioma = idiomas[0];
+        int maximo = -1;
+        for (PerfilIdioma idioma : idiomas) {
+            int cobertas = segmentar(Dicionario.de(idioma), letras, n, melhor, null);
+            if (cobertas > maximo) {
+                maximo = cobertas;
+                melhorIdioma = idioma;
+            }
+        }
+        segmentar(Dicionario.de(melhorIdioma), letras, n, melhor, inicio);
+
+        // Reconstrói de trás para a frente; as letras não cobertas juntam-se até um separador
+        List<Segmento> segmentos = new ArrayList<>();
+        int fim = n;
+        int fimDesconhecido = -1;
+        while (fim > 0) {
+            int i = inicio[fim];
+            if (i >= 0) {
+                fimDesconhecido = fecharDesconhecido(texto, segmentos, fim, fimDesconhecido);
+                segmentos.add(new Segmento(texto.subSequence(i, fim).toString(), true));
+                fim = i;
+            } else {
+                if (letras[fim - 1] == SEPARADOR) {
+                    fimDesconhecido = fecharDesconhecido(texto, segmentos, fim, fimDesconhecido);
+                } else if (fimDesconhecido < 0) {
+                    fimDesconhecido = fim;
+                }
+                fim--;
+            }
+        }
+        fecharDesconhecido(texto, segmentos, 0, fimDesconhecido);
+        Collections.reverse(segmentos);
+
+        double cobertura = total == 0 ? 0 : (double) maximo / total;
+        return new Segmentacao(melhorIdioma, cobertura, List.copyOf(segmentos));
+    }
+
+    private static int fecharDesconhecido(CharSequence texto, List<Segmento> segmentos, int inicio, int fim) {
+        if (fim >= 0) {
+            segmentos.add(new Segmento(texto.subSequence(inicio, fim).toString(), false));
+        }
+        return -1;
+    }
+
+    /**
+     * Programação dinâmica: melhor[k] é o máximo de letras cobertas em letras[0, k)
+     * @param inicio Se não for null, recebe em inicio[k] o início da palavra que acaba
+     *               em k na melhor solução, ou -1 se a posição k - 1 fica por cobrir
+     * @return Número máximo de letras cobertas
+     */
+    private static int segmentar(Dicionario dicionario, int[] letras, int n, int[] melhor, int[] inicio) {
+        Arrays.fill(melhor, 0, n + 1, 0);
+        if (inicio != null) {
+            Arrays.fill(inicio, 0, n + 1, -1);
+        }
+        for (int i = 0; i < n; i++) {
+            if (melhor[i] > melhor[i + 1]) {
+                melhor[i + 1] = melhor[i];
+                if (inicio != null) {
+                    inicio[i + 1] = -1;
+                }
+            }
+            if (letras[i] == SEPARADOR) {
+                continue;
+            }
+            boolean isoladaAntes = i == 0 || letras[i - 1] == SEPARADOR;
+            int estado = dicionario.inicial();
+            for (int j = i; j < n && letras[j] != SEPARADOR; j++) {
+                estado = dicionario.transicao(estado, letras[j]);
+                if (estado < 0) {
+                    break;
+                }
+                int tamanho = j - i + 1;
+                if (!dicionario.terminal(estado)) {
+                    continue;
+                }
+                if (tamanho == 1 && !(isoladaAntes && (j + 1 == n || letras[j + 1] == SEPARADOR))) {
+                    continue;
+                }
+                if (melhor[i] + tamanho > melhor[j + 1]) {
+                    melhor[j + 1] = melhor[i] + tamanho;
+                    if (inicio != null) {
+                        inicio[j + 1] = i;
+                    }
+                }
+            }
+        }
+        return melhor[n];
+    }
+
+    private static int codificar(CharSequence texto, int[] destino) {
+        int n = texto.length();
+        for (int i = 0; i < n; i++) {
+            destino[i] = Dicionario.codigo(texto.charAt(i));
+        }
+        return n;
+    }
+
+    private static int contarLetras(int[] letras, int n) {
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            if (letras[i] != SEPARADOR) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
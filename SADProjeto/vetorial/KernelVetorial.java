@@ -0,0 +1,87 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementação vetorial de {@link KernelDeslocamento.Acelerador} sobre jdk.incubator.vector
+ *
+ * Em cada bloco de bytes as letras ASCII são passadas a maiúsculas com uma máscara,
+ * convertidas num índice 0-25 e traduzidas por uma permutação de lanes sobre as 26
+ * entradas da tabela correspondentes a 'A'-'Z' (o deslocamento e a substituição
+ * inversa já vêm compostos na tabela). Os restantes bytes ASCII ficam inalterados e
+ * os bytes acima de 0x7F (letras acentuadas) são corrigidos pela tabela, um a um.
+ *
+ * Fica fora de src porque precisa do módulo incubado para compilar e correr:
+ *   javac -d out src/*.java
+ *   javac --add-modules jdk.incubator.vector -cp out -d out vetorial/KernelVetorial.java
+ *   java --add-modules jdk.incubator.vector -cp out Main
+ * Sem o módulo ou sem esta classe, {@link KernelDeslocamento} usa o loop escalar.
+ */
+public final class KernelVetorial implements KernelDeslocamento.Acelerador {
+
+    private static final VectorSpecies<Byte> ESPECIE = ByteVector.SPECIES_PREFERRED;
+
+    private KernelVetorial() {
+    }
+
+    /**
+     * @return Acelerador, ou null se os vetores do processador não tiverem lanes para as 26 letras
+     */
+    public static KernelDeslocamento.Acelerador criar() {
+        return ESPECIE.length() >= 26 ? new KernelVetorial() : null;
+    }
+
+    @Override
+    public void traduzir(byte[] origem, int inicio, int comprimento, byte[] destino, int inicioDestino, byte[] tabela) {
+        byte[] letras = new byte[ESPECIE.length()];
+        System.arraycopy(tabela, 'A', letras, 0, 26);
+        ByteVector tabelaLetras = ByteVector.fromArray(ESPECIE, letras, 0);
+        ByteVector zero = ByteVector.zero(ESPECIE);
+
+        int limite = ESPECIE.loopBound(comprimento);
+        int i = 0;
+        for (; i < limite; i += ESPECIE.length()) {
+            ByteVector v = ByteVector.fromArray(ESPECIE, origem, inicio + i);
+            // Os bytes acima de 0x7F são negativos e ficam fora do intervalo 'A'-'Z'
+            ByteVector maiuscula = v.and((byte) 0xDF);
+            VectorMask<Byte> letra = maiuscula.compare(VectorOperators.GE, (byte) 'A')
+                    .and(maiuscula.compare(VectorOperators.LE, (byte) 'Z'));
+            ByteVector indice = zero.blend(maiuscula.sub((byte) 'A'), letra);
+            ByteVector traduzido = tabelaLetras.rearrange(indice.toShuffle());
+            v.blend(traduzido, letra).intoArray(destino, inicioDestino + i);
+
+            VectorMask<Byte> naoAscii = v.compare(VectorOperators.LT, (byte) 0);
+            if (naoAscii.anyTrue()) {
+                // Estes lanes foram escritos sem alteração, pelo que o destino ainda tem o byte original
+                for (int j = naoAscii.firstTrue(); j < ESPECIE.length(); j++) {
+                    int k = inicioDestino + i + j;
+                    if (destino[k] < 0) {
+                        destino[k] = tabela[destino[k] & 0xFF];
+                    }
+                }
+            }
+        }
+        for (; i < comprimento; i++) {
+            destino[inicioDestino + i] = tabela[origem[inicio + i] & 0xFF];
+        }
+    }
+
+    @Override
+    public int indice(byte[] dados, int inicio, int comprimento, byte valor) {
+        int limite = ESPECIE.loopBound(comprimento);
+        int i = 0;
+        for (; i < limite; i += ESPECIE.length()) {
+            VectorMask<Byte> iguais = ByteVector.fromArray(ESPECIE, dados, inicio + i).compare(VectorOperators.EQ, valor);
+            if (iguais.anyTrue()) {
+                return i + iguais.firstTrue();
+            }
+        }
+        for (; i < comprimento; i++) {
+            if (dados[inicio + i] == valor) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}